@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import graphql.schema.GraphQLSchema;
+import io.engagingspaces.graphql.query.QueryResult;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import org.example.graphql.testdata.droids.DroidsSchema;
+import org.example.graphql.testdata.starwars.StarWarsSchema;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The schema's and queries of the test data that are used by the benchmarks.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+final class BenchmarkSchemas {
+
+    static final String STARWARS = "starwars";
+    static final String DROIDS = "droids";
+
+    private static final String STARWARS_QUERY =
+            "        query HumanNames {\n" +
+            "            luke: human(id: \"1000\") {\n" +
+            "                id\n" +
+            "                name\n" +
+            "                homePlanet\n" +
+            "            }\n" +
+            "            vader: human(id: \"1001\") {\n" +
+            "                id\n" +
+            "                name\n" +
+            "                homePlanet\n" +
+            "            }\n" +
+            "        }";
+
+    private static final String DROIDS_QUERY =
+            "        query CheckTypeOfR2 {\n" +
+            "            droidHero {\n" +
+            "                __typename\n" +
+            "                id\n" +
+            "                name\n" +
+            "                primaryFunction\n" +
+            "            }\n" +
+            "        }";
+
+    private BenchmarkSchemas() {
+        // Utility class
+    }
+
+    static GraphQLSchema schema(String name) {
+        switch (name) {
+            case STARWARS:
+                return StarWarsSchema.starWarsSchema;
+            case DROIDS:
+                return DroidsSchema.droidsSchema;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark schema: " + name);
+        }
+    }
+
+    static String query(String name) {
+        switch (name) {
+            case STARWARS:
+                return STARWARS_QUERY;
+            case DROIDS:
+                return DROIDS_QUERY;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark schema: " + name);
+        }
+    }
+
+    /**
+     * Creates a result handler that completes the provided future, so that benchmarks can wait for asynchronous
+     * query results.
+     */
+    static Handler<AsyncResult<QueryResult>> completing(CompletableFuture<QueryResult> future) {
+        return rh -> {
+            if (rh.succeeded()) {
+                future.complete(rh.result());
+            } else {
+                future.completeExceptionally(rh.cause());
+            }
+        };
+    }
+}
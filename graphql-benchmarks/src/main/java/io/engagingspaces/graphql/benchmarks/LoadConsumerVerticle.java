@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.engagingspaces.graphql.events.SchemaReferenceData;
+import io.engagingspaces.graphql.servicediscovery.consumer.DiscoveryRegistrar;
+import io.engagingspaces.graphql.servicediscovery.consumer.SchemaConsumer;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verticle that sends queries at a fixed rate to a published test data schema, using
+ * {@link SchemaConsumer#executeQuery}.
+ * <p>
+ * Requests are sent according to a schedule that does not depend on response times. Every timer tick all requests
+ * that are due are sent, and their latency is measured from the time they were due rather than from the time they
+ * were actually sent.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class LoadConsumerVerticle extends AbstractVerticle implements SchemaConsumer {
+
+    private final LoadTestOptions options;
+    private final LoadReport report;
+    private final long measureFrom;
+    private final long sendUntil;
+    private final long interval;
+    private final String schemaName;
+    private final String query;
+
+    private DiscoveryRegistrar registrar;
+    private long nextSend;
+    private long timerId;
+    private boolean sending;
+
+    LoadConsumerVerticle(LoadTestOptions options, LoadReport report, long startTime, int index) {
+        this.options = options;
+        this.report = report;
+        this.measureFrom = startTime + TimeUnit.MILLISECONDS.toNanos(options.getWarmup());
+        this.sendUntil = measureFrom + TimeUnit.MILLISECONDS.toNanos(options.getDuration());
+        this.interval = TimeUnit.SECONDS.toNanos(1) * options.getConsumers() / Math.max(1, options.getRate());
+        this.nextSend = startTime + interval * index / options.getConsumers();
+        this.schemaName = BenchmarkSchemas.schema(options.getSchema()).getQueryType().getName();
+        this.query = BenchmarkSchemas.query(options.getSchema());
+    }
+
+    @Override
+    public void start() {
+        registrar = DiscoveryRegistrar.create(vertx);
+        SchemaConsumer.startDiscovery(new ServiceDiscoveryOptions().setName(options.getDiscoveryName()), this);
+        sending = true;
+        report.startSending();
+        timerId = vertx.setPeriodic(1, id -> sendDueRequests());
+    }
+
+    @Override
+    public void stop() {
+        if (sending) {
+            long first = Math.max(nextSend, measureFrom);
+            stopSending(first < sendUntil ? (sendUntil - first + interval - 1) / interval : 0);
+        }
+        SchemaConsumer.close(this);
+    }
+
+    private void sendDueRequests() {
+        long now = System.nanoTime();
+        while (nextSend <= now && nextSend < sendUntil) {
+            long scheduled = nextSend;
+            boolean measured = scheduled >= measureFrom;
+            if (measured) {
+                report.sent();
+            }
+            executeQuery(options.getDiscoveryName(), schemaName, query, rh -> {
+                if (measured) {
+                    report.completed(System.nanoTime() - scheduled, rh.succeeded() && rh.result().isSucceeded());
+                }
+            });
+            nextSend += interval;
+        }
+        if (nextSend >= sendUntil) {
+            stopSending(0);
+        }
+    }
+
+    private void stopSending(long remaining) {
+        vertx.cancelTimer(timerId);
+        sending = false;
+        report.stopSending(remaining);
+    }
+
+    @Override
+    public void schemaDiscoveryEvent(Record record) {
+        // Nothing to do
+    }
+
+    @Override
+    public void schemaReferenceEvent(SchemaReferenceData eventData) {
+        // Nothing to do
+    }
+
+    @Override
+    public DiscoveryRegistrar discoveryRegistrar() {
+        return registrar;
+    }
+}
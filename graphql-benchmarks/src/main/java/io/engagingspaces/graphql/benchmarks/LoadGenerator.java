@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process load test of publishers and consumers of the test data schema's.
+ * <p>
+ * A load test deploys a number of {@link io.engagingspaces.graphql.servicediscovery.publisher.SchemaPublisher}
+ * verticles that all publish the same schema, and a number of
+ * {@link io.engagingspaces.graphql.servicediscovery.consumer.SchemaConsumer} verticles that query it at a fixed
+ * total rate. When the load test is finished a {@link LoadReport} with the latency percentiles, throughput and
+ * error rate is returned.
+ * <p>
+ * The load test can be run from the command-line with options as {@code key=value} arguments, using the keys
+ * of {@link LoadTestOptions#toJson()}. The process exits with a non-zero status if the thresholds of the options
+ * were not met.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public final class LoadGenerator {
+
+    private static final long START_DELAY = 100;
+    private static final long DRAIN_POLL_INTERVAL = 10;
+
+    private LoadGenerator() {
+        // Utility class
+    }
+
+    /**
+     * Runs a load test with the specified options.
+     *
+     * @param vertx         the vert.x instance to deploy the publishers and consumers to
+     * @param options       the load test options
+     * @param resultHandler the result handler that receives the report
+     */
+    public static void run(Vertx vertx, LoadTestOptions options, Handler<AsyncResult<LoadReport>> resultHandler) {
+        Objects.requireNonNull(vertx, "Vertx cannot be null");
+        Objects.requireNonNull(options, "Load test options cannot be null");
+        Objects.requireNonNull(resultHandler, "Load test result handler cannot be null");
+        if (options.getPublishers() < 1 || options.getConsumers() < 1 || options.getRate() < 1) {
+            resultHandler.handle(Future.failedFuture(
+                    "Load test requires at least one publisher, one consumer and a positive request rate"));
+            return;
+        }
+        try {
+            BenchmarkSchemas.schema(options.getSchema());
+        } catch (IllegalArgumentException ex) {
+            resultHandler.handle(Future.failedFuture(ex));
+            return;
+        }
+
+        LoadReport report = new LoadReport(options);
+        List<String> deployments = new CopyOnWriteArrayList<>();
+        List<Future> publishers = new ArrayList<>();
+        for (int i = 0; i < options.getPublishers(); i++) {
+            publishers.add(deploy(vertx, new LoadPublisherVerticle(options), deployments));
+        }
+        CompositeFuture.all(publishers).compose(published -> {
+            long startTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_DELAY);
+            List<Future> consumers = new ArrayList<>();
+            for (int i = 0; i < options.getConsumers(); i++) {
+                consumers.add(deploy(vertx, new LoadConsumerVerticle(options, report, startTime, i), deployments));
+            }
+            return CompositeFuture.all(consumers);
+        }).setHandler(rh -> {
+            if (rh.failed()) {
+                undeploy(vertx, deployments, done -> resultHandler.handle(Future.failedFuture(rh.cause())));
+                return;
+            }
+            vertx.setTimer(START_DELAY + options.getWarmup() + options.getDuration(), id -> {
+                long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getDrainTimeout());
+                drain(vertx, report, drainDeadline, drained -> {
+                    report.close();
+                    undeploy(vertx, deployments, done -> resultHandler.handle(Future.succeededFuture(report)));
+                });
+            });
+        });
+    }
+
+    /**
+     * Runs a load test in a new vert.x instance and prints the report to standard out.
+     *
+     * @param args the load test options as {@code key=value} pairs
+     */
+    public static void main(String[] args) {
+        LoadTestOptions options = new LoadTestOptions(parseArguments(args));
+        Vertx vertx = Vertx.vertx();
+        CompletableFuture<LoadReport> result = new CompletableFuture<>();
+        run(vertx, options, rh -> {
+            if (rh.succeeded()) {
+                result.complete(rh.result());
+            } else {
+                result.completeExceptionally(rh.cause());
+            }
+        });
+        int status;
+        try {
+            LoadReport report = result.join();
+            System.out.println(report.toJson().encodePrettily());
+            status = report.passed() ? 0 : 1;
+        } catch (RuntimeException ex) {
+            System.err.println("Load test failed: " + ex.getMessage());
+            status = 2;
+        }
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(rh -> closed.complete(null));
+        closed.join();
+        System.exit(status);
+    }
+
+    static JsonObject parseArguments(String... args) {
+        JsonObject json = new JsonObject();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Load test argument must be a key=value pair: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            try {
+                json.put(key, Long.parseLong(value));
+            } catch (NumberFormatException ex) {
+                try {
+                    json.put(key, Double.parseDouble(value));
+                } catch (NumberFormatException ex2) {
+                    json.put(key, value);
+                }
+            }
+        }
+        return json;
+    }
+
+    private static Future<String> deploy(Vertx vertx, Verticle verticle, List<String> deployments) {
+        Future<String> future = Future.future();
+        vertx.deployVerticle(verticle, rh -> {
+            if (rh.succeeded()) {
+                deployments.add(rh.result());
+            }
+            future.handle(rh);
+        });
+        return future;
+    }
+
+    private static void undeploy(Vertx vertx, List<String> deployments, Handler<AsyncResult<Void>> handler) {
+        List<Future> futures = new ArrayList<>();
+        deployments.forEach(deploymentId -> {
+            Future<Void> future = Future.future();
+            vertx.undeploy(deploymentId, future.completer());
+            futures.add(future);
+        });
+        CompositeFuture.join(futures).setHandler(rh -> handler.handle(Future.succeededFuture()));
+    }
+
+    private static void drain(Vertx vertx, LoadReport report, long deadline, Handler<Void> handler) {
+        if (report.drained() || System.nanoTime() >= deadline) {
+            handler.handle(null);
+        } else {
+            vertx.setTimer(DRAIN_POLL_INTERVAL, id -> drain(vertx, report, deadline, handler));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.engagingspaces.graphql.servicediscovery.publisher.SchemaPublisher;
+import io.engagingspaces.graphql.servicediscovery.publisher.SchemaRegistrar;
+import io.engagingspaces.graphql.servicediscovery.publisher.SchemaRegistration;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+
+/**
+ * Verticle that publishes one of the test data schema's for the duration of a load test.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class LoadPublisherVerticle extends AbstractVerticle implements SchemaPublisher {
+
+    private final LoadTestOptions options;
+    private SchemaRegistrar registrar;
+
+    LoadPublisherVerticle(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public void start(Future<Void> startFuture) {
+        registrar = SchemaRegistrar.create(vertx);
+        publish(new ServiceDiscoveryOptions().setName(options.getDiscoveryName()),
+                BenchmarkSchemas.schema(options.getSchema()), rh -> {
+            if (rh.succeeded()) {
+                startFuture.complete();
+            } else {
+                startFuture.fail(rh.cause());
+            }
+        });
+    }
+
+    @Override
+    public void stop(Future<Void> stopFuture) {
+        SchemaPublisher.close(this, stopFuture.completer());
+    }
+
+    @Override
+    public void schemaPublished(SchemaRegistration registration) {
+        // Nothing to do
+    }
+
+    @Override
+    public void schemaUnpublished(SchemaRegistration registration) {
+        // Nothing to do
+    }
+
+    @Override
+    public SchemaRegistrar schemaRegistrar() {
+        return registrar;
+    }
+}
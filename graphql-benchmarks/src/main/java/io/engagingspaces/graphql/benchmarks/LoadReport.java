@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.engagingspaces.graphql.schema.LatencyHistogram;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, throughput and errors measured during a load test.
+ * <p>
+ * Only requests that were scheduled after the warmup period are recorded. Latencies are in microseconds.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class LoadReport {
+
+    private final LoadTestOptions options;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicInteger sending = new AtomicInteger();
+    private final LongAdder unsent = new LongAdder();
+    private volatile long timedOut;
+    private volatile boolean closed;
+
+    LoadReport(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    void sent() {
+        if (!closed) {
+            sent.increment();
+            outstanding.incrementAndGet();
+        }
+    }
+
+    void completed(long latencyNanos, boolean succeeded) {
+        if (!closed) {
+            latencies.record(latencyNanos);
+            if (!succeeded) {
+                failed.increment();
+            }
+            outstanding.decrementAndGet();
+        }
+    }
+
+    void startSending() {
+        sending.incrementAndGet();
+    }
+
+    void stopSending(long remaining) {
+        sending.decrementAndGet();
+        unsent.add(remaining);
+    }
+
+    boolean drained() {
+        return sending.get() == 0 && outstanding.get() == 0;
+    }
+
+    void close() {
+        closed = true;
+        timedOut = outstanding.get();
+    }
+
+    /**
+     * @return the latencies of all measured requests, including failed requests
+     */
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the number of measured requests, including requests that were scheduled but could not be sent
+     */
+    public long requests() {
+        return sent.sum() + unsent.sum();
+    }
+
+    /**
+     * @return the number of measured requests that failed, were not sent, or did not complete before the drain
+     * timeout
+     */
+    public long errors() {
+        return failed.sum() + unsent.sum() + timedOut;
+    }
+
+    /**
+     * @return the fraction of measured requests that failed
+     */
+    public double errorRate() {
+        long requests = requests();
+        return requests == 0 ? 0 : (double) errors() / requests;
+    }
+
+    /**
+     * @return the number of completed requests per second during the measurement period
+     */
+    public double throughput() {
+        return options.getDuration() == 0 ? 0 : latencies.count() * 1000.0 / options.getDuration();
+    }
+
+    /**
+     * Checks the report against the maximum p99 latency and error rate of the load test options, so that the load
+     * test can be used to gate releases.
+     *
+     * @return {@code true} if the thresholds were met, {@code false} otherwise
+     */
+    public boolean passed() {
+        if (requests() == 0 || errorRate() > options.getMaxErrorRate()) {
+            return false;
+        }
+        return options.getMaxP99() <= 0 ||
+                latencies.percentile(99) <= TimeUnit.MILLISECONDS.toMicros(options.getMaxP99());
+    }
+
+    /**
+     * @return the json representation of the report
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("options", options.toJson())
+                .put("requests", requests())
+                .put("errors", errors())
+                .put("errorRate", errorRate())
+                .put("throughput", throughput())
+                .put("latencies", latencies.toJson())
+                .put("passed", passed());
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * Options of a load test run by the {@link LoadGenerator}.
+ * <p>
+ * The request rate is the total rate of all consumers together, and is maintained regardless of the response times
+ * of the publishers (open-loop). Latencies are measured from the moment a request was scheduled to be sent, so that
+ * queueing delays on the consumer side are part of the reported latencies.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class LoadTestOptions {
+
+    public static final String DEFAULT_DISCOVERY_NAME = "graphql-load-test";
+    public static final String DEFAULT_SCHEMA = "droids";
+    public static final int DEFAULT_PUBLISHERS = 1;
+    public static final int DEFAULT_CONSUMERS = 1;
+    public static final int DEFAULT_RATE = 1000;
+    public static final long DEFAULT_WARMUP = 2000;
+    public static final long DEFAULT_DURATION = 10000;
+    public static final long DEFAULT_DRAIN_TIMEOUT = 5000;
+
+    private String discoveryName = DEFAULT_DISCOVERY_NAME;
+    private String schema = DEFAULT_SCHEMA;
+    private int publishers = DEFAULT_PUBLISHERS;
+    private int consumers = DEFAULT_CONSUMERS;
+    private int rate = DEFAULT_RATE;
+    private long warmup = DEFAULT_WARMUP;
+    private long duration = DEFAULT_DURATION;
+    private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+    private long maxP99 = 0;
+    private double maxErrorRate = 0;
+
+    /**
+     * Creates load test options with default values.
+     */
+    public LoadTestOptions() {
+    }
+
+    /**
+     * Creates load test options from its json representation, using default values for missing keys.
+     *
+     * @param json the json object
+     */
+    public LoadTestOptions(JsonObject json) {
+        Objects.requireNonNull(json, "Load test options json cannot be null");
+        this.discoveryName = json.getString("discoveryName", DEFAULT_DISCOVERY_NAME);
+        this.schema = json.getString("schema", DEFAULT_SCHEMA);
+        this.publishers = json.getInteger("publishers", DEFAULT_PUBLISHERS);
+        this.consumers = json.getInteger("consumers", DEFAULT_CONSUMERS);
+        this.rate = json.getInteger("rate", DEFAULT_RATE);
+        this.warmup = json.getLong("warmup", DEFAULT_WARMUP);
+        this.duration = json.getLong("duration", DEFAULT_DURATION);
+        this.drainTimeout = json.getLong("drainTimeout", DEFAULT_DRAIN_TIMEOUT);
+        this.maxP99 = json.getLong("maxP99", 0L);
+        this.maxErrorRate = json.getDouble("maxErrorRate", 0.0);
+    }
+
+    /**
+     * @return the name of the service discovery the schema is published to
+     */
+    public String getDiscoveryName() {
+        return discoveryName;
+    }
+
+    /**
+     * @param discoveryName the name of the service discovery the schema is published to
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setDiscoveryName(String discoveryName) {
+        this.discoveryName = Objects.requireNonNull(discoveryName, "Discovery name cannot be null");
+        return this;
+    }
+
+    /**
+     * @return the test data schema to query, either {@code starwars} or {@code droids}
+     */
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param schema the test data schema to query, either {@code starwars} or {@code droids}
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setSchema(String schema) {
+        this.schema = Objects.requireNonNull(schema, "Schema cannot be null");
+        return this;
+    }
+
+    /**
+     * @return the number of publisher verticles
+     */
+    public int getPublishers() {
+        return publishers;
+    }
+
+    /**
+     * @param publishers the number of publisher verticles
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setPublishers(int publishers) {
+        this.publishers = publishers;
+        return this;
+    }
+
+    /**
+     * @return the number of consumer verticles
+     */
+    public int getConsumers() {
+        return consumers;
+    }
+
+    /**
+     * @param consumers the number of consumer verticles
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setConsumers(int consumers) {
+        this.consumers = consumers;
+        return this;
+    }
+
+    /**
+     * @return the total number of requests per second sent by all consumers together
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate the total number of requests per second sent by all consumers together
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setRate(int rate) {
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds during which requests are sent, but not measured
+     */
+    public long getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @param warmup the time in milliseconds during which requests are sent, but not measured
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setWarmup(long warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds during which requests are sent and measured
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param duration the time in milliseconds during which requests are sent and measured
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for outstanding responses after the last request was sent
+     */
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * @param drainTimeout the time in milliseconds to wait for outstanding responses after the last request was sent.
+     *                     Responses that do not arrive in time are counted as errors
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+        return this;
+    }
+
+    /**
+     * @return the maximum allowed p99 latency in milliseconds, or {@code 0} if not checked
+     */
+    public long getMaxP99() {
+        return maxP99;
+    }
+
+    /**
+     * @param maxP99 the maximum allowed p99 latency in milliseconds, or {@code 0} if not checked
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setMaxP99(long maxP99) {
+        this.maxP99 = maxP99;
+        return this;
+    }
+
+    /**
+     * @return the maximum allowed fraction of failed requests
+     */
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    /**
+     * @param maxErrorRate the maximum allowed fraction of failed requests, between {@code 0} and {@code 1}
+     * @return this, for fluent calls
+     */
+    public LoadTestOptions setMaxErrorRate(double maxErrorRate) {
+        this.maxErrorRate = maxErrorRate;
+        return this;
+    }
+
+    /**
+     * @return the json representation of the load test options
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("discoveryName", discoveryName)
+                .put("schema", schema)
+                .put("publishers", publishers)
+                .put("consumers", consumers)
+                .put("rate", rate)
+                .put("warmup", warmup)
+                .put("duration", duration)
+                .put("drainTimeout", drainTimeout)
+                .put("maxP99", maxP99)
+                .put("maxErrorRate", maxErrorRate);
+    }
+}
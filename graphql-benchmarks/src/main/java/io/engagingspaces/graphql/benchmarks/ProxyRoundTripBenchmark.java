@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.impl.QueryableServiceHandler;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the full round trip of a query through a {@link Queryable} service proxy and the event bus.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxyRoundTripBenchmark {
+
+    @Param({BenchmarkSchemas.STARWARS, BenchmarkSchemas.DROIDS})
+    public String schema;
+
+    private Vertx vertx;
+    private MessageConsumer<JsonObject> consumer;
+    private Queryable proxy;
+    private String query;
+
+    @Setup
+    public void setUp() {
+        vertx = Vertx.vertx();
+        SchemaDefinition definition = SchemaDefinition.createInstance(BenchmarkSchemas.schema(schema), null);
+        consumer = QueryableServiceHandler.registerService(vertx, definition, definition.serviceAddress());
+        proxy = Queryable.createProxy(vertx, definition.serviceAddress(), new JsonObject());
+        query = BenchmarkSchemas.query(schema);
+        if (!query().isSucceeded()) {
+            throw new IllegalStateException("Benchmark query failed on schema: " + schema);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        consumer.unregister();
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(rh -> closed.complete(null));
+        closed.join();
+    }
+
+    @Benchmark
+    public QueryResult query() {
+        CompletableFuture<QueryResult> result = new CompletableFuture<>();
+        proxy.query(query, BenchmarkSchemas.completing(result));
+        return result.join();
+    }
+}
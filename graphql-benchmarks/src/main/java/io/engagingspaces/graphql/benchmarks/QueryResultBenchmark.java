@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the conversion of execution results into {@link QueryResult}s, and of their json representation.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryResultBenchmark {
+
+    @Param({BenchmarkSchemas.STARWARS, BenchmarkSchemas.DROIDS})
+    public String schema;
+
+    private ExecutionResult executionResult;
+    private QueryResult queryResult;
+    private JsonObject json;
+
+    @Setup
+    public void setUp() {
+        executionResult = GraphQL.newGraphQL(BenchmarkSchemas.schema(schema)).build()
+                .execute(BenchmarkSchemas.query(schema));
+        queryResult = SchemaDefinition.convertToQueryResult(executionResult);
+        if (!queryResult.isSucceeded()) {
+            throw new IllegalStateException("Benchmark query failed on schema: " + schema);
+        }
+        json = queryResult.toJson();
+    }
+
+    @Benchmark
+    public QueryResult convertToQueryResult() {
+        return SchemaDefinition.convertToQueryResult(executionResult);
+    }
+
+    @Benchmark
+    public JsonObject toJson() {
+        return queryResult.toJson();
+    }
+
+    @Benchmark
+    public QueryResult fromJson() {
+        return new QueryResult(json);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of query execution by a {@link SchemaDefinition}, without the event bus.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaDefinitionBenchmark {
+
+    @Param({BenchmarkSchemas.STARWARS, BenchmarkSchemas.DROIDS})
+    public String schema;
+
+    private SchemaDefinition definition;
+    private String query;
+
+    @Setup
+    public void setUp() {
+        definition = SchemaDefinition.createInstance(BenchmarkSchemas.schema(schema), null);
+        query = BenchmarkSchemas.query(schema);
+        if (!definition.queryBlocking(query, null).isSucceeded()) {
+            throw new IllegalStateException("Benchmark query failed on schema: " + schema);
+        }
+    }
+
+    @Benchmark
+    public QueryResult queryBlocking() {
+        return definition.queryBlocking(query, null);
+    }
+
+    @Benchmark
+    public QueryResult queryNonBlocking() {
+        CompletableFuture<QueryResult> result = new CompletableFuture<>();
+        definition.queryNonBlocking(query, null, BenchmarkSchemas.completing(result));
+        return result.join();
+    }
+}
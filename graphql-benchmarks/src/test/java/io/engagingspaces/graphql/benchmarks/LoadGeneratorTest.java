@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link LoadGenerator}.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@RunWith(VertxUnitRunner.class)
+public class LoadGeneratorTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void should_Report_Latencies_Of_Publisher_Consumer_Load_Test(TestContext context) {
+        Async async = context.async();
+        LoadTestOptions options = new LoadTestOptions()
+                .setPublishers(2)
+                .setConsumers(2)
+                .setRate(200)
+                .setWarmup(200)
+                .setDuration(500)
+                .setMaxP99(10000);
+
+        LoadGenerator.run(vertx, options, rh -> {
+            context.assertTrue(rh.succeeded());
+            LoadReport report = rh.result();
+            context.assertEquals(100L, report.requests());
+            context.assertEquals(0L, report.errors());
+            context.assertEquals(report.requests(), report.latencies().count());
+            context.assertTrue(report.throughput() > 0);
+            context.assertTrue(report.latencies().percentile(50) <= report.latencies().percentile(99.9));
+            context.assertTrue(report.passed());
+            context.assertEquals(2, report.toJson().getJsonObject("options").getInteger("publishers"));
+            context.assertTrue(vertx.deploymentIDs().isEmpty());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void should_Fail_Load_Test_With_Unknown_Schema(TestContext context) {
+        LoadGenerator.run(vertx, new LoadTestOptions().setSchema("unknown"), context.asyncAssertFailure());
+    }
+
+    @Test
+    public void should_Parse_Load_Test_Arguments() {
+        JsonObject json = LoadGenerator.parseArguments("rate=2000", "maxErrorRate=0.01", "schema=starwars");
+        LoadTestOptions options = new LoadTestOptions(json);
+        assertEquals(2000, options.getRate());
+        assertEquals(0.01, options.getMaxErrorRate(), 0);
+        assertEquals("starwars", options.getSchema());
+        assertEquals(LoadTestOptions.DEFAULT_CONSUMERS, options.getConsumers());
+    }
+}
@@ -32,6 +32,7 @@ import java.util.function.Function;
 import io.vertx.serviceproxy.ProxyHelper;
 import io.vertx.serviceproxy.ServiceException;
 import io.vertx.serviceproxy.ServiceExceptionMessageCodec;
+import java.util.List;
 import io.vertx.core.Vertx;
 import io.engagingspaces.graphql.query.Queryable;
 import io.vertx.core.json.JsonObject;
@@ -102,6 +103,43 @@ public class QueryableVertxEBProxy implements Queryable {
     });
   }
 
+  public void queryPersisted(String queryHash, JsonObject variables, Handler<AsyncResult<QueryResult>> resultHandler) {
+    if (closed) {
+      resultHandler.handle(Future.failedFuture(new IllegalStateException("Proxy is closed")));
+      return;
+    }
+    JsonObject _json = new JsonObject();
+    _json.put("queryHash", queryHash);
+    _json.put("variables", variables);
+    DeliveryOptions _deliveryOptions = (_options != null) ? new DeliveryOptions(_options) : new DeliveryOptions();
+    _deliveryOptions.addHeader("action", "queryPersisted");
+    _vertx.eventBus().<JsonObject>send(_address, _json, _deliveryOptions, res -> {
+      if (res.failed()) {
+        resultHandler.handle(Future.failedFuture(res.cause()));
+      } else {
+        resultHandler.handle(Future.succeededFuture(res.result().body() == null ? null : new QueryResult(res.result().body())));
+                      }
+    });
+  }
+
+  public void queryBatch(List<JsonObject> queries, Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+    if (closed) {
+      resultHandler.handle(Future.failedFuture(new IllegalStateException("Proxy is closed")));
+      return;
+    }
+    JsonObject _json = new JsonObject();
+    _json.put("queries", new JsonArray(queries));
+    DeliveryOptions _deliveryOptions = (_options != null) ? new DeliveryOptions(_options) : new DeliveryOptions();
+    _deliveryOptions.addHeader("action", "queryBatch");
+    _vertx.eventBus().<JsonArray>send(_address, _json, _deliveryOptions, res -> {
+      if (res.failed()) {
+        resultHandler.handle(Future.failedFuture(res.cause()));
+      } else {
+        resultHandler.handle(Future.succeededFuture(res.result().body().stream().map(o -> o instanceof Map ? new QueryResult(new JsonObject((Map) o)) : new QueryResult((JsonObject) o)).collect(Collectors.toList())));
+      }
+    });
+  }
+
   public void close() {
     if (closed) {
       throw new IllegalStateException("Proxy is closed");
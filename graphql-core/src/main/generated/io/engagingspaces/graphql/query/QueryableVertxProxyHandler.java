@@ -39,6 +39,7 @@ import io.vertx.serviceproxy.ProxyHelper;
 import io.vertx.serviceproxy.ProxyHandler;
 import io.vertx.serviceproxy.ServiceException;
 import io.vertx.serviceproxy.ServiceExceptionMessageCodec;
+import java.util.List;
 import io.vertx.core.Vertx;
 import io.engagingspaces.graphql.query.Queryable;
 import io.vertx.core.json.JsonObject;
@@ -153,6 +154,34 @@ public class QueryableVertxProxyHandler extends ProxyHandler {
          });
           break;
         }
+        case "queryPersisted": {
+          service.queryPersisted((java.lang.String)json.getValue("queryHash"), (io.vertx.core.json.JsonObject)json.getValue("variables"), res -> {
+            if (res.failed()) {
+              if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+              } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+              }
+            } else {
+              msg.reply(res.result() == null ? null : res.result().toJson());
+            }
+         });
+          break;
+        }
+        case "queryBatch": {
+          service.queryBatch(convertList(json.getJsonArray("queries").getList()), res -> {
+            if (res.failed()) {
+              if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+              } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+              }
+            } else {
+              msg.reply(new JsonArray(res.result().stream().map(QueryResult::toJson).collect(Collectors.toList())));
+            }
+         });
+          break;
+        }
         case "close": {
           service.close();
           close();
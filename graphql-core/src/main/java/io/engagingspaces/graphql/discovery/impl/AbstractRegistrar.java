@@ -24,10 +24,18 @@ import io.vertx.core.impl.VertxInternal;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Base class for registrars.
+ * <p>
+ * Managed service discoveries and registrations are kept in thread-safe stores, so that a registrar can be shared
+ * by multiple event loops.
  *
  * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
  * @param <T> the registration type to use
@@ -35,13 +43,13 @@ import java.util.*;
 public abstract class AbstractRegistrar<T extends Registration> implements Registrar {
 
     protected final Vertx vertx;
-    private final Map<String, ManagedServiceDiscovery> serviceDiscoveries;
-    private final Map<T, String> registrationMap;
+    private final ConcurrentMap<String, ManagedServiceDiscovery> serviceDiscoveries;
+    private final RegistrationStore<T> registrationStore;
 
     protected AbstractRegistrar(Vertx vertx) {
         this.vertx = vertx;
-        this.serviceDiscoveries = new HashMap<>();
-        this.registrationMap = new HashMap<>();
+        this.serviceDiscoveries = new ConcurrentHashMap<>();
+        this.registrationStore = new RegistrationStore<>();
     }
 
     /**
@@ -65,10 +73,7 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
      */
     @Override
     public ServiceDiscovery getDiscovery(String discoveryName) {
-        if (serviceDiscoveryNames().contains(discoveryName)) {
-            return serviceDiscoveries.get(discoveryName);
-        }
-        return null;
+        return discoveryName == null ? null : serviceDiscoveries.get(discoveryName);
     }
 
     /**
@@ -83,15 +88,15 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
             options.setName(getNodeId(vertx));
         }
         String discoveryName = options.getName();
-        if (serviceDiscoveries.containsKey(discoveryName)) {
-            return serviceDiscoveries.get(discoveryName);
+        ServiceDiscovery existing = serviceDiscoveries.get(discoveryName);
+        if (existing != null) {
+            return existing;
         }
-        ServiceDiscovery discovery = ServiceDiscovery.create(vertx, options);
-        if (closeHandler != null) {
-            discovery = ManagedServiceDiscovery.of(discovery, closeHandler);
-            serviceDiscoveries.put(discoveryName, (ManagedServiceDiscovery) discovery);
+        if (closeHandler == null) {
+            return ServiceDiscovery.create(vertx, options);
         }
-        return discovery;
+        return serviceDiscoveries.computeIfAbsent(discoveryName, name ->
+                ManagedServiceDiscovery.of(ServiceDiscovery.create(vertx, options), closeHandler));
     }
 
     /**
@@ -102,7 +107,24 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
      * @return the registration that was passed in
      */
     protected T register(String discoveryName, T registration) {
-        registrationMap.put(registration, discoveryName);
+        return register(discoveryName, null, registration);
+    }
+
+    /**
+     * Adds a new registration that can be looked up by name using {@link #findRegistration(String, String)}.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param name          the name to index the registration by (e.g. the schema name)
+     * @param registration  the registration
+     * @return the registration that was passed in
+     * @throws IllegalStateException if another registration with the same name exists in the service discovery
+     */
+    protected T register(String discoveryName, String name, T registration) {
+        if (!registrationStore.add(discoveryName, name, registration) &&
+                registrationStore.find(discoveryName, name).filter(found -> found != registration).isPresent()) {
+            throw new IllegalStateException("Registration '" + name +
+                    "' already exists in service discovery: " + discoveryName);
+        }
         return registration;
     }
 
@@ -114,18 +136,25 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
      * @param registration the schema registration
      */
     protected void unregister(T registration) {
-        String discoveryName = registrationMap.get(registration);
-        registrationMap.remove(registration);
-        if (!registrationMap.containsValue(discoveryName)) {
-            closeServiceDiscovery(discoveryName);
-        }
+        registrationStore.remove(registration).ifPresent(this::closeServiceDiscovery);
+    }
+
+    /**
+     * Finds the registration that was registered with the specified name to the specified service discovery.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param name          the name the registration was registered with
+     * @return optional that holds the registration, or empty if not found
+     */
+    public Optional<T> findRegistration(String discoveryName, String name) {
+        return registrationStore.find(discoveryName, name);
     }
 
     /**
      * @return the current registrations of the registrar
      */
     protected List<T> registrations() {
-        return new ArrayList<>(registrationMap.keySet());
+        return registrationStore.values();
     }
 
     /**
@@ -134,8 +163,9 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
      * @param discoveryName the service discovery name
      */
     protected void closeServiceDiscovery(String discoveryName) {
-        if (serviceDiscoveries.containsKey(discoveryName)) {
-            ManagedServiceDiscovery.closeUnmanaged(serviceDiscoveries.remove(discoveryName));
+        ManagedServiceDiscovery discovery = discoveryName == null ? null : serviceDiscoveries.remove(discoveryName);
+        if (discovery != null) {
+            ManagedServiceDiscovery.closeUnmanaged(discovery);
         }
     }
 
@@ -143,11 +173,10 @@ public abstract class AbstractRegistrar<T extends Registration> implements Regis
      * Closes the registrar and release all its resources.
      */
     protected void close() {
-        for (Map.Entry<String, ManagedServiceDiscovery> entry : serviceDiscoveries.entrySet()) {
-            ManagedServiceDiscovery.closeUnmanaged(entry.getValue());
+        for (String discoveryName : serviceDiscoveries.keySet()) {
+            closeServiceDiscovery(discoveryName);
         }
-        serviceDiscoveries.clear();
-        registrationMap.clear();
+        registrationStore.clear();
     }
 
     private static String getNodeId(Vertx vertx) {
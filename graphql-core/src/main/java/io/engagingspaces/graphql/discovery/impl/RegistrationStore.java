@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.discovery.impl;
+
+import io.engagingspaces.graphql.discovery.Registration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe store of the registrations of a registrar.
+ * <p>
+ * Registrations are indexed by service discovery name and registration name (e.g. the schema name), so that lookups
+ * take constant time. For every service discovery the number of registrations is reference-counted, so that it can be
+ * determined in constant time whether a service discovery is still in use.
+ * <p>
+ * Lookups are lock-free. Updates are serialized, so that the index and the reference counts are always consistent
+ * with each other, also when the store is shared by multiple event loops.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ * @param <T> the registration type to store
+ */
+class RegistrationStore<T extends Registration> {
+
+    private final ConcurrentMap<T, Key> registrations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, T> index = new ConcurrentHashMap<>();
+    private final Map<String, Integer> referenceCounts = new HashMap<>();
+
+    /**
+     * Adds a registration. Adding a registration that is already stored, or that has the same name as a stored
+     * registration of the same service discovery, has no effect.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param name          the name to index the registration by, or {@code null} if it should not be indexed
+     * @param registration  the registration
+     * @return {@code true} if the registration was added, {@code false} if it or its name was already stored
+     */
+    synchronized boolean add(String discoveryName, String name, T registration) {
+        Objects.requireNonNull(registration, "Registration cannot be null");
+        Key key = new Key(discoveryName, name);
+        if (registrations.containsKey(registration) || (name != null && index.containsKey(key))) {
+            return false;
+        }
+        registrations.put(registration, key);
+        if (name != null) {
+            index.put(key, registration);
+        }
+        referenceCounts.merge(discoveryName, 1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * Removes a registration.
+     *
+     * @param registration the registration
+     * @return optional that holds the service discovery name if the removed registration was the last registration
+     * of its service discovery, otherwise empty
+     */
+    synchronized Optional<String> remove(T registration) {
+        Key key = registrations.remove(registration);
+        if (key == null) {
+            return Optional.empty();
+        }
+        if (key.name != null) {
+            index.remove(key, registration);
+        }
+        if (referenceCounts.merge(key.discoveryName, -1, Integer::sum) > 0) {
+            return Optional.empty();
+        }
+        referenceCounts.remove(key.discoveryName);
+        return Optional.ofNullable(key.discoveryName);
+    }
+
+    /**
+     * Finds the registration with the specified name in the specified service discovery.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param name          the name the registration is indexed by
+     * @return optional that holds the registration, or empty if not found
+     */
+    Optional<T> find(String discoveryName, String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(index.get(new Key(discoveryName, name)));
+    }
+
+    /**
+     * @param discoveryName the name of the service discovery
+     * @return {@code true} if there are registrations for the service discovery, {@code false} otherwise
+     */
+    synchronized boolean isInUse(String discoveryName) {
+        return referenceCounts.containsKey(discoveryName);
+    }
+
+    /**
+     * @return a snapshot of the stored registrations
+     */
+    List<T> values() {
+        return new ArrayList<>(registrations.keySet());
+    }
+
+    /**
+     * @return the number of stored registrations
+     */
+    int size() {
+        return registrations.size();
+    }
+
+    /**
+     * Removes all registrations.
+     */
+    synchronized void clear() {
+        registrations.clear();
+        index.clear();
+        referenceCounts.clear();
+    }
+
+    private static final class Key {
+
+        private final String discoveryName;
+        private final String name;
+
+        private Key(String discoveryName, String name) {
+            this.discoveryName = discoveryName;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key test = (Key) other;
+            return Objects.equals(discoveryName, test.discoveryName) && Objects.equals(name, test.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(discoveryName) + Objects.hashCode(name);
+        }
+    }
+}
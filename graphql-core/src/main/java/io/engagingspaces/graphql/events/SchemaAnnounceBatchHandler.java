@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.events;
+
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Event handler that is invoked with a batch of schema publications and un-publications, when `announce` events are
+ * coalesced.
+ * <p>
+ * Every service record in a batch refers to a different GraphQL service, and holds the latest status that was
+ * announced for it within the coalescing window.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@FunctionalInterface
+public interface SchemaAnnounceBatchHandler {
+
+    /**
+     * Event handler that handles coalesced service discovery `announce` events for GraphQL services.
+     *
+     * @param records the service records of the GraphQL services, in order of their first announcement
+     */
+    void schemaDiscoveryEvents(List<Record> records);
+
+    /**
+     * Creates a batch handler that invokes the provided announce handler for each record in a batch.
+     *
+     * @param announceHandler the announce handler
+     * @return the batch handler
+     */
+    static SchemaAnnounceBatchHandler of(SchemaAnnounceHandler announceHandler) {
+        Objects.requireNonNull(announceHandler, "Schema announce handler cannot be null");
+        if (announceHandler instanceof SchemaAnnounceBatchHandler) {
+            return (SchemaAnnounceBatchHandler) announceHandler;
+        }
+        return records -> records.forEach(announceHandler::schemaDiscoveryEvent);
+    }
+}
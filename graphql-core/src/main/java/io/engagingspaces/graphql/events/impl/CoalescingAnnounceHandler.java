@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.events.impl;
+
+import io.engagingspaces.graphql.events.SchemaAnnounceBatchHandler;
+import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
+import io.engagingspaces.graphql.query.Queryable;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Internal message handler that coalesces `announce` events of GraphQL services over a time window, and delivers
+ * them as a batch.
+ * <p>
+ * Events are deduplicated by the registration id of their record, keeping the latest status. Service discoveries
+ * do not always include the registration id in `announce` events, so records without one are deduplicated by their
+ * endpoint instead. Unless an event handler is set that is invoked for every event before it is coalesced, records
+ * are only created for the events that are delivered.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class CoalescingAnnounceHandler implements Handler<Message<JsonObject>> {
+
+    private final Vertx vertx;
+    private final long window;
+    private final SchemaAnnounceHandler eventHandler;
+    private final SchemaAnnounceBatchHandler batchHandler;
+    private Map<String, JsonObject> pending = new LinkedHashMap<>();
+    private long timerId = -1;
+
+    CoalescingAnnounceHandler(Vertx vertx, long window, SchemaAnnounceHandler eventHandler,
+                              SchemaAnnounceBatchHandler batchHandler) {
+        this.vertx = vertx;
+        this.window = window;
+        this.eventHandler = eventHandler;
+        this.batchHandler = batchHandler;
+    }
+
+    @Override
+    public void handle(Message<JsonObject> message) {
+        JsonObject record = message.body();
+        if (!Queryable.SERVICE_TYPE.equals(record.getString("type"))) {
+            return;
+        }
+        if (eventHandler != null) {
+            eventHandler.schemaDiscoveryEvent(new Record(record));
+        }
+        synchronized (this) {
+            pending.put(key(record), record);
+            if (timerId == -1) {
+                timerId = vertx.setTimer(window, id -> flush());
+            }
+        }
+    }
+
+    /**
+     * Cancels delivery of the events that are pending.
+     */
+    synchronized void cancel() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        pending.clear();
+    }
+
+    private void flush() {
+        List<Record> records;
+        synchronized (this) {
+            timerId = -1;
+            if (pending.isEmpty()) {
+                return;
+            }
+            records = new ArrayList<>(pending.size());
+            pending.values().forEach(json -> records.add(new Record(json)));
+            pending = new LinkedHashMap<>();
+        }
+        batchHandler.schemaDiscoveryEvents(records);
+    }
+
+    private static String key(JsonObject record) {
+        String registration = record.getString("registration");
+        if (registration != null) {
+            return registration;
+        }
+        JsonObject location = record.getJsonObject("location");
+        String endpoint = location == null ? null : location.getString(Record.ENDPOINT);
+        return endpoint != null ? Record.ENDPOINT + ":" + endpoint : "name:" + record.getString("name");
+    }
+}
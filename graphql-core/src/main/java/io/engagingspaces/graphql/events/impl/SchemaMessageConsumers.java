@@ -16,17 +16,18 @@
 
 package io.engagingspaces.graphql.events.impl;
 
+import io.engagingspaces.graphql.events.SchemaAnnounceBatchHandler;
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
 import io.engagingspaces.graphql.events.SchemaReferenceData;
 import io.engagingspaces.graphql.events.SchemaUsageHandler;
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.impl.QueryableServiceHandler;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
-import io.vertx.serviceproxy.ProxyHelper;
 
 import java.util.*;
 
@@ -40,17 +41,52 @@ public class SchemaMessageConsumers {
     private final Vertx vertx;
     private final Map<String, MessageConsumer<JsonObject>> messageConsumers;
     private final List<String> consumerRegistrations;
+    private final Map<String, CoalescingAnnounceHandler> coalescingHandlers;
 
     public SchemaMessageConsumers(Vertx vertx) {
         this.vertx = vertx;
         this.messageConsumers = new HashMap<>();
         this.consumerRegistrations = new ArrayList<>();
+        this.coalescingHandlers = new HashMap<>();
     }
 
     public void registerConsumer(String address, SchemaAnnounceHandler announceHandler) {
         registerConsumer(address, createAnnounceHandler(announceHandler));
     }
 
+    /**
+     * Registers a consumer of `announce` events that coalesces the events received within the specified window, and
+     * delivers them to the batch handler.
+     *
+     * @param address        the announce address
+     * @param batchHandler   the handler of the coalesced events
+     * @param coalesceWindow the time window in milliseconds over which events are coalesced
+     */
+    public void registerConsumer(String address, SchemaAnnounceBatchHandler batchHandler, long coalesceWindow) {
+        registerConsumer(address, null, batchHandler, coalesceWindow);
+    }
+
+    /**
+     * Registers a consumer of `announce` events that invokes the event handler for every event as it is received,
+     * and coalesces the events received within the specified window before delivering them to the batch handler.
+     *
+     * @param address        the announce address
+     * @param eventHandler   the handler of every event, or {@code null} if there is none
+     * @param batchHandler   the handler of the coalesced events
+     * @param coalesceWindow the time window in milliseconds over which events are coalesced
+     */
+    public void registerConsumer(String address, SchemaAnnounceHandler eventHandler,
+                                 SchemaAnnounceBatchHandler batchHandler, long coalesceWindow) {
+        if (!messageConsumers.containsKey(address) && batchHandler != null) {
+            CoalescingAnnounceHandler handler =
+                    new CoalescingAnnounceHandler(vertx, Math.max(1, coalesceWindow), eventHandler, batchHandler);
+            coalescingHandlers.put(address, handler);
+            registerConsumer(address, handler);
+        } else {
+            registerConsumer(address, (Handler<Message<JsonObject>>) null);
+        }
+    }
+
     public void registerConsumer(String address, SchemaUsageHandler usageHandler) {
         registerConsumer(address, createUsageHandler(usageHandler));
     }
@@ -58,7 +94,7 @@ public class SchemaMessageConsumers {
     public <T extends Queryable> MessageConsumer<JsonObject> registerServiceConsumer(String address, T implementation) {
         MessageConsumer<JsonObject> serviceConsumer;
         if (!messageConsumers.containsKey(address)) {
-            serviceConsumer = ProxyHelper.registerService(Queryable.class, vertx, implementation, address);
+            serviceConsumer = QueryableServiceHandler.registerService(vertx, implementation, address);
             messageConsumers.put(address, serviceConsumer);
         } else {
             serviceConsumer = messageConsumers.get(address);
@@ -81,6 +117,9 @@ public class SchemaMessageConsumers {
                 })
                 .findFirst()
                 .ifPresent(consumer -> messageConsumers.remove(consumer.address()));
+        if (!messageConsumers.containsKey(address)) {
+            Optional.ofNullable(coalescingHandlers.remove(address)).ifPresent(CoalescingAnnounceHandler::cancel);
+        }
     }
 
     public void close() {
@@ -93,6 +132,8 @@ public class SchemaMessageConsumers {
             it.remove();
         }
         consumerRegistrations.clear();
+        coalescingHandlers.values().forEach(CoalescingAnnounceHandler::cancel);
+        coalescingHandlers.clear();
     }
 
     /**
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Helper methods for normalizing and hashing GraphQL query text.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public final class QueryDigest {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private QueryDigest() {
+        // Utility class
+    }
+
+    /**
+     * Normalizes the GraphQL query text by removing comments and all insignificant white space and commas.
+     * <p>
+     * Queries that only differ in formatting have the same normalized text. String values in the query are
+     * left untouched.
+     *
+     * @param graphqlQuery the graphql query
+     * @return the normalized query text
+     */
+    public static String normalize(String graphqlQuery) {
+        Objects.requireNonNull(graphqlQuery, "GraphQL query cannot be null");
+        StringBuilder normalized = new StringBuilder(graphqlQuery.length());
+        boolean separate = false;
+        int length = graphqlQuery.length();
+        for (int index = 0; index < length; index++) {
+            char c = graphqlQuery.charAt(index);
+            if (c == '"') {
+                int end = endOfString(graphqlQuery, index);
+                appendToken(normalized, separate, c);
+                normalized.append(graphqlQuery, index + 1, end);
+                index = end - 1;
+                separate = false;
+            } else if (c == '#') {
+                while (index + 1 < length && graphqlQuery.charAt(index + 1) != '\n' &&
+                        graphqlQuery.charAt(index + 1) != '\r') {
+                    index++;
+                }
+                separate = true;
+            } else if (Character.isWhitespace(c) || c == ',' || c == '\uFEFF') {
+                separate = true;
+            } else {
+                appendToken(normalized, separate, c);
+                separate = false;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Calculates the hex-encoded SHA-256 hash of the provided text.
+     *
+     * @param text the text to hash
+     * @return the lowercase hex-encoded hash
+     */
+    public static String sha256(String text) {
+        Objects.requireNonNull(text, "Text to hash cannot be null");
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 message digest is not available", ex);
+        }
+        char[] hex = new char[hash.length * 2];
+        for (int index = 0; index < hash.length; index++) {
+            hex[index * 2] = HEX_DIGITS[(hash[index] >> 4) & 0x0f];
+            hex[index * 2 + 1] = HEX_DIGITS[hash[index] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Calculates the hash of the normalized GraphQL query text.
+     *
+     * @param graphqlQuery the graphql query
+     * @return the hex-encoded hash of the normalized query
+     */
+    public static String normalizedHash(String graphqlQuery) {
+        return sha256(normalize(graphqlQuery));
+    }
+
+    /**
+     * Checks whether the GraphQL query text contains a mutation operation, without parsing the query.
+     * <p>
+     * Only the keyword that starts each top-level definition is inspected, so names and string values in the
+     * query are never mistaken for a mutation.
+     *
+     * @param graphqlQuery the graphql query
+     * @return {@code true} if the query defines a mutation, {@code false} otherwise
+     */
+    public static boolean isMutation(String graphqlQuery) {
+        String normalized = normalize(graphqlQuery);
+        int depth = 0;
+        boolean definitionStart = true;
+        int length = normalized.length();
+        for (int index = 0; index < length; index++) {
+            char c = normalized.charAt(index);
+            if (c == '"') {
+                index = endOfString(normalized, index) - 1;
+            } else if (c == '{' || c == '(' || c == '[') {
+                depth++;
+                definitionStart = false;
+            } else if (c == '}' || c == ')' || c == ']') {
+                depth--;
+                definitionStart = depth == 0 && c == '}';
+            } else if (definitionStart && depth == 0 && isNameChar(c)) {
+                if (normalized.startsWith("mutation", index) && (index + 8 == length ||
+                        !isNameChar(normalized.charAt(index + 8)))) {
+                    return true;
+                }
+                definitionStart = false;
+            }
+        }
+        return false;
+    }
+
+    private static void appendToken(StringBuilder normalized, boolean separate, char c) {
+        if (separate && normalized.length() > 0 && isNameChar(normalized.charAt(normalized.length() - 1)) &&
+                (isNameChar(c) || c == '"')) {
+            normalized.append(' ');
+        }
+        normalized.append(c);
+    }
+
+    private static int endOfString(String graphqlQuery, int start) {
+        int index = start + 1;
+        while (index < graphqlQuery.length()) {
+            char c = graphqlQuery.charAt(index);
+            if (c == '\\') {
+                index += 2;
+                continue;
+            }
+            index++;
+            if (c == '"' || c == '\n' || c == '\r') {
+                break;
+            }
+        }
+        return Math.min(index, graphqlQuery.length());
+    }
+
+    private static boolean isNameChar(char c) {
+        return c == '_' || c == '.' || c == '-' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z');
+    }
+}
@@ -28,7 +28,8 @@ import java.util.stream.Collectors;
  * Immutable data object that holds the execution result of a GraphQL query.
  * <p>
  * If the query was successful the response is available as {@link JsonObject}. Otherwise a list of
- * {@link QueryError} provides more detail on the failure.
+ * {@link QueryError} provides more detail on the failure. Additional information about the execution, such as
+ * field-level tracing, is available in the extensions of the query result.
  *
  * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
  */
@@ -38,13 +39,27 @@ public class QueryResult {
     private final JsonObject data;
     private final boolean succeeded;
     private final List<QueryError> errors;
+    private final JsonObject extensions;
 
     private volatile int hashCode;
 
     public QueryResult(JsonObject data, boolean succeeded, List<QueryError> errors) {
+        this(data, succeeded, errors, null);
+    }
+
+    /**
+     * Creates a new {@link QueryResult} with extensions.
+     *
+     * @param data       the query response
+     * @param succeeded  {@code true} when the query was successful, {@code false} otherwise
+     * @param errors     the query errors, or {@code null} if there are none
+     * @param extensions the extensions of the query result, or {@code null} if there are none
+     */
+    public QueryResult(JsonObject data, boolean succeeded, List<QueryError> errors, JsonObject extensions) {
         this.data = data;
         this.succeeded = succeeded;
         this.errors = errors == null ? Collections.emptyList() : Collections.unmodifiableList(errors);
+        this.extensions = extensions == null ? new JsonObject() : extensions;
     }
 
     /**
@@ -59,6 +74,7 @@ public class QueryResult {
         List<QueryError> queryErrors = json.getJsonArray("errors", new JsonArray()).stream()
                 .map(error -> new QueryError((JsonObject) error)).collect(Collectors.toList());
         this.errors = queryErrors == null ? Collections.emptyList() : Collections.unmodifiableList(queryErrors);
+        this.extensions = json.getJsonObject("extensions", new JsonObject());
     }
 
     /**
@@ -71,6 +87,7 @@ public class QueryResult {
         this.data = other.data;
         this.succeeded = other.succeeded;
         this.errors = other.errors;
+        this.extensions = other.extensions;
     }
 
     /**
@@ -78,10 +95,14 @@ public class QueryResult {
      * {@link QueryResult}.
      */
     public JsonObject toJson() {
-        return new JsonObject()
+        JsonObject json = new JsonObject()
                 .put("data", data)
                 .put("succeeded", succeeded)
                 .put("errors", new JsonArray(errors.stream().map(QueryError::toJson).collect(Collectors.toList())));
+        if (!extensions.isEmpty()) {
+            json.put("extensions", extensions);
+        }
+        return json;
     }
 
     /**
@@ -110,6 +131,15 @@ public class QueryResult {
         return errors;
     }
 
+    /**
+     * Gets the extensions of the query result, e.g. the field-level {@code tracing} of sampled query executions.
+     *
+     * @return the extensions, or an empty json object
+     */
+    public JsonObject getExtensions() {
+        return extensions;
+    }
+
     /**
      * Determine object equality of this query result with another object.
      * <p>
@@ -128,7 +158,8 @@ public class QueryResult {
             return false;
         }
         QueryResult test = (QueryResult) other;
-        return succeeded == test.succeeded && fieldEquals(errors, test.errors) && fieldEquals(data, test.data);
+        return succeeded == test.succeeded && fieldEquals(errors, test.errors) && fieldEquals(data, test.data) &&
+                fieldEquals(extensions, test.extensions);
     }
 
     private static boolean fieldEquals(Object value1, Object value2) {
@@ -150,6 +181,7 @@ public class QueryResult {
             result = 31 * result + (data == null ? 0 : data.hashCode());
             result = 31 * result + (succeeded ? 1 : 0);
             result = 31 * result + (errors == null ? 0 : errors.hashCode());
+            result = 31 * result + (extensions == null ? 0 : extensions.hashCode());
             hashCode = result;
         }
         return result;
@@ -161,6 +193,36 @@ public class QueryResult {
     @DataObject
     public static class QueryError {
 
+        /**
+         * Error type of the query error that is returned when a persisted query hash is not known to the
+         * service proxy (see {@link Queryable#queryPersisted(String, JsonObject, io.vertx.core.Handler)}).
+         */
+        public static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+
+        /**
+         * Error type of the query error that is returned for a batch entry that could not be executed
+         * (see {@link Queryable#queryBatch(List, io.vertx.core.Handler)}).
+         */
+        public static final String EXECUTION_FAILED = "ExecutionFailed";
+
+        /**
+         * Error type of the query error that is returned when the query execution was aborted, or skipped entirely,
+         * because the deadline of the request passed.
+         */
+        public static final String QUERY_TIMEOUT = "QueryTimeout";
+
+        /**
+         * Error type of the query error that is returned when the query is rejected before execution, because it
+         * exceeds the maximum cost or depth of the schema.
+         */
+        public static final String QUERY_COST_EXCEEDED = "QueryCostExceeded";
+
+        /**
+         * Error type of the query error that is returned when the query is not executed, because the worker queue
+         * of the schema is full.
+         */
+        public static final String QUERY_REJECTED = "QueryRejected";
+
         private final String errorType;
         private final String message;
         private final List<ErrorLocation> locations;
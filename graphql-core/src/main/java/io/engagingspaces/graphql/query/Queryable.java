@@ -16,6 +16,7 @@
 
 package io.engagingspaces.graphql.query;
 
+import io.engagingspaces.graphql.query.impl.QueryableServiceProxy;
 import io.vertx.codegen.annotations.ProxyClose;
 import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.core.AsyncResult;
@@ -23,7 +24,8 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
-import io.vertx.serviceproxy.ProxyHelper;
+
+import java.util.List;
 
 /**
  * Service proxy interface that provides access to the schema definitions that are exposed by a GraphQL publisher.
@@ -50,6 +52,10 @@ public interface Queryable {
      * <p>
      * The {@link DeliveryOptions} to use on the returned message consumer must be passed as
      * plain json, because it does not provide a toJson() method (see:vhttps://github.com/eclipse/vert.x/issues/1502).
+     * <p>
+     * The proxy accepts query results that are sent using the
+     * {@link io.engagingspaces.graphql.query.impl.QueryResultMessageCodec}, so that they are passed by reference
+     * when the service is deployed in the same vert.x instance.
      *
      * @param vertx           the vert.x instance
      * @param address         the address of the service proxy
@@ -57,7 +63,7 @@ public interface Queryable {
      * @return the graphql service proxy
      */
     static Queryable createProxy(Vertx vertx, String address, JsonObject deliveryOptions) {
-        return ProxyHelper.createProxy(Queryable.class, vertx, address, new DeliveryOptions(deliveryOptions));
+        return new QueryableServiceProxy(vertx, address, new DeliveryOptions(deliveryOptions));
     }
 
     /**
@@ -83,6 +89,34 @@ public interface Queryable {
     void queryWithVariables(String graphqlQuery, JsonObject variables,
                             Handler<AsyncResult<QueryResult>> resultHandler);
 
+    /**
+     * Executes a persisted GraphQL query, identified by the SHA-256 hash of its query text, using the
+     * provided variables.
+     * <p>
+     * Query text is persisted when it is first executed using {@link #query(String, Handler)} or
+     * {@link #queryWithVariables(String, JsonObject, Handler)}. If the hash is unknown the returned
+     * {@link QueryResult} fails with a single error of type {@link QueryResult.QueryError#PERSISTED_QUERY_NOT_FOUND},
+     * after which the client should send the full query text once.
+     *
+     * @param queryHash     the hex-encoded SHA-256 hash of the graphql query (see {@link QueryDigest#sha256(String)})
+     * @param variables     the query variables
+     * @param resultHandler the result handler with the graphql query result on success, or a failure
+     */
+    void queryPersisted(String queryHash, JsonObject variables, Handler<AsyncResult<QueryResult>> resultHandler);
+
+    /**
+     * Executes a batch of GraphQL queries on the GraphQL schema proxy in a single round trip.
+     * <p>
+     * Each entry is a json object with a {@code query} string and optional {@code variables} object. The entries are
+     * executed concurrently, and on success the query results are returned in the same order as the entries.
+     * Entries that fail to execute result in a failed {@link QueryResult} with a single error of type
+     * {@link QueryResult.QueryError#EXECUTION_FAILED}, so that a single bad entry does not fail the whole batch.
+     *
+     * @param queries       the graphql queries and their variables
+     * @param resultHandler the result handler with the graphql query results on success, or a failure
+     */
+    void queryBatch(List<JsonObject> queries, Handler<AsyncResult<List<QueryResult>>> resultHandler);
+
     /**
      * Invoked when the queryable service proxy closes. Does nothing by default, but can be overridden in sub-classes.
      */
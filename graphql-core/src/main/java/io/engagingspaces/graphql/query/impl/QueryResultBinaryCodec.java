@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query.impl;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.QueryResult.ErrorLocation;
+import io.engagingspaces.graphql.query.QueryResult.QueryError;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary message codec for sending {@link QueryResult} data objects between cluster nodes.
+ * <p>
+ * The encoded query result is length-prefixed and uses a typed binary representation of the json values, in which
+ * each field name is written only once and later occurrences refer to it by index. Payloads that are larger than
+ * the compression threshold are deflated. Like the {@link QueryResultMessageCodec}, local delivery passes the
+ * query result by reference.
+ * <p>
+ * This codec is not the default codec for query results. It is selected by setting its {@link #CODEC_NAME} as codec
+ * name of the delivery options of the service proxy, or of the {@link io.engagingspaces.graphql.schema.SchemaMetadata}
+ * of the published schema (see {@link QueryableServiceHandler}).
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryResultBinaryCodec implements MessageCodec<QueryResult, QueryResult> {
+
+    /**
+     * The name of the binary query result message codec.
+     */
+    public static final String CODEC_NAME = "graphql-query-result-binary";
+
+    /**
+     * The default size in bytes above which encoded query results are compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 4096;
+
+    private static final byte PLAIN = 0;
+    private static final byte DEFLATED = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_TRUE = 6;
+    private static final byte TYPE_FALSE = 7;
+    private static final byte TYPE_OBJECT = 8;
+    private static final byte TYPE_ARRAY = 9;
+    private static final byte TYPE_JSON = 10;
+
+    private final int compressionThreshold;
+
+    /**
+     * Creates a new binary codec that compresses query results above the
+     * {@link #DEFAULT_COMPRESSION_THRESHOLD}.
+     */
+    public QueryResultBinaryCodec() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Creates a new binary codec that compresses query results above the provided threshold.
+     *
+     * @param compressionThreshold the size in bytes above which to compress, or a negative value to never compress
+     */
+    public QueryResultBinaryCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Registers the binary query result codec on the event bus of the provided vert.x instance, if not
+     * registered already.
+     *
+     * @param vertx the vert.x instance
+     */
+    public static void register(Vertx vertx) {
+        Objects.requireNonNull(vertx, "Vertx cannot be null");
+        try {
+            vertx.eventBus().registerCodec(new QueryResultBinaryCodec());
+        } catch (IllegalStateException ex) {
+            // Codec is already registered
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, QueryResult queryResult) {
+        Buffer payload = Buffer.buffer();
+        new Writer(payload).writeQueryResult(queryResult);
+
+        byte[] bytes = payload.getBytes();
+        if (compressionThreshold >= 0 && bytes.length > compressionThreshold) {
+            byte[] deflated = deflate(bytes);
+            buffer.appendInt(deflated.length + 5).appendByte(DEFLATED).appendInt(bytes.length).appendBytes(deflated);
+        } else {
+            buffer.appendInt(bytes.length + 1).appendByte(PLAIN).appendBytes(bytes);
+        }
+    }
+
+    @Override
+    public QueryResult decodeFromWire(int pos, Buffer buffer) {
+        int length = buffer.getInt(pos);
+        byte format = buffer.getByte(pos + 4);
+        if (format == DEFLATED) {
+            int inflatedLength = buffer.getInt(pos + 5);
+            byte[] inflated = inflate(buffer.getBytes(pos + 9, pos + 4 + length), inflatedLength);
+            return new Reader(Buffer.buffer(inflated), 0, inflatedLength).readQueryResult();
+        }
+        return new Reader(buffer, pos + 5, pos + 4 + length).readQueryResult();
+    }
+
+    @Override
+    public QueryResult transform(QueryResult queryResult) {
+        return queryResult;
+    }
+
+    @Override
+    public String name() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            Buffer deflated = Buffer.buffer(bytes.length / 2);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                deflated.appendBytes(chunk, 0, count);
+            }
+            return deflated.getBytes();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int inflatedLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] inflated = new byte[inflatedLength];
+            int offset = 0;
+            while (offset < inflatedLength && !inflater.finished()) {
+                int count = inflater.inflate(inflated, offset, inflatedLength - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != inflatedLength) {
+                throw new DecodeException("Truncated compressed query result");
+            }
+            return inflated;
+        } catch (DataFormatException ex) {
+            throw new DecodeException("Invalid compressed query result: " + ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes query results to a buffer, interning field names.
+     */
+    private static class Writer {
+
+        private final Buffer buffer;
+        private final Map<String, Integer> names = new HashMap<>();
+
+        Writer(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void writeQueryResult(QueryResult queryResult) {
+            buffer.appendByte(queryResult.isSucceeded() ? TYPE_TRUE : TYPE_FALSE);
+            writeValue(queryResult.getData());
+            List<QueryError> errors = queryResult.getErrors();
+            writeVarInt(errors == null ? 0 : errors.size());
+            if (errors != null) {
+                for (QueryError error : errors) {
+                    writeValue(error.getErrorType());
+                    writeValue(error.getMessage());
+                    List<ErrorLocation> locations = error.getLocations();
+                    writeVarInt(locations == null ? 0 : locations.size());
+                    if (locations != null) {
+                        for (ErrorLocation location : locations) {
+                            writeVarInt(location.getLine());
+                            writeVarInt(location.getColumn());
+                        }
+                    }
+                }
+            }
+            // Extensions are optional, so readers that do not know them ignore the remainder of the frame
+            if (!queryResult.getExtensions().isEmpty()) {
+                writeValue(queryResult.getExtensions());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(Object value) {
+            if (value == null) {
+                buffer.appendByte(TYPE_NULL);
+            } else if (value instanceof CharSequence) {
+                buffer.appendByte(TYPE_STRING);
+                writeString(value.toString());
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                buffer.appendByte(TYPE_INT).appendInt(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                buffer.appendByte(TYPE_LONG).appendLong((Long) value);
+            } else if (value instanceof Double) {
+                buffer.appendByte(TYPE_DOUBLE).appendDouble((Double) value);
+            } else if (value instanceof Float) {
+                buffer.appendByte(TYPE_FLOAT).appendFloat((Float) value);
+            } else if (value instanceof Boolean) {
+                buffer.appendByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            } else if (value instanceof JsonObject || value instanceof Map) {
+                Map<String, Object> map = value instanceof JsonObject ?
+                        ((JsonObject) value).getMap() : (Map<String, Object>) value;
+                buffer.appendByte(TYPE_OBJECT);
+                writeVarInt(map.size());
+                for (Map.Entry<String, Object> entry : map.entrySet()) {
+                    writeName(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (value instanceof JsonArray || value instanceof List) {
+                List<Object> list = value instanceof JsonArray ? ((JsonArray) value).getList() : (List<Object>) value;
+                buffer.appendByte(TYPE_ARRAY);
+                writeVarInt(list.size());
+                for (Object item : list) {
+                    writeValue(item);
+                }
+            } else {
+                buffer.appendByte(TYPE_JSON);
+                writeString(Json.encode(value));
+            }
+        }
+
+        private void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarInt(index);
+            } else {
+                writeVarInt(names.size());
+                names.put(name, names.size());
+                writeString(name);
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            buffer.appendBytes(bytes);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7f) != 0) {
+                buffer.appendByte((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            buffer.appendByte((byte) value);
+        }
+    }
+
+    /**
+     * Reads query results from a buffer that was written by the {@link Writer}.
+     */
+    private static class Reader {
+
+        private final Buffer buffer;
+        private final List<String> names = new ArrayList<>();
+        private final int end;
+        private int pos;
+
+        Reader(Buffer buffer, int pos, int end) {
+            this.buffer = buffer;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        QueryResult readQueryResult() {
+            boolean succeeded = buffer.getByte(pos++) == TYPE_TRUE;
+            Object data = readValue();
+            int errorCount = readVarInt();
+            List<QueryError> errors = new ArrayList<>(errorCount);
+            for (int index = 0; index < errorCount; index++) {
+                String errorType = (String) readValue();
+                String message = (String) readValue();
+                int locationCount = readVarInt();
+                List<ErrorLocation> locations = new ArrayList<>(locationCount);
+                for (int location = 0; location < locationCount; location++) {
+                    locations.add(new ErrorLocation(readVarInt(), readVarInt()));
+                }
+                errors.add(new QueryError(errorType, message, locations));
+            }
+            Object extensions = pos < end ? readValue() : null;
+            return new QueryResult((JsonObject) data, succeeded, errors, (JsonObject) extensions);
+        }
+
+        private Object readValue() {
+            byte type = buffer.getByte(pos++);
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_INT:
+                    pos += 4;
+                    return buffer.getInt(pos - 4);
+                case TYPE_LONG:
+                    pos += 8;
+                    return buffer.getLong(pos - 8);
+                case TYPE_DOUBLE:
+                    pos += 8;
+                    return buffer.getDouble(pos - 8);
+                case TYPE_FLOAT:
+                    pos += 4;
+                    return buffer.getFloat(pos - 4);
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_OBJECT:
+                    int fieldCount = readVarInt();
+                    Map<String, Object> object = new LinkedHashMap<>(fieldCount * 4 / 3 + 1);
+                    for (int index = 0; index < fieldCount; index++) {
+                        String name = readName();
+                        object.put(name, readValue());
+                    }
+                    return new JsonObject(object);
+                case TYPE_ARRAY:
+                    int itemCount = readVarInt();
+                    List<Object> array = new ArrayList<>(itemCount);
+                    for (int index = 0; index < itemCount; index++) {
+                        array.add(readValue());
+                    }
+                    return new JsonArray(array);
+                case TYPE_JSON:
+                    return Json.decodeValue(readString(), Object.class);
+                default:
+                    throw new DecodeException("Invalid value type in query result: " + type);
+            }
+        }
+
+        private String readName() {
+            int index = readVarInt();
+            if (index < names.size()) {
+                return names.get(index);
+            }
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+
+        private String readString() {
+            int length = readVarInt();
+            String value = buffer.getString(pos, pos + length, StandardCharsets.UTF_8.name());
+            pos += length;
+            return value;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer.getByte(pos++);
+                value |= (current & 0x7f) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+    }
+}
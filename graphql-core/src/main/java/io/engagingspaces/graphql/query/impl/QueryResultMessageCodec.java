@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query.impl;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * Message codec for sending {@link QueryResult} data objects over the event bus.
+ * <p>
+ * For local delivery the query result is passed by reference, so it is not copied at all. Receivers should therefore
+ * treat query results as read-only. For clustered delivery the query result is encoded as length-prefixed json.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryResultMessageCodec implements MessageCodec<QueryResult, QueryResult> {
+
+    /**
+     * The name of the query result message codec.
+     */
+    public static final String CODEC_NAME = "graphql-query-result";
+
+    /**
+     * Registers the query result message codec as default codec for {@link QueryResult} messages on the event bus
+     * of the provided vert.x instance, if not registered already.
+     *
+     * @param vertx the vert.x instance
+     */
+    public static void register(Vertx vertx) {
+        Objects.requireNonNull(vertx, "Vertx cannot be null");
+        try {
+            vertx.eventBus().registerDefaultCodec(QueryResult.class, new QueryResultMessageCodec());
+        } catch (IllegalStateException ex) {
+            // Codec is already registered
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, QueryResult queryResult) {
+        Buffer encoded = queryResult.toJson().toBuffer();
+        buffer.appendInt(encoded.length());
+        buffer.appendBuffer(encoded);
+    }
+
+    @Override
+    public QueryResult decodeFromWire(int pos, Buffer buffer) {
+        int length = buffer.getInt(pos);
+        pos += 4;
+        return new QueryResult(new JsonObject(buffer.slice(pos, pos + length)));
+    }
+
+    @Override
+    public QueryResult transform(QueryResult queryResult) {
+        return queryResult;
+    }
+
+    @Override
+    public String name() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
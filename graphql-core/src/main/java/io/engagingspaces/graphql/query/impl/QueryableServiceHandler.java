@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query.impl;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.QueryableVertxProxyHandler;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.engagingspaces.graphql.schema.SchemaMetadata;
+import io.engagingspaces.graphql.schema.SchemaMetrics;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ProxyHelper;
+import io.vertx.serviceproxy.ServiceException;
+
+import java.util.Objects;
+
+/**
+ * Service proxy handler for {@link Queryable} implementations that replies with {@link QueryResult} data objects
+ * directly, instead of converting them to json first.
+ * <p>
+ * Replies are encoded by the {@link QueryResultMessageCodec}, so query results are not copied when publisher and
+ * consumer share the same vert.x instance. Actions that do not return a single query result are handled by the
+ * generated {@link QueryableVertxProxyHandler}.
+ * <p>
+ * Query results are only replied as data object when the client proxy accepts them, which it indicates with the
+ * {@link #ACCEPT_HEADER} or {@link #REPLY_CODEC_HEADER} header. Other clients, such as the generated
+ * {@link io.engagingspaces.graphql.query.QueryableVertxEBProxy} or nodes without the query result codecs, receive
+ * the json representation of the query result.
+ * <p>
+ * The {@link QueryResultBinaryCodec} is used instead when it is requested by the client proxy in the
+ * {@link #REPLY_CODEC_HEADER} header, or when it is configured as codec name in the delivery options of the
+ * {@link SchemaMetadata} of the schema definition.
+ * <p>
+ * Like the generated handler, exceptions that are thrown while dispatching a query are replied as a
+ * {@link ServiceException} with failure code {@code 500}, so the client proxy does not wait for its send timeout.
+ * <p>
+ * Queries on a {@link SchemaDefinition} are executed with a deadline when the client proxy passes its send timeout
+ * in the {@link #TIMEOUT_HEADER} header, so that no work is wasted on queries of which the client no longer awaits
+ * the result.
+ * <p>
+ * The time from receiving a request for a {@link SchemaDefinition} until its reply is sent is recorded as the
+ * {@link SchemaMetrics.Phase#REQUEST} latency in the metrics of the schema definition.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryableServiceHandler extends QueryableVertxProxyHandler {
+
+    /**
+     * Message header in which the client proxy passes the name of the codec to use for query result replies.
+     */
+    public static final String REPLY_CODEC_HEADER = "replyCodec";
+
+    /**
+     * Message header in which the client proxy indicates that it accepts query result replies as data object.
+     */
+    public static final String ACCEPT_HEADER = "accept";
+
+    /**
+     * Value of the {@link #ACCEPT_HEADER} header that indicates that query results are accepted as data object.
+     */
+    public static final String ACCEPT_QUERY_RESULT = "queryResult";
+
+    /**
+     * Message header in which the client proxy passes the number of milliseconds it waits for a reply.
+     */
+    public static final String TIMEOUT_HEADER = "timeout";
+
+    private final Queryable service;
+    private final String replyCodecName;
+    private final SchemaMetrics metrics;
+
+    /**
+     * Creates a new top-level service proxy handler for the provided queryable.
+     *
+     * @param vertx   the vert.x instance
+     * @param service the queryable to invoke
+     */
+    public QueryableServiceHandler(Vertx vertx, Queryable service) {
+        this(vertx, service, null);
+    }
+
+    /**
+     * Creates a new top-level service proxy handler for the provided queryable that uses the specified
+     * codec for query result replies, unless the client proxy requests another codec.
+     *
+     * @param vertx          the vert.x instance
+     * @param service        the queryable to invoke
+     * @param replyCodecName the name of the query result codec, or {@code null} to use the default codec
+     */
+    public QueryableServiceHandler(Vertx vertx, Queryable service, String replyCodecName) {
+        super(vertx, service, true, ProxyHelper.DEFAULT_CONNECTION_TIMEOUT);
+        this.service = service;
+        this.replyCodecName = replyCodecName;
+        this.metrics = service instanceof SchemaDefinition ? ((SchemaDefinition) service).metrics() : null;
+        QueryResultMessageCodec.register(vertx);
+        QueryResultBinaryCodec.register(vertx);
+    }
+
+    /**
+     * Registers the queryable as service at the specified address, like
+     * {@link ProxyHelper#registerService(Class, Vertx, Object, String)} does.
+     * <p>
+     * If the queryable is a {@link SchemaDefinition}, the codec name of the delivery options in its metadata
+     * determines the codec of query result replies.
+     *
+     * @param vertx   the vert.x instance
+     * @param service the queryable to register
+     * @param address the address of the service
+     * @return the message consumer of the service
+     */
+    public static MessageConsumer<JsonObject> registerService(Vertx vertx, Queryable service, String address) {
+        Objects.requireNonNull(vertx, "Vertx cannot be null");
+        Objects.requireNonNull(service, "Queryable service cannot be null");
+        Objects.requireNonNull(address, "Service address cannot be null");
+        String replyCodecName = null;
+        if (service instanceof SchemaDefinition) {
+            SchemaMetadata metadata = ((SchemaDefinition) service).metadata();
+            if (metadata != null && metadata.getDeliveryOptions() != null) {
+                replyCodecName = metadata.getDeliveryOptions().getCodecName();
+            }
+        }
+        return new QueryableServiceHandler(vertx, service, replyCodecName).registerHandler(address);
+    }
+
+    @Override
+    public void handle(Message<JsonObject> msg) {
+        boolean handled;
+        try {
+            handled = handleQuery(msg);
+        } catch (Throwable t) {
+            msg.reply(new ServiceException(500, t.getMessage()));
+            throw t;
+        }
+        if (!handled) {
+            super.handle(msg);
+        }
+    }
+
+    private boolean handleQuery(Message<JsonObject> msg) {
+        String action = msg.headers().get("action");
+        JsonObject json = msg.body();
+        long deadline = deadline(msg);
+        if (deadline > 0 && service instanceof SchemaDefinition) {
+            return handleWithDeadline(msg, action, json, deadline, (SchemaDefinition) service);
+        } else if ("query".equals(action)) {
+            service.query(json.getString("graphqlQuery"), replyHandler(msg));
+        } else if ("queryWithVariables".equals(action)) {
+            service.queryWithVariables(json.getString("graphqlQuery"), json.getJsonObject("variables"),
+                    replyHandler(msg));
+        } else if ("queryPersisted".equals(action)) {
+            service.queryPersisted(json.getString("queryHash"), json.getJsonObject("variables"),
+                    replyHandler(msg));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean handleWithDeadline(Message<JsonObject> msg, String action, JsonObject json, long deadline,
+                                       SchemaDefinition definition) {
+        if ("query".equals(action) || "queryWithVariables".equals(action)) {
+            definition.queryWithVariables(json.getString("graphqlQuery"), json.getJsonObject("variables"),
+                    deadline, replyHandler(msg));
+        } else if ("queryPersisted".equals(action)) {
+            definition.queryPersisted(json.getString("queryHash"), json.getJsonObject("variables"),
+                    deadline, replyHandler(msg));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static long deadline(Message<JsonObject> msg) {
+        String timeout = msg.headers().get(TIMEOUT_HEADER);
+        if (timeout != null) {
+            try {
+                long millis = Long.parseLong(timeout);
+                if (millis > 0) {
+                    return System.currentTimeMillis() + millis;
+                }
+            } catch (NumberFormatException ex) {
+                // Ignore invalid timeouts, and execute without deadline
+            }
+        }
+        return 0;
+    }
+
+    private Handler<AsyncResult<QueryResult>> replyHandler(Message<JsonObject> msg) {
+        String codecName = msg.headers().get(REPLY_CODEC_HEADER);
+        boolean acceptsObject = codecName != null || ACCEPT_QUERY_RESULT.equals(msg.headers().get(ACCEPT_HEADER));
+        DeliveryOptions replyOptions = replyOptions(codecName == null ? replyCodecName : codecName);
+        long start = System.nanoTime();
+        return res -> {
+            reply(msg, res, acceptsObject, replyOptions);
+            if (metrics != null) {
+                metrics.record(SchemaMetrics.Phase.REQUEST, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static void reply(Message<JsonObject> msg, AsyncResult<QueryResult> res, boolean acceptsObject,
+                              DeliveryOptions replyOptions) {
+        if (res.failed()) {
+            if (res.cause() instanceof ServiceException) {
+                msg.reply(res.cause());
+            } else {
+                msg.reply(new ServiceException(-1, res.cause().getMessage()));
+            }
+        } else if (!acceptsObject) {
+            msg.reply(res.result() == null ? null : res.result().toJson());
+        } else if (replyOptions == null) {
+            msg.reply(res.result());
+        } else {
+            msg.reply(res.result(), replyOptions);
+        }
+    }
+
+    private static DeliveryOptions replyOptions(String codecName) {
+        // Other codecs are not known to handle query results, so they fall back to the default codec
+        if (QueryResultBinaryCodec.CODEC_NAME.equals(codecName) ||
+                QueryResultMessageCodec.CODEC_NAME.equals(codecName)) {
+            return new DeliveryOptions().setCodecName(codecName);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query.impl;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.QueryableVertxEBProxy;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * Event bus service proxy for {@link Queryable} services that accepts query results that were sent as
+ * {@link QueryResult} data object (see {@link QueryableServiceHandler}) as well as plain json.
+ * <p>
+ * Actions that do not return a single query result are forwarded to the generated {@link QueryableVertxEBProxy}.
+ * <p>
+ * A codec name in the delivery options of the proxy selects the codec of the query result replies, e.g. the
+ * {@link QueryResultBinaryCodec}, and is passed to the service in the
+ * {@link QueryableServiceHandler#REPLY_CODEC_HEADER} header. Requests themselves are always sent as json, with the
+ * {@link QueryableServiceHandler#ACCEPT_HEADER} header to indicate that query results may be replied as data object.
+ * <p>
+ * The send timeout is passed in the {@link QueryableServiceHandler#TIMEOUT_HEADER} header, so that the service can
+ * abort queries of which the result would arrive too late.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryableServiceProxy implements Queryable {
+
+    private final Vertx vertx;
+    private final String address;
+    private final DeliveryOptions options;
+    private final String replyCodecName;
+    private final QueryableVertxEBProxy delegate;
+    private boolean closed;
+
+    /**
+     * Creates a new service proxy to the queryable service at the specified address.
+     *
+     * @param vertx   the vert.x instance
+     * @param address the address of the service
+     * @param options the delivery options to use, or {@code null} for defaults
+     */
+    public QueryableServiceProxy(Vertx vertx, String address, DeliveryOptions options) {
+        this.vertx = vertx;
+        this.address = address;
+        this.replyCodecName = options == null ? null : options.getCodecName();
+        this.options = options == null ? null : new DeliveryOptions(options).setCodecName(null);
+        this.delegate = new QueryableVertxEBProxy(vertx, address, this.options);
+        QueryResultMessageCodec.register(vertx);
+        QueryResultBinaryCodec.register(vertx);
+    }
+
+    @Override
+    public void query(String graphqlQuery, Handler<AsyncResult<QueryResult>> resultHandler) {
+        send("query", new JsonObject().put("graphqlQuery", graphqlQuery), resultHandler);
+    }
+
+    @Override
+    public void queryWithVariables(String graphqlQuery, JsonObject variables,
+                                   Handler<AsyncResult<QueryResult>> resultHandler) {
+        send("queryWithVariables", new JsonObject()
+                .put("graphqlQuery", graphqlQuery).put("variables", variables), resultHandler);
+    }
+
+    @Override
+    public void queryPersisted(String queryHash, JsonObject variables,
+                               Handler<AsyncResult<QueryResult>> resultHandler) {
+        send("queryPersisted", new JsonObject()
+                .put("queryHash", queryHash).put("variables", variables), resultHandler);
+    }
+
+    @Override
+    public void queryBatch(List<JsonObject> queries, Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+        delegate.queryBatch(queries, resultHandler);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        closed = true;
+    }
+
+    private void send(String action, JsonObject json, Handler<AsyncResult<QueryResult>> resultHandler) {
+        if (closed) {
+            resultHandler.handle(Future.failedFuture(new IllegalStateException("Proxy is closed")));
+            return;
+        }
+        DeliveryOptions deliveryOptions = options != null ? new DeliveryOptions(options) : new DeliveryOptions();
+        deliveryOptions.addHeader("action", action);
+        deliveryOptions.addHeader(QueryableServiceHandler.ACCEPT_HEADER, QueryableServiceHandler.ACCEPT_QUERY_RESULT);
+        if (deliveryOptions.getSendTimeout() > 0) {
+            deliveryOptions.addHeader(QueryableServiceHandler.TIMEOUT_HEADER,
+                    String.valueOf(deliveryOptions.getSendTimeout()));
+        }
+        if (replyCodecName != null) {
+            deliveryOptions.addHeader(QueryableServiceHandler.REPLY_CODEC_HEADER, replyCodecName);
+        }
+        vertx.eventBus().send(address, json, deliveryOptions, res -> {
+            if (res.failed()) {
+                resultHandler.handle(Future.failedFuture(res.cause()));
+            } else {
+                resultHandler.handle(Future.succeededFuture(toQueryResult(res.result().body())));
+            }
+        });
+    }
+
+    private static QueryResult toQueryResult(Object body) {
+        if (body == null || body instanceof QueryResult) {
+            return (QueryResult) body;
+        }
+        return new QueryResult((JsonObject) body);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.QueryResult.QueryError;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces identical queries of a {@link SchemaDefinition} that are executed at the same time, so that they share a
+ * single execution.
+ * <p>
+ * The first query with a key starts the execution, and queries with the same key that arrive before it completes
+ * wait for its result. Waiting queries receive the result on the vert.x context they were submitted from, or on the
+ * thread that completes the execution when submitted outside of a context. If the shared execution times out while
+ * a waiting query still has time left before its own deadline, that query is executed separately. If the execution
+ * throws, all queries that wait for it fail with the thrown exception.
+ * <p>
+ * Every waiting query receives its own copy of the {@link QueryResult}, so that callers that modify their result do
+ * not affect each other. When the shared execution was sampled for tracing, the copies do not include the trace,
+ * because the trace only describes that execution.
+ * <p>
+ * Coalescing is only safe for read queries, so mutations must never be passed to {@link #execute}.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class InFlightQueries {
+
+    private final Map<String, InFlightQuery> queries = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Executes the query with the provided key, or waits for the result of an identical query that is in flight.
+     *
+     * @param key           the key of the query and its variables (see {@link QueryResponseCache#cacheKey})
+     * @param deadline      the deadline of the query in epoch milliseconds, or {@code 0} for no deadline
+     * @param execution     the function that executes the query with a deadline
+     * @param resultHandler the result handler with the graphql query result on success, or a failure
+     */
+    public void execute(String key, long deadline, BiConsumer<Long, Handler<AsyncResult<QueryResult>>> execution,
+                        Handler<AsyncResult<QueryResult>> resultHandler) {
+        Objects.requireNonNull(key, "Query key cannot be null");
+        InFlightQuery query = new InFlightQuery();
+        InFlightQuery existing = queries.putIfAbsent(key, query);
+        if (existing != null && existing.join(new Waiter(deadline, execution, resultHandler))) {
+            coalesced.increment();
+            return;
+        }
+        executions.increment();
+        if (existing != null) {
+            // The query in flight just completed, and its result can no longer be shared
+            execution.accept(deadline, resultHandler);
+            return;
+        }
+        try {
+            execution.accept(deadline, rh -> {
+                queries.remove(key, query);
+                query.complete(rh);
+                resultHandler.handle(rh);
+            });
+        } catch (RuntimeException ex) {
+            // Executions that throw after completing have already been removed
+            if (queries.remove(key, query)) {
+                query.complete(Future.failedFuture(ex));
+                resultHandler.handle(Future.failedFuture(ex));
+            }
+        }
+    }
+
+    /**
+     * @return the number of queries that are currently in flight
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * @return the number of queries that were executed
+     */
+    public long executionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * @return the number of queries that shared the execution of an identical query
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the JSON representation of the in-flight query statistics
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("inFlight", size())
+                .put("executions", executionCount())
+                .put("coalesced", coalescedCount());
+    }
+
+    private static boolean isTimeout(AsyncResult<QueryResult> result) {
+        return result.succeeded() && !result.result().isSucceeded() && result.result().getErrors().size() == 1 &&
+                QueryError.QUERY_TIMEOUT.equals(result.result().getErrors().get(0).getErrorType());
+    }
+
+    private static AsyncResult<QueryResult> copyOf(AsyncResult<QueryResult> result) {
+        if (result.failed()) {
+            return result;
+        }
+        QueryResult shared = result.result();
+        JsonObject extensions = shared.getExtensions().copy();
+        extensions.remove(QueryTrace.EXTENSION_KEY);
+        return Future.succeededFuture(new QueryResult(shared.getData().copy(), shared.isSucceeded(),
+                shared.getErrors(), extensions));
+    }
+
+    private static class InFlightQuery {
+
+        private List<Waiter> waiters = new ArrayList<>();
+
+        private synchronized boolean join(Waiter waiter) {
+            if (waiters == null) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        private void complete(AsyncResult<QueryResult> result) {
+            List<Waiter> completed;
+            synchronized (this) {
+                completed = waiters;
+                waiters = null;
+            }
+            completed.forEach(waiter -> waiter.deliver(copyOf(result)));
+        }
+    }
+
+    private static class Waiter {
+
+        private final long deadline;
+        private final BiConsumer<Long, Handler<AsyncResult<QueryResult>>> execution;
+        private final Handler<AsyncResult<QueryResult>> resultHandler;
+        private final Context context = Vertx.currentContext();
+
+        private Waiter(long deadline, BiConsumer<Long, Handler<AsyncResult<QueryResult>>> execution,
+                       Handler<AsyncResult<QueryResult>> resultHandler) {
+            this.deadline = deadline;
+            this.execution = execution;
+            this.resultHandler = resultHandler;
+        }
+
+        private void deliver(AsyncResult<QueryResult> result) {
+            if (context == null) {
+                handle(result);
+            } else {
+                context.runOnContext(v -> handle(result));
+            }
+        }
+
+        private void handle(AsyncResult<QueryResult> result) {
+            if (isTimeout(result) && (deadline == 0 || System.currentTimeMillis() < deadline)) {
+                execution.accept(deadline, resultHandler);
+            } else {
+                resultHandler.handle(result);
+            }
+        }
+    }
+}
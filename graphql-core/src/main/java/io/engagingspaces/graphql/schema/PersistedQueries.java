@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import io.engagingspaces.graphql.query.QueryDigest;
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded registry of persisted query text of a {@link SchemaDefinition}, keyed by the SHA-256 hash of the
+ * query text (see {@link QueryDigest#sha256(String)}).
+ * <p>
+ * When the registry is full the least recently used query is evicted. Clients that find their query evicted
+ * simply send the full query text again. A registry with a maximum size of {@code 0} does not persist any queries.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class PersistedQueries {
+
+    private final int maxSize;
+    private final Map<String, String> queries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new persisted query registry.
+     *
+     * @param maxSize the maximum number of queries to persist
+     */
+    public PersistedQueries(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum persisted query count cannot be negative");
+        }
+        this.maxSize = maxSize;
+        this.queries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > PersistedQueries.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Persists the query text under its hash, if the registry is enabled.
+     *
+     * @param graphqlQuery the graphql query
+     */
+    public void register(String graphqlQuery) {
+        Objects.requireNonNull(graphqlQuery, "GraphQL query cannot be null");
+        if (maxSize == 0) {
+            return;
+        }
+        String queryHash = QueryDigest.sha256(graphqlQuery);
+        synchronized (queries) {
+            if (queries.get(queryHash) == null) {
+                queries.put(queryHash, graphqlQuery);
+            }
+        }
+    }
+
+    /**
+     * Looks up the persisted query text by its hash.
+     *
+     * @param queryHash the hex-encoded SHA-256 hash of the query
+     * @return the graphql query, or {@code null} if not found
+     */
+    public String lookup(String queryHash) {
+        String graphqlQuery = null;
+        if (queryHash != null) {
+            synchronized (queries) {
+                graphqlQuery = queries.get(queryHash.toLowerCase());
+            }
+        }
+        if (graphqlQuery == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return graphqlQuery;
+    }
+
+    /**
+     * Removes all persisted queries. The registry statistics are retained.
+     */
+    public void clear() {
+        synchronized (queries) {
+            queries.clear();
+        }
+    }
+
+    /**
+     * @return the maximum number of persisted queries
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the current number of persisted queries
+     */
+    public int size() {
+        synchronized (queries) {
+            return queries.size();
+        }
+    }
+
+    /**
+     * @return the number of persisted query lookups that found the query text
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of persisted query lookups for unknown hashes
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the JSON representation of the registry statistics
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("maxSize", maxSize)
+                .put("size", size())
+                .put("hits", hitCount())
+                .put("misses", missCount());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+
+/**
+ * Context of a single query execution of a {@link SchemaDefinition}.
+ * <p>
+ * The query context is passed to the GraphQL engine as execution context, so that data fetchers can access it
+ * using {@link graphql.schema.DataFetchingEnvironment#getContext()}.
+ * <p>
+ * Each execution has its own registry of data loaders (see {@link SchemaDefinitionOptions#addDataLoader}), so that
+ * loads of the same execution level are coalesced into a single batch without sharing cached values between
+ * executions.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryContext {
+
+    private final long deadline;
+    private final DataLoaderRegistry dataLoaderRegistry;
+    private final QueryTrace trace;
+    private volatile boolean deadlineExceeded;
+
+    /**
+     * Creates a new query context without data loaders.
+     *
+     * @param deadline the time in epoch milliseconds at which the query execution is aborted, or {@code 0} if the
+     *                 query execution has no deadline
+     */
+    public QueryContext(long deadline) {
+        this(deadline, null);
+    }
+
+    /**
+     * Creates a new query context.
+     *
+     * @param deadline           the time in epoch milliseconds at which the query execution is aborted, or {@code 0}
+     *                           if the query execution has no deadline
+     * @param dataLoaderRegistry the data loaders of the query execution, or {@code null} if there are none
+     */
+    public QueryContext(long deadline, DataLoaderRegistry dataLoaderRegistry) {
+        this(deadline, dataLoaderRegistry, null);
+    }
+
+    QueryContext(long deadline, DataLoaderRegistry dataLoaderRegistry, QueryTrace trace) {
+        this.deadline = deadline;
+        this.dataLoaderRegistry = dataLoaderRegistry;
+        this.trace = trace;
+    }
+
+    /**
+     * @return the time in epoch milliseconds at which the query execution is aborted, or {@code 0} if none
+     */
+    public long deadline() {
+        return deadline;
+    }
+
+    /**
+     * @return {@code true} if the query execution has a deadline that has passed, {@code false} otherwise
+     */
+    public boolean isExpired() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * @return the milliseconds remaining until the deadline, or {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long remainingMillis() {
+        return deadline > 0 ? Math.max(0, deadline - System.currentTimeMillis()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the data loaders of the query execution, or {@code null} if there are none
+     */
+    public DataLoaderRegistry dataLoaderRegistry() {
+        return dataLoaderRegistry;
+    }
+
+    /**
+     * Gets the data loader of the query execution that is registered under the provided key.
+     *
+     * @param key the data loader key
+     * @param <K> the type of the keys to load
+     * @param <V> the type of the loaded values
+     * @return the data loader, or {@code null} if none is registered under the key
+     */
+    public <K, V> DataLoader<K, V> dataLoader(String key) {
+        return dataLoaderRegistry == null ? null : dataLoaderRegistry.getDataLoader(key);
+    }
+
+    /**
+     * @return {@code true} if the query execution was sampled for field-level tracing, {@code false} otherwise
+     */
+    public boolean isTraced() {
+        return trace != null;
+    }
+
+    /**
+     * @return the field-level trace of the query execution, or {@code null} if it is not traced
+     */
+    QueryTrace trace() {
+        return trace;
+    }
+
+    /**
+     * @return {@code true} if the query execution was aborted because its deadline passed, {@code false} otherwise
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    /**
+     * Marks the query execution as aborted because its deadline passed.
+     */
+    void deadlineExceeded() {
+        this.deadlineExceeded = true;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.analysis.QueryTraversal;
+import graphql.analysis.QueryVisitorEnvironment;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.language.Argument;
+import graphql.language.Directive;
+import graphql.language.Document;
+import graphql.language.Node;
+import graphql.language.OperationDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.VariableReference;
+import graphql.schema.GraphQLSchema;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the cost and depth of queries on a {@link SchemaDefinition} before they are executed, and rejects
+ * queries that exceed the limits configured in its {@link SchemaMetadata}.
+ * <p>
+ * Each field in a query costs {@code 1}, unless a different cost hint is set using
+ * {@link SchemaMetadata#setFieldCost(String, String, int, int)}. The cost of the sub-selection of a field is
+ * multiplied by the multiplier of the field hint, so that the fan-out of list fields is taken into account.
+ * <p>
+ * The analysis is performed once per parsed document, and its outcome is cached in the {@link QueryDocumentCache}
+ * together with the document. Because the variables of a query are not known at that point, fields that are
+ * conditional on a variable in a {@code @skip} or {@code @include} directive are always counted. For the same
+ * reason documents with multiple operations are rejected, as the operation to execute is not known either.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryCostAnalyzer {
+
+    /**
+     * The cost of fields that have no cost hint.
+     */
+    public static final int DEFAULT_FIELD_COST = 1;
+
+    private final GraphQLSchema schema;
+    private final int maxCost;
+    private final int maxDepth;
+    private final Map<String, int[]> fieldCosts = new HashMap<>();
+
+    /**
+     * Creates a new query cost analyzer for the schema, using the cost hints and limits of the schema metadata.
+     *
+     * @param schema   the graphql schema
+     * @param metadata the schema metadata
+     */
+    public QueryCostAnalyzer(GraphQLSchema schema, SchemaMetadata metadata) {
+        this.schema = schema;
+        this.maxCost = metadata.getMaxQueryCost();
+        this.maxDepth = metadata.getMaxQueryDepth();
+        JsonObject hints = metadata.get(SchemaMetadata.METADATA_FIELD_COSTS);
+        if (hints != null) {
+            for (String field : hints.fieldNames()) {
+                Object hint = hints.getValue(field);
+                if (hint instanceof Number) {
+                    fieldCosts.put(field, new int[]{((Number) hint).intValue(), 1});
+                } else if (hint instanceof JsonObject) {
+                    JsonObject json = (JsonObject) hint;
+                    fieldCosts.put(field, new int[]{json.getInteger("cost", DEFAULT_FIELD_COST),
+                            json.getInteger("multiplier", 1)});
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a maximum query cost or depth is configured, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return maxCost > 0 || maxDepth > 0;
+    }
+
+    /**
+     * @return the maximum query cost, or {@code 0} for no limit
+     */
+    public int maxCost() {
+        return maxCost;
+    }
+
+    /**
+     * @return the maximum query depth, or {@code 0} for no limit
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Analyzes the document of the parsed and validated query, and replaces it by an error entry if the query
+     * exceeds the configured limits.
+     *
+     * @param entry the parsed document entry
+     * @return the analyzed document entry
+     */
+    public PreparsedDocumentEntry analyze(PreparsedDocumentEntry entry) {
+        if (!isEnabled() || entry.hasErrors()) {
+            return entry;
+        }
+        if (operationCount(entry.getDocument()) > 1) {
+            return new PreparsedDocumentEntry(new QueryCostError(
+                    "Query cost cannot be analyzed for documents with multiple operations"));
+        }
+        QueryCost queryCost = calculate(entry.getDocument());
+        if (maxDepth > 0 && queryCost.depth() > maxDepth) {
+            return new PreparsedDocumentEntry(new QueryCostError(
+                    "Query depth " + queryCost.depth() + " exceeds maximum depth of " + maxDepth));
+        }
+        if (maxCost > 0 && queryCost.cost() > maxCost) {
+            return new PreparsedDocumentEntry(new QueryCostError(
+                    "Query cost " + queryCost.cost() + " exceeds maximum cost of " + maxCost));
+        }
+        return entry;
+    }
+
+    /**
+     * Calculates the cost and depth of the operation in the query document, counting fields that are conditional
+     * on variables as included.
+     *
+     * @param document the query document, holding a single operation
+     * @return the query cost
+     * @throws IllegalArgumentException if the document holds more than one operation
+     */
+    public QueryCost calculate(Document document) {
+        if (operationCount(document) > 1) {
+            throw new IllegalArgumentException("Query document must hold a single operation");
+        }
+        Map<QueryVisitorEnvironment, long[]> fields = new HashMap<>();
+        long[] totals = new long[2];
+        Map<String, Object> variables = conditionalVariables(document, new HashMap<>());
+        new QueryTraversal(schema, document, null, variables).visitPreOrder(environment -> {
+            int[] hint = fieldCosts.getOrDefault(environment.getParentType().getName() + "." +
+                    environment.getFieldDefinition().getName(), new int[]{DEFAULT_FIELD_COST, 1});
+            long[] parent = environment.getParentEnvironment() == null ? new long[]{1, 0} :
+                    fields.get(environment.getParentEnvironment());
+            long factor = parent[0];
+            long depth = parent[1] + 1;
+            fields.put(environment, new long[]{saturate(factor * Math.max(hint[1], 0)), depth});
+            totals[0] = saturate(totals[0] + factor * Math.max(hint[0], 0));
+            totals[1] = Math.max(totals[1], depth);
+        });
+        return new QueryCost((int) totals[0], (int) totals[1]);
+    }
+
+    /**
+     * Collects the variables that are used as condition of {@code @skip} and {@code @include} directives, with the
+     * values that include the fields. A variable that is used by both directives is included.
+     */
+    private static Map<String, Object> conditionalVariables(Node node, Map<String, Object> variables) {
+        if (node instanceof Directive) {
+            Directive directive = (Directive) node;
+            for (Argument argument : directive.getArguments()) {
+                if ("if".equals(argument.getName()) && argument.getValue() instanceof VariableReference) {
+                    String name = ((VariableReference) argument.getValue()).getName();
+                    if ("include".equals(directive.getName())) {
+                        variables.put(name, Boolean.TRUE);
+                    } else if ("skip".equals(directive.getName())) {
+                        variables.putIfAbsent(name, Boolean.FALSE);
+                    }
+                }
+            }
+        }
+        for (Node child : node.getChildren()) {
+            conditionalVariables(child, variables);
+        }
+        return variables;
+    }
+
+    private static long operationCount(Document document) {
+        return document.getDefinitions().stream().filter(definition -> definition instanceof OperationDefinition)
+                .count();
+    }
+
+    private static long saturate(long value) {
+        return Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The cost and depth of a query.
+     */
+    public static class QueryCost {
+
+        private final int cost;
+        private final int depth;
+
+        QueryCost(int cost, int depth) {
+            this.cost = cost;
+            this.depth = depth;
+        }
+
+        /**
+         * @return the total cost of the fields in the query
+         */
+        public int cost() {
+            return cost;
+        }
+
+        /**
+         * @return the maximum depth of nested fields in the query
+         */
+        public int depth() {
+            return depth;
+        }
+    }
+
+    /**
+     * GraphQL error of a query that exceeds the configured cost or depth limits.
+     */
+    static class QueryCostError implements GraphQLError {
+
+        private final String message;
+
+        QueryCostError(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public List<SourceLocation> getLocations() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public ErrorType getErrorType() {
+            return ErrorType.ValidationError;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionStrategyParameters;
+import org.dataloader.DataLoaderRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Instrumentation that dispatches the data loaders in the {@link QueryContext} of a query execution whenever the
+ * execution cannot make further progress without the values that were requested from them.
+ * <p>
+ * The engine starts a nested execution strategy for every object value it completes. Dispatching each time one of
+ * them ends would pass the keys of every object to the batch loader separately, so instead the loaders are only
+ * dispatched once none of the strategies of the execution is still fetching fields. All loads of an execution level
+ * are then coalesced into a single batch.
+ * <p>
+ * Unlike the data loader instrumentation of the GraphQL engine the registry is not fixed when the engine is built,
+ * so that every execution has its own data loaders and batches are never shared between executions. Note that
+ * batching requires an execution strategy that does not wait for field values before ending, such as the default
+ * asynchronous strategy.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class QueryDataLoaderInstrumentation extends NoOpInstrumentation {
+
+    @Override
+    public InstrumentationState createState() {
+        return new DispatchState();
+    }
+
+    @Override
+    public InstrumentationContext<CompletableFuture<ExecutionResult>> beginExecutionStrategy(
+            InstrumentationExecutionStrategyParameters parameters) {
+        Object context = parameters.getExecutionContext().getContext();
+        DataLoaderRegistry registry = context instanceof QueryContext ?
+                ((QueryContext) context).dataLoaderRegistry() : null;
+        if (registry == null) {
+            return super.beginExecutionStrategy(parameters);
+        }
+        DispatchState state = parameters.getInstrumentationState();
+        state.activeStrategies.incrementAndGet();
+        return (result, throwable) -> {
+            if (state.activeStrategies.decrementAndGet() == 0) {
+                registry.dispatchAll();
+            }
+        };
+    }
+
+    private static class DispatchState implements InstrumentationState {
+
+        private final AtomicInteger activeStrategies = new AtomicInteger();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.execution.AbortExecutionException;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+
+/**
+ * Instrumentation that stops resolving fields of a query execution once the deadline in its {@link QueryContext}
+ * has passed.
+ * <p>
+ * Fields that are being resolved when the deadline passes run to completion, but any further data fetchers of the
+ * execution are aborted.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class QueryDeadlineInstrumentation extends NoOpInstrumentation {
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher,
+                                                InstrumentationFieldFetchParameters parameters) {
+        return environment -> {
+            Object context = environment.getContext();
+            if (context instanceof QueryContext && ((QueryContext) context).isExpired()) {
+                ((QueryContext) context).deadlineExceeded();
+                throw new AbortExecutionException("Query deadline exceeded");
+            }
+            return dataFetcher.get(environment);
+        };
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.engagingspaces.graphql.query.QueryDigest;
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of parsed and validated query documents of a {@link SchemaDefinition}.
+ * <p>
+ * Documents are keyed by the hash of the normalized query text (see {@link QueryDigest#normalizedHash(String)}),
+ * so queries that only differ in formatting share the same entry. When the cache is full the least recently
+ * used document is evicted. A cache with a maximum size of {@code 0} does not store any documents.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryDocumentCache implements PreparsedDocumentProvider {
+
+    private final int maxSize;
+    private final Map<String, PreparsedDocumentEntry> documents;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new query document cache.
+     *
+     * @param maxSize the maximum number of documents to cache
+     */
+    public QueryDocumentCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum document cache size cannot be negative");
+        }
+        this.maxSize = maxSize;
+        this.documents = new LinkedHashMap<String, PreparsedDocumentEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+                if (size() > QueryDocumentCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the parsed and validated document of the query from the cache, or computes it on a cache miss.
+     *
+     * @param query           the graphql query
+     * @param computeFunction the function that parses and validates the query
+     * @return the parsed document entry
+     */
+    @Override
+    public PreparsedDocumentEntry get(String query, Function<String, PreparsedDocumentEntry> computeFunction) {
+        if (maxSize == 0) {
+            misses.increment();
+            return computeFunction.apply(query);
+        }
+        String key = QueryDigest.normalizedHash(query);
+        PreparsedDocumentEntry entry;
+        synchronized (documents) {
+            entry = documents.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        entry = computeFunction.apply(query);
+        synchronized (documents) {
+            documents.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Removes all documents from the cache. The cache statistics are retained.
+     */
+    public void clear() {
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    /**
+     * @return the maximum number of documents in the cache
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the current number of documents in the cache
+     */
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    /**
+     * @return the number of queries whose document was found in the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries that had to be parsed and validated
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of documents that were evicted from the cache
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the JSON representation of the cache statistics
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("maxSize", maxSize)
+                .put("size", size())
+                .put("hits", hitCount())
+                .put("misses", missCount())
+                .put("evictions", evictionCount());
+    }
+}
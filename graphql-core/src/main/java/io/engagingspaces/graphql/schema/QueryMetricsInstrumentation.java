@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.engagingspaces.graphql.schema.SchemaMetrics.Phase;
+
+import java.util.List;
+
+/**
+ * Instrumentation that records the latencies of the parse, validate and execute phases of query executions in the
+ * {@link SchemaMetrics} of a schema definition.
+ * <p>
+ * Queries whose document is found in the document cache are not parsed and validated again, so for these only the
+ * execute phase is recorded.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class QueryMetricsInstrumentation extends NoOpInstrumentation {
+
+    private final SchemaMetrics metrics;
+
+    QueryMetricsInstrumentation(SchemaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public InstrumentationState createState() {
+        return new PhaseState();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters) {
+        PhaseState state = parameters.getInstrumentationState();
+        long start = System.nanoTime();
+        return (result, throwable) -> {
+            long total = System.nanoTime() - start;
+            metrics.record(Phase.TOTAL, total);
+            metrics.record(Phase.EXECUTE, total - state.parseAndValidate);
+        };
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters) {
+        return phase(Phase.PARSE, parameters.getInstrumentationState());
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(
+            InstrumentationValidationParameters parameters) {
+        return phase(Phase.VALIDATE, parameters.getInstrumentationState());
+    }
+
+    private <T> InstrumentationContext<T> phase(Phase phase, PhaseState state) {
+        long start = System.nanoTime();
+        return (result, throwable) -> {
+            long elapsed = System.nanoTime() - start;
+            metrics.record(phase, elapsed);
+            state.parseAndValidate += elapsed;
+        };
+    }
+
+    private static class PhaseState implements InstrumentationState {
+
+        // Parsing and validation happen on the thread that starts the execution
+        private long parseAndValidate;
+    }
+}
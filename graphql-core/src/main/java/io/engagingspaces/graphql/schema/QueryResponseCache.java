@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import io.engagingspaces.graphql.query.QueryDigest;
+import io.engagingspaces.graphql.query.QueryResult;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of successful query results of a {@link SchemaDefinition}.
+ * <p>
+ * Results are keyed by the hash of the normalized query text and the canonical form of the query variables, so
+ * requests that only differ in formatting or in the order of variables share the same entry. Entries expire after
+ * the configured time to live, and the least recently used entry is evicted when the cache is full. A cache with a
+ * maximum size of {@code 0} does not store any results.
+ * <p>
+ * The cache stores a copy of each result, and returns a new copy on every hit, so that callers that modify their
+ * result do not affect the responses of other requests.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryResponseCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, CachedResponse> responses;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a new query response cache.
+     *
+     * @param maxSize    the maximum number of results to cache
+     * @param ttlMillis  the time in milliseconds after which cached results expire
+     */
+    public QueryResponseCache(int maxSize, long ttlMillis) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum response cache size cannot be negative");
+        }
+        if (ttlMillis < 1) {
+            throw new IllegalArgumentException("Response cache time to live must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                if (size() > QueryResponseCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates the cache key of the query and its variables.
+     *
+     * @param graphqlQuery the graphql query
+     * @param variables    the query variables, or {@code null} if there are none
+     * @return the cache key
+     */
+    public static String cacheKey(String graphqlQuery, JsonObject variables) {
+        StringBuilder key = new StringBuilder(QueryDigest.normalize(graphqlQuery)).append('\n');
+        if (variables != null) {
+            appendCanonical(key, variables.getMap());
+        }
+        return QueryDigest.sha256(key.toString());
+    }
+
+    /**
+     * @return {@code true} if the cache stores results, {@code false} if it is disabled
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Gets the cached result with the provided key.
+     *
+     * @param key the cache key (see {@link #cacheKey(String, JsonObject)})
+     * @return a copy of the cached result, or {@code null} if not cached or expired
+     */
+    public QueryResult get(String key) {
+        CachedResponse response;
+        synchronized (responses) {
+            response = responses.get(key);
+            if (response != null && System.nanoTime() - response.created >= ttlNanos) {
+                responses.remove(key);
+                expirations.increment();
+                response = null;
+            }
+        }
+        if (response == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(response.result);
+    }
+
+    /**
+     * Gets the generation of the cache, which changes whenever the cache is invalidated.
+     * <p>
+     * The generation is taken before the query is executed and passed to {@link #put(String, QueryResult, long)},
+     * so that results of queries that overlap with a mutation are never cached.
+     *
+     * @return the current generation
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the result under the provided key, unless the cache was invalidated since the generation was taken.
+     *
+     * @param key        the cache key (see {@link #cacheKey(String, JsonObject)})
+     * @param result     the query result
+     * @param generation the generation of the cache before the query was executed
+     */
+    public void put(String key, QueryResult result, long generation) {
+        if (maxSize == 0) {
+            return;
+        }
+        synchronized (responses) {
+            if (generation == this.generation.get()) {
+                responses.put(key, new CachedResponse(copyOf(result), System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Removes all results from the cache. The cache statistics are retained.
+     */
+    public void invalidate() {
+        synchronized (responses) {
+            generation.incrementAndGet();
+            responses.clear();
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * @return the maximum number of results in the cache
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the current number of results in the cache, including expired results that were not yet removed
+     */
+    public int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    /**
+     * @return the number of queries whose result was found in the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries that had to be executed
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that were found in the cache, or {@code 0} if there were no lookups
+     */
+    public double hitRatio() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return the number of results that were evicted from the cache because it was full
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of results that were removed from the cache because they expired
+     */
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return the number of times the cache was invalidated
+     */
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return the JSON representation of the cache statistics
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("maxSize", maxSize)
+                .put("ttl", TimeUnit.NANOSECONDS.toMillis(ttlNanos))
+                .put("size", size())
+                .put("hits", hitCount())
+                .put("misses", missCount())
+                .put("hitRatio", hitRatio())
+                .put("evictions", evictionCount())
+                .put("expirations", expirationCount())
+                .put("invalidations", invalidationCount());
+    }
+
+    private static QueryResult copyOf(QueryResult result) {
+        return new QueryResult(result.getData().copy(), result.isSucceeded(), result.getErrors(),
+                result.getExtensions().copy());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendCanonical(StringBuilder key, Object value) {
+        if (value instanceof JsonObject) {
+            value = ((JsonObject) value).getMap();
+        } else if (value instanceof JsonArray) {
+            value = ((JsonArray) value).getList();
+        }
+        if (value instanceof Map) {
+            key.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : new TreeMap<>((Map<String, Object>) value).entrySet()) {
+                if (!first) {
+                    key.append(',');
+                }
+                first = false;
+                appendCanonical(key, entry.getKey());
+                key.append(':');
+                appendCanonical(key, entry.getValue());
+            }
+            key.append('}');
+        } else if (value instanceof List) {
+            key.append('[');
+            boolean first = true;
+            for (Object element : (List<?>) value) {
+                if (!first) {
+                    key.append(',');
+                }
+                first = false;
+                appendCanonical(key, element);
+            }
+            key.append(']');
+        } else if (value instanceof CharSequence) {
+            key.append('"');
+            String text = value.toString();
+            for (int index = 0; index < text.length(); index++) {
+                char c = text.charAt(index);
+                if (c == '"' || c == '\\') {
+                    key.append('\\');
+                }
+                key.append(c);
+            }
+            key.append('"');
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+                value instanceof Byte) {
+            // Integral values are equal regardless of their boxed type after decoding
+            key.append(((Number) value).longValue());
+        } else {
+            key.append(value);
+        }
+    }
+
+    private static class CachedResponse {
+
+        private final QueryResult result;
+        private final long created;
+
+        private CachedResponse(QueryResult result, long created) {
+            this.result = result;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.execution.ExecutionTypeInfo;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLType;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Field-level trace of a single sampled query execution.
+ * <p>
+ * The trace is returned in the {@code tracing} extension of the query result, in a format that resembles the
+ * Apollo tracing format: the start time of the execution in epoch milliseconds, its duration in nanoseconds, and for
+ * every resolved field its path, parent type, return type, start offset and duration in nanoseconds.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class QueryTrace {
+
+    /**
+     * The key of the trace in the extensions of the query result.
+     */
+    static final String EXTENSION_KEY = "tracing";
+
+    private final long startTime = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Queue<JsonObject> resolvers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @return the current time in nanoseconds, relative to the start of the execution
+     */
+    long offset() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records the resolution of a field.
+     *
+     * @param environment the data fetching environment of the field
+     * @param startOffset the start offset of the data fetcher in nanoseconds
+     */
+    void record(DataFetchingEnvironment environment, long startOffset) {
+        long duration = offset() - startOffset;
+        ExecutionTypeInfo typeInfo = environment.getFieldTypeInfo();
+        GraphQLType parentType = environment.getParentType();
+        resolvers.add(new JsonObject()
+                .put("path", new JsonArray(typeInfo.getPath().toList()))
+                .put("parentType", parentType == null ? null : parentType.getName())
+                .put("fieldName", environment.getFieldDefinition().getName())
+                .put("returnType", typeInfo.toAst())
+                .put("startOffset", startOffset)
+                .put("duration", duration));
+    }
+
+    /**
+     * @return the JSON representation of the trace, completed at the current time
+     */
+    JsonObject toJson() {
+        return new JsonObject()
+                .put("version", 1)
+                .put("startTime", startTime)
+                .put("duration", offset())
+                .put("execution", new JsonObject().put("resolvers", new JsonArray(new ArrayList<>(resolvers))));
+    }
+}
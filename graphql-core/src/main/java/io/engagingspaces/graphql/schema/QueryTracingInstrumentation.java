@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Instrumentation that records the start offset and duration of every resolved field of query executions that
+ * carry a {@link QueryTrace} in their {@link QueryContext}, and adds the trace to the extensions of the result.
+ * <p>
+ * Executions that are not sampled for tracing only pay for a check of their query context per field.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class QueryTracingInstrumentation extends NoOpInstrumentation {
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher,
+                                                InstrumentationFieldFetchParameters parameters) {
+        return environment -> {
+            QueryTrace trace = trace(environment.getContext());
+            if (trace == null) {
+                return dataFetcher.get(environment);
+            }
+            long startOffset = trace.offset();
+            Object value;
+            try {
+                value = dataFetcher.get(environment);
+            } catch (RuntimeException ex) {
+                trace.record(environment, startOffset);
+                throw ex;
+            }
+            if (value instanceof CompletionStage) {
+                // Asynchronous fields are resolved when their value completes
+                ((CompletionStage<?>) value).whenComplete((result, error) -> trace.record(environment, startOffset));
+            } else {
+                trace.record(environment, startOffset);
+            }
+            return value;
+        };
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters) {
+        QueryTrace trace = trace(parameters.getContext());
+        if (trace == null) {
+            return CompletableFuture.completedFuture(executionResult);
+        }
+        Map<Object, Object> extensions = new LinkedHashMap<>();
+        if (executionResult.getExtensions() != null) {
+            extensions.putAll(executionResult.getExtensions());
+        }
+        extensions.put(QueryTrace.EXTENSION_KEY, trace.toJson());
+        return CompletableFuture.completedFuture(
+                new ExecutionResultImpl(executionResult.getData(), executionResult.getErrors(), extensions));
+    }
+
+    private static QueryTrace trace(Object context) {
+        return context instanceof QueryContext ? ((QueryContext) context).trace() : null;
+    }
+}
@@ -20,22 +20,37 @@ import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.GraphQLError;
+import graphql.execution.ExecutorServiceExecutionStrategy;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLSchema;
+import io.engagingspaces.graphql.query.QueryDigest;
 import io.engagingspaces.graphql.query.QueryResult;
 import io.engagingspaces.graphql.query.QueryResult.ErrorLocation;
 import io.engagingspaces.graphql.query.QueryResult.QueryError;
 import io.engagingspaces.graphql.query.Queryable;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -48,8 +63,22 @@ public class SchemaDefinition implements Queryable {
     private final String schemaName;
     private final SchemaMetadata schemaMetadata;
     private final String serviceAddress;
+    private final QueryDocumentCache documentCache;
+    private final PersistedQueries persistedQueries;
+    private final QueryCostAnalyzer costAnalyzer;
+    private final QueryResponseCache responseCache;
+    private final InFlightQueries inFlightQueries = new InFlightQueries();
+    private final SchemaMetrics metrics;
+    private final GraphQL graphQL;
+    private final Map<String, Supplier<DataLoader<?, ?>>> dataLoaders = new ConcurrentHashMap<>();
+    private final AtomicInteger workerQueueDepth = new AtomicInteger();
+    private volatile WorkerExecutor workerExecutor;
 
     protected SchemaDefinition(GraphQLSchema schema, SchemaMetadata metadata) {
+        this(schema, metadata, null);
+    }
+
+    protected SchemaDefinition(GraphQLSchema schema, SchemaMetadata metadata, SchemaDefinitionOptions options) {
         this.schema = schema;
         this.schemaMetadata = metadata == null ? SchemaMetadata.create() : metadata;
         this.schemaName = schemaMetadata.getSchemaName() == null || schemaMetadata.getSchemaName().isEmpty() ?
@@ -64,12 +93,36 @@ public class SchemaDefinition implements Queryable {
                 !schema.isSupportingMutations() ? Collections.emptyList() :
                         schema.getMutationType().getFieldDefinitions().stream()
                                 .map(GraphQLFieldDefinition::getName).collect(Collectors.toList()));
+
+        SchemaDefinitionOptions engineOptions = options == null ? SchemaDefinitionOptions.create() : options;
+        this.documentCache = new QueryDocumentCache(engineOptions.getDocumentCacheSize());
+        this.persistedQueries = new PersistedQueries(engineOptions.getPersistedQueriesSize());
+        this.costAnalyzer = new QueryCostAnalyzer(schema, schemaMetadata);
+        this.responseCache = new QueryResponseCache(schemaMetadata.getResponseCacheSize(),
+                schemaMetadata.getResponseCacheTtl());
+        this.dataLoaders.putAll(engineOptions.getDataLoaders());
+        this.metrics = new SchemaMetrics(schemaName);
+        this.graphQL = createGraphQL(schema, engineOptions, metrics, (query, computeFunction) ->
+                documentCache.get(query, q -> costAnalyzer.analyze(computeFunction.apply(q))));
     }
 
     public static SchemaDefinition createInstance(GraphQLSchema schema, SchemaMetadata metadata) {
         return new SchemaDefinition(schema, metadata);
     }
 
+    /**
+     * Creates a new schema definition with a GraphQL execution engine that is configured using the provided options.
+     *
+     * @param schema   the graphql schema
+     * @param metadata the schema metadata, or {@code null} for default metadata
+     * @param options  the options for the execution engine, or {@code null} for default options
+     * @return the schema definition
+     */
+    public static SchemaDefinition createInstance(GraphQLSchema schema, SchemaMetadata metadata,
+                                                  SchemaDefinitionOptions options) {
+        return new SchemaDefinition(schema, metadata, options);
+    }
+
     /**
      * Executes the GraphQL query on the GraphQL schema proxy.
      * <p>
@@ -88,6 +141,9 @@ public class SchemaDefinition implements Queryable {
 
     /**
      * Executes the GraphQL query on the GraphQL schema proxy using the provided variables.
+     * <p>
+     * The query text is persisted, so that subsequent executions can use
+     * {@link #queryPersisted(String, JsonObject, Handler)}.
      *
      * @param graphqlQuery  the graphql query
      * @param resultHandler the result handler with the graphql query result on success, or a failure
@@ -95,13 +151,108 @@ public class SchemaDefinition implements Queryable {
     @Override
     public void queryWithVariables(String graphqlQuery, JsonObject variables,
                                     Handler<AsyncResult<QueryResult>> resultHandler) {
+        queryWithVariables(graphqlQuery, variables, 0, resultHandler);
+    }
+
+    /**
+     * Executes the GraphQL query on the GraphQL schema proxy using the provided variables, and aborts the execution
+     * when the deadline passes (see {@link #queryNonBlocking(String, JsonObject, long, Handler)}).
+     *
+     * @param graphqlQuery  the graphql query
+     * @param variables     the variables to pass to the query
+     * @param deadline      the deadline in epoch milliseconds, or {@code 0} for no deadline
+     * @param resultHandler the result handler with the graphql query result on success, or a failure
+     */
+    public void queryWithVariables(String graphqlQuery, JsonObject variables, long deadline,
+                                   Handler<AsyncResult<QueryResult>> resultHandler) {
         try {
-            queryNonBlocking(graphqlQuery, variables, resultHandler);
+            Objects.requireNonNull(graphqlQuery, "GraphQL query cannot be null");
+            persistedQueries.register(graphqlQuery);
+            queryNonBlocking(graphqlQuery, variables, deadline, resultHandler);
         } catch (RuntimeException ex) {
             resultHandler.handle(Future.failedFuture(ex));
         }
     }
 
+    /**
+     * Executes the persisted GraphQL query with the provided hash using the provided variables.
+     * <p>
+     * If the query hash is unknown a failed {@link QueryResult} is returned with a single error of type
+     * {@link QueryError#PERSISTED_QUERY_NOT_FOUND}.
+     *
+     * @param queryHash     the hex-encoded SHA-256 hash of the graphql query
+     * @param variables     the query variables
+     * @param resultHandler the result handler with the graphql query result on success, or a failure
+     */
+    @Override
+    public void queryPersisted(String queryHash, JsonObject variables,
+                               Handler<AsyncResult<QueryResult>> resultHandler) {
+        queryPersisted(queryHash, variables, 0, resultHandler);
+    }
+
+    /**
+     * Executes the persisted GraphQL query with the provided hash using the provided variables, and aborts the
+     * execution when the deadline passes (see {@link #queryNonBlocking(String, JsonObject, long, Handler)}).
+     *
+     * @param queryHash     the hex-encoded SHA-256 hash of the graphql query
+     * @param variables     the query variables
+     * @param deadline      the deadline in epoch milliseconds, or {@code 0} for no deadline
+     * @param resultHandler the result handler with the graphql query result on success, or a failure
+     */
+    public void queryPersisted(String queryHash, JsonObject variables, long deadline,
+                               Handler<AsyncResult<QueryResult>> resultHandler) {
+        String graphqlQuery = persistedQueries.lookup(queryHash);
+        if (graphqlQuery == null) {
+            resultHandler.handle(Future.succeededFuture(new QueryResult(new JsonObject(), false,
+                    Collections.singletonList(new QueryError(QueryError.PERSISTED_QUERY_NOT_FOUND,
+                            "Persisted query not found: " + queryHash, null)))));
+            return;
+        }
+        try {
+            queryNonBlocking(graphqlQuery, variables, deadline, resultHandler);
+        } catch (RuntimeException ex) {
+            resultHandler.handle(Future.failedFuture(ex));
+        }
+    }
+
+    /**
+     * Executes a batch of GraphQL queries on the GraphQL schema proxy.
+     * <p>
+     * All entries are started without waiting for each other, so they run concurrently when the engine is
+     * configured with an asynchronous execution strategy (see {@link SchemaDefinitionOptions#setExecutorService}).
+     *
+     * @param queries       the graphql queries and their variables
+     * @param resultHandler the result handler with the graphql query results on success, or a failure
+     */
+    @Override
+    public void queryBatch(List<JsonObject> queries, Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+        if (queries == null || queries.isEmpty()) {
+            resultHandler.handle(Future.succeededFuture(Collections.emptyList()));
+            return;
+        }
+        QueryResult[] results = new QueryResult[queries.size()];
+        AtomicInteger remaining = new AtomicInteger(results.length);
+        for (int index = 0; index < results.length; index++) {
+            int position = index;
+            JsonObject entry = batchEntry(queries, index);
+            Handler<AsyncResult<QueryResult>> entryHandler = rh -> {
+                results[position] = rh.succeeded() ? rh.result() : new QueryResult(new JsonObject(), false,
+                        Collections.singletonList(new QueryError(QueryError.EXECUTION_FAILED,
+                                rh.cause().getMessage(), null)));
+                if (remaining.decrementAndGet() == 0) {
+                    resultHandler.handle(Future.succeededFuture(Arrays.asList(results)));
+                }
+            };
+            if (entry == null || !(entry.getValue("query") instanceof String)) {
+                entryHandler.handle(Future.failedFuture("Batch entry " + index + " has no graphql query"));
+            } else if (entry.getValue("variables") != null && !(entry.getValue("variables") instanceof JsonObject)) {
+                entryHandler.handle(Future.failedFuture("Batch entry " + index + " has invalid variables"));
+            } else {
+                queryWithVariables(entry.getString("query"), entry.getJsonObject("variables"), entryHandler);
+            }
+        }
+    }
+
     /**
      * Gets the GraphQL schema that is associated with this service proxy.
      * <p>
@@ -142,8 +293,95 @@ public class SchemaDefinition implements Queryable {
         return schemaMetadata;
     }
 
+    /**
+     * Gets the cache of parsed and validated query documents, e.g. to inspect its hit and miss counters.
+     *
+     * @return the query document cache
+     */
+    public QueryDocumentCache documentCache() {
+        return documentCache;
+    }
+
+    /**
+     * Gets the analyzer that rejects queries exceeding the cost and depth limits in the schema metadata.
+     *
+     * @return the query cost analyzer
+     */
+    public QueryCostAnalyzer costAnalyzer() {
+        return costAnalyzer;
+    }
+
+    /**
+     * Gets the cache of query results, e.g. to inspect its hit ratio or to invalidate it after the data behind the
+     * schema changed without a mutation.
+     *
+     * @return the query response cache
+     */
+    public QueryResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Gets the queries that are in flight, e.g. to inspect how many queries were coalesced.
+     *
+     * @return the in-flight queries
+     */
+    public InFlightQueries inFlightQueries() {
+        return inFlightQueries;
+    }
+
+    /**
+     * Gets the execution metrics of the schema definition.
+     *
+     * @return the schema metrics
+     */
+    public SchemaMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets a snapshot of the execution metrics and the cache statistics of the schema definition.
+     *
+     * @return the JSON representation of the statistics
+     */
+    public JsonObject statistics() {
+        return new JsonObject()
+                .put("metrics", metrics.toJson())
+                .put("documentCache", documentCache.toJson())
+                .put("responseCache", responseCache.toJson())
+                .put("inFlightQueries", inFlightQueries.toJson())
+                .put("persistedQueries", persistedQueries.toJson())
+                .put("workerQueueDepth", workerQueueDepth());
+    }
+
+    /**
+     * Gets the registry of persisted queries that can be executed by hash.
+     *
+     * @return the persisted queries
+     */
+    public PersistedQueries persistedQueries() {
+        return persistedQueries;
+    }
+
+    /**
+     * Registers a factory for a data loader that is created for every query execution, in addition to the data
+     * loaders in the {@link SchemaDefinitionOptions} (see {@link SchemaDefinitionOptions#addDataLoader}).
+     *
+     * @param key     the data loader key
+     * @param factory the factory that creates a new data loader
+     * @return the schema definition, for fluent usage
+     */
+    public SchemaDefinition registerDataLoader(String key, Supplier<DataLoader<?, ?>> factory) {
+        Objects.requireNonNull(key, "Data loader key cannot be null");
+        Objects.requireNonNull(factory, "Data loader factory cannot be null");
+        dataLoaders.put(key, factory);
+        return this;
+    }
+
     /**
      * Executes a blocking call to the GraphQL query processor and executes the query.
+     * <p>
+     * The response cache is not consulted, but executing a mutation invalidates it.
      *
      * @param graphqlQuery the graphql query
      * @param variables    the variables to pass to the query
@@ -151,49 +389,186 @@ public class SchemaDefinition implements Queryable {
      */
     public QueryResult queryBlocking(String graphqlQuery, JsonObject variables) {
         Objects.requireNonNull(graphqlQuery, "GraphQL query cannot be null");
-        GraphQL graphQL = new GraphQL(schema());
-        ExecutionResult result;
-        if (variables == null) {
-            result = graphQL.execute(graphqlQuery);
-        } else {
-            result = graphQL.execute(graphqlQuery, (Object) null, variables.getMap());
+        boolean mutation = responseCache.isEnabled() && QueryDigest.isMutation(graphqlQuery);
+        try {
+            return convertToQueryResult(graphQL.execute(executionInput(graphqlQuery, variables, queryContext(0))));
+        } finally {
+            if (mutation) {
+                responseCache.invalidate();
+            }
         }
-        return convertToQueryResult(result);
     }
-    
+
     /**
      * Executes a non blocking call to the GraphQL query processor and executes the query.
      *
-     * @param graphqlQuery the graphql query
-     * @param variables    the variables to pass to the query
-     * @param resultHandler vertx result handler 
+     * @param graphqlQuery  the graphql query
+     * @param variables     the variables to pass to the query
+     * @param resultHandler vertx result handler
      */
-    public void queryNonBlocking(String graphqlQuery, JsonObject variables, Handler<AsyncResult<QueryResult>> resultHandler) {
+    public void queryNonBlocking(String graphqlQuery, JsonObject variables,
+                                 Handler<AsyncResult<QueryResult>> resultHandler) {
+        queryNonBlocking(graphqlQuery, variables, 0, resultHandler);
+    }
+
+    /**
+     * Executes a non blocking call to the GraphQL query processor and executes the query, unless the deadline
+     * has already passed.
+     * <p>
+     * If a response cache is configured in the schema metadata, cached results of identical queries are returned
+     * without executing the query again. Executing a mutation invalidates the cache. If query coalescing is enabled
+     * in the schema metadata, identical read queries that are in flight share a single execution.
+     * <p>
+     * If a worker pool is configured in the schema metadata and the call is made on a vert.x context, the query is
+     * executed on the worker pool, and the result handler is invoked on the calling context. Queries that are still
+     * waiting for a worker thread when their deadline passes are not executed.
+     * <p>
+     * Once the deadline passes no further fields are resolved, and the query result fails with a single error of type
+     * {@link QueryError#QUERY_TIMEOUT}. Fields that are being resolved at that moment still run to completion.
+     *
+     * @param graphqlQuery  the graphql query
+     * @param variables     the variables to pass to the query
+     * @param deadline      the deadline in epoch milliseconds, or {@code 0} for no deadline
+     * @param resultHandler vertx result handler
+     */
+    public void queryNonBlocking(String graphqlQuery, JsonObject variables, long deadline,
+                                 Handler<AsyncResult<QueryResult>> resultHandler) {
         Objects.requireNonNull(graphqlQuery, "GraphQL query cannot be null");
-        
-        GraphQL graphQL = new GraphQL.Builder(schema()).build();
-        
-        ExecutionInput.Builder asyncExecBuilder = ExecutionInput.newExecutionInput().query(graphqlQuery);
-        if (variables != null) {
-        		asyncExecBuilder.variables(variables.getMap());
+
+        boolean caching = responseCache.isEnabled();
+        boolean coalescing = schemaMetadata.isQueryCoalescing();
+        if (!caching && !coalescing) {
+            dispatch(graphqlQuery, variables, deadline, resultHandler);
+            return;
+        }
+        if (QueryDigest.isMutation(graphqlQuery)) {
+            dispatch(graphqlQuery, variables, deadline, !caching ? resultHandler : rh -> {
+                responseCache.invalidate();
+                resultHandler.handle(rh);
+            });
+            return;
+        }
+        String key = QueryResponseCache.cacheKey(graphqlQuery, variables);
+        Handler<AsyncResult<QueryResult>> handler = resultHandler;
+        if (caching) {
+            QueryResult cached = responseCache.get(key);
+            if (cached != null) {
+                resultHandler.handle(Future.succeededFuture(cached));
+                return;
+            }
+            long generation = responseCache.generation();
+            handler = rh -> {
+                // Traces describe a single execution, so traced results are not shared
+                if (rh.succeeded() && rh.result().isSucceeded() &&
+                        !rh.result().getExtensions().containsKey(QueryTrace.EXTENSION_KEY)) {
+                    responseCache.put(key, rh.result(), generation);
+                }
+                resultHandler.handle(rh);
+            };
+        }
+        if (coalescing) {
+            inFlightQueries.execute(key, deadline, (queryDeadline, queryHandler) ->
+                    dispatch(graphqlQuery, variables, queryDeadline, queryHandler), handler);
+        } else {
+            dispatch(graphqlQuery, variables, deadline, handler);
+        }
+    }
+
+    private void dispatch(String graphqlQuery, JsonObject variables, long deadline,
+                          Handler<AsyncResult<QueryResult>> resultHandler) {
+        Context context = Vertx.currentContext();
+        if (schemaMetadata.getWorkerPoolName() == null || context == null) {
+            execute(graphqlQuery, variables, deadline, resultHandler);
+            return;
         }
-        
-        CompletableFuture<ExecutionResult> promise = graphQL.executeAsync(asyncExecBuilder.build());
-        
-        promise.thenAccept(new Consumer<ExecutionResult>() {
+        int maxQueueDepth = schemaMetadata.getWorkerMaxQueueDepth();
+        if (workerQueueDepth.incrementAndGet() > maxQueueDepth && maxQueueDepth > 0) {
+            workerQueueDepth.decrementAndGet();
+            metrics.queryRejected();
+            resultHandler.handle(Future.succeededFuture(new QueryResult(new JsonObject(), false,
+                    Collections.singletonList(new QueryError(QueryError.QUERY_REJECTED,
+                            "Worker queue of schema '" + schemaName + "' is full", null)))));
+            return;
+        }
+        // The result handler is invoked on the original context
+        workerExecutor(context.owner()).<QueryResult>executeBlocking(future -> {
+            workerQueueDepth.decrementAndGet();
+            execute(graphqlQuery, variables, deadline, future::handle);
+        }, schemaMetadata.isWorkerOrdered(), resultHandler);
+    }
+
+    /**
+     * Gets the number of queries that wait for a thread of the worker pool.
+     *
+     * @return the worker queue depth
+     */
+    public int workerQueueDepth() {
+        return workerQueueDepth.get();
+    }
+
+    /**
+     * Releases the shared worker executor of the schema definition, if one was created.
+     * <p>
+     * Must be called when the schema definition no longer receives queries, e.g. when its service consumer is
+     * unregistered. A query that is dispatched to the worker pool afterwards creates a new worker executor.
+     */
+    public void close() {
+        WorkerExecutor executor;
+        synchronized (this) {
+            executor = workerExecutor;
+            workerExecutor = null;
+        }
+        if (executor != null) {
+            executor.close();
+        }
+    }
 
-			@Override
-			public void accept(ExecutionResult result) {
-				try {
-					QueryResult queryResult = convertToQueryResult(result);
-					 
-					resultHandler.handle(Future.succeededFuture(queryResult));
-				} catch (Exception e) {
-					resultHandler.handle(Future.failedFuture(e));
-				}
-				
-			}
-		});        
+    private WorkerExecutor workerExecutor(Vertx vertx) {
+        if (workerExecutor == null) {
+            synchronized (this) {
+                if (workerExecutor == null) {
+                    workerExecutor = vertx.createSharedWorkerExecutor(
+                            schemaMetadata.getWorkerPoolName(), schemaMetadata.getWorkerPoolSize());
+                }
+            }
+        }
+        return workerExecutor;
+    }
+
+    private void execute(String graphqlQuery, JsonObject variables, long deadline,
+                         Handler<AsyncResult<QueryResult>> resultHandler) {
+        if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+            QueryResult timeoutResult = queryTimeoutResult();
+            metrics.queryCompleted(timeoutResult);
+            resultHandler.handle(Future.succeededFuture(timeoutResult));
+            return;
+        }
+        QueryContext context = queryContext(deadline);
+        graphQL.executeAsync(executionInput(graphqlQuery, variables, context)).whenComplete((result, error) -> {
+            if (context.isDeadlineExceeded()) {
+                QueryResult timeoutResult = queryTimeoutResult();
+                metrics.queryCompleted(timeoutResult);
+                resultHandler.handle(Future.succeededFuture(timeoutResult));
+                return;
+            }
+            if (error != null) {
+                metrics.queryErrored();
+                resultHandler.handle(Future.failedFuture(error));
+                return;
+            }
+            QueryResult queryResult;
+            long start = System.nanoTime();
+            try {
+                queryResult = convertToQueryResult(result);
+            } catch (RuntimeException ex) {
+                metrics.queryErrored();
+                resultHandler.handle(Future.failedFuture(ex));
+                return;
+            }
+            metrics.record(SchemaMetrics.Phase.SERIALIZE, System.nanoTime() - start);
+            metrics.queryCompleted(queryResult);
+            resultHandler.handle(Future.succeededFuture(queryResult));
+        });
     }
 
     /**
@@ -208,10 +583,17 @@ public class SchemaDefinition implements Queryable {
         Objects.requireNonNull(executionResult, "Query execution result cannot be null");
         boolean succeeded = executionResult.getErrors() == null || executionResult.getErrors().isEmpty();
 
+        JsonObject extensions = null;
+        if (executionResult.getExtensions() != null && !executionResult.getExtensions().isEmpty()) {
+            extensions = new JsonObject();
+            for (Map.Entry<Object, Object> extension : executionResult.getExtensions().entrySet()) {
+                extensions.put(String.valueOf(extension.getKey()), extension.getValue());
+            }
+        }
         return new QueryResult(
                 succeeded ? new JsonObject((Map<String, Object>) executionResult.getData()) : new JsonObject(),
                 succeeded, executionResult.getErrors().stream()
-                        .map(SchemaDefinition::convertToQueryError).collect(Collectors.toList()));
+                        .map(SchemaDefinition::convertToQueryError).collect(Collectors.toList()), extensions);
     }
 
     /**
@@ -222,8 +604,62 @@ public class SchemaDefinition implements Queryable {
      * @return the converted query error data object
      */
     public static QueryError convertToQueryError(GraphQLError graphQLError) {
-        return new QueryError(graphQLError.getErrorType().name(), graphQLError.getMessage(),
+        return new QueryError(graphQLError instanceof QueryCostAnalyzer.QueryCostError ?
+                QueryError.QUERY_COST_EXCEEDED : graphQLError.getErrorType().name(), graphQLError.getMessage(),
                 graphQLError.getLocations().stream().map(location ->
                         new ErrorLocation(location.getLine(), location.getColumn())).collect(Collectors.toList()));
     }
+
+    @SuppressWarnings("unchecked")
+    private static JsonObject batchEntry(List<JsonObject> queries, int index) {
+        // Entries that were decoded from the clustered event bus are plain maps
+        Object entry = ((List<?>) queries).get(index);
+        return entry instanceof Map ? new JsonObject((Map<String, Object>) entry) : (JsonObject) entry;
+    }
+
+    private QueryContext queryContext(long deadline) {
+        double sampleRate = schemaMetadata.getTracingSampleRate();
+        QueryTrace trace = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate ?
+                new QueryTrace() : null;
+        if (dataLoaders.isEmpty()) {
+            return new QueryContext(deadline, null, trace);
+        }
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        dataLoaders.forEach((key, factory) -> registry.register(key, factory.get()));
+        return new QueryContext(deadline, registry, trace);
+    }
+
+    private static QueryResult queryTimeoutResult() {
+        return new QueryResult(new JsonObject(), false, Collections.singletonList(
+                new QueryError(QueryError.QUERY_TIMEOUT, "Query deadline exceeded", null)));
+    }
+
+    private static ExecutionInput executionInput(String graphqlQuery, JsonObject variables, QueryContext context) {
+        ExecutionInput.Builder builder = ExecutionInput.newExecutionInput().query(graphqlQuery).context(context);
+        if (variables != null) {
+            builder.variables(variables.getMap());
+        }
+        return builder.build();
+    }
+
+    private static GraphQL createGraphQL(GraphQLSchema schema, SchemaDefinitionOptions options, SchemaMetrics metrics,
+                                         PreparsedDocumentProvider documentProvider) {
+        GraphQL.Builder builder = GraphQL.newGraphQL(schema).preparsedDocumentProvider(documentProvider);
+        if (options.getQueryExecutionStrategy() != null) {
+            builder.queryExecutionStrategy(options.getQueryExecutionStrategy());
+        } else if (options.getExecutorService() != null) {
+            builder.queryExecutionStrategy(new ExecutorServiceExecutionStrategy(options.getExecutorService()));
+        }
+        if (options.getMutationExecutionStrategy() != null) {
+            builder.mutationExecutionStrategy(options.getMutationExecutionStrategy());
+        }
+        List<Instrumentation> instrumentations = new ArrayList<>(Arrays.asList(new QueryMetricsInstrumentation(metrics),
+                new QueryDeadlineInstrumentation(), new QueryDataLoaderInstrumentation(),
+                new QueryTracingInstrumentation()));
+        if (options.getInstrumentation() != null) {
+            instrumentations.add(options.getInstrumentation());
+        }
+        builder.instrumentation(new ChainedInstrumentation(instrumentations));
+        return builder.build();
+    }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.execution.ExecutionStrategy;
+import graphql.execution.instrumentation.Instrumentation;
+import org.dataloader.DataLoader;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Options for configuring the GraphQL execution engine of a {@link SchemaDefinition}.
+ * <p>
+ * The engine is built once when the schema definition is created and then reused for every query that is
+ * executed against it, so changing the options afterwards has no effect on existing schema definitions.
+ * <p>
+ * Unlike {@link SchemaMetadata} these options are local to the publisher and are not passed to the
+ * service discovery record.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class SchemaDefinitionOptions {
+
+    /**
+     * The default maximum number of parsed query documents that are cached per schema definition.
+     */
+    public static final int DEFAULT_DOCUMENT_CACHE_SIZE = 1000;
+
+    /**
+     * The default maximum number of persisted queries that are kept per schema definition.
+     */
+    public static final int DEFAULT_PERSISTED_QUERIES_SIZE = 1000;
+
+    private ExecutionStrategy queryExecutionStrategy;
+    private ExecutionStrategy mutationExecutionStrategy;
+    private Instrumentation instrumentation;
+    private ExecutorService executorService;
+    private int documentCacheSize = DEFAULT_DOCUMENT_CACHE_SIZE;
+    private int persistedQueriesSize = DEFAULT_PERSISTED_QUERIES_SIZE;
+    private final Map<String, Supplier<DataLoader<?, ?>>> dataLoaders = new LinkedHashMap<>();
+
+    /**
+     * Creates new schema definition options with default values.
+     */
+    public SchemaDefinitionOptions() {
+        // Defaults are determined by the GraphQL engine
+    }
+
+    /**
+     * Creates new schema definition options by copying the values from another instance.
+     *
+     * @param other the options to copy
+     */
+    public SchemaDefinitionOptions(SchemaDefinitionOptions other) {
+        this.queryExecutionStrategy = other.queryExecutionStrategy;
+        this.mutationExecutionStrategy = other.mutationExecutionStrategy;
+        this.instrumentation = other.instrumentation;
+        this.executorService = other.executorService;
+        this.documentCacheSize = other.documentCacheSize;
+        this.persistedQueriesSize = other.persistedQueriesSize;
+        this.dataLoaders.putAll(other.dataLoaders);
+    }
+
+    /**
+     * Creates new schema definition options with default values.
+     *
+     * @return the schema definition options
+     */
+    public static SchemaDefinitionOptions create() {
+        return new SchemaDefinitionOptions();
+    }
+
+    /**
+     * @return the execution strategy for queries, or {@code null} to use the engine default
+     */
+    public ExecutionStrategy getQueryExecutionStrategy() {
+        return queryExecutionStrategy;
+    }
+
+    /**
+     * Sets the execution strategy that is used to execute queries.
+     * <p>
+     * When not set and an {@link ExecutorService} is configured, queries are executed using an
+     * {@link graphql.execution.ExecutorServiceExecutionStrategy} that runs on that executor.
+     *
+     * @param strategy the query execution strategy
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setQueryExecutionStrategy(ExecutionStrategy strategy) {
+        this.queryExecutionStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * @return the execution strategy for mutations, or {@code null} to use the engine default
+     */
+    public ExecutionStrategy getMutationExecutionStrategy() {
+        return mutationExecutionStrategy;
+    }
+
+    /**
+     * Sets the execution strategy that is used to execute mutations.
+     * <p>
+     * Note that the GraphQL specification requires top-level mutation fields to be executed serially.
+     *
+     * @param strategy the mutation execution strategy
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setMutationExecutionStrategy(ExecutionStrategy strategy) {
+        this.mutationExecutionStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * @return the instrumentation of the execution engine, or {@code null} if not instrumented
+     */
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation that is invoked on all executions of the schema definition.
+     *
+     * @param instrumentation the instrumentation
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * @return the executor service that is used for query execution, or {@code null} if not set
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the executor service that is used to resolve query fields, unless a query execution strategy
+     * is explicitly configured.
+     *
+     * @param executorService the executor service
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * @return the maximum number of parsed query documents to cache
+     */
+    public int getDocumentCacheSize() {
+        return documentCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of parsed and validated query documents that are cached by the schema definition.
+     * <p>
+     * A value of {@code 0} disables caching, so that every query is parsed and validated again.
+     *
+     * @param documentCacheSize the maximum number of cached documents
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setDocumentCacheSize(int documentCacheSize) {
+        if (documentCacheSize < 0) {
+            throw new IllegalArgumentException("Document cache size cannot be negative");
+        }
+        this.documentCacheSize = documentCacheSize;
+        return this;
+    }
+
+    /**
+     * @return the maximum number of persisted queries
+     */
+    public int getPersistedQueriesSize() {
+        return persistedQueriesSize;
+    }
+
+    /**
+     * Sets the maximum number of query texts that are persisted by the schema definition, so that clients
+     * can execute them by hash (see {@link io.engagingspaces.graphql.query.Queryable#queryPersisted}).
+     * <p>
+     * A value of {@code 0} disables persisted queries, so that clients always have to send the full query text.
+     *
+     * @param persistedQueriesSize the maximum number of persisted queries
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions setPersistedQueriesSize(int persistedQueriesSize) {
+        if (persistedQueriesSize < 0) {
+            throw new IllegalArgumentException("Persisted queries size cannot be negative");
+        }
+        this.persistedQueriesSize = persistedQueriesSize;
+        return this;
+    }
+
+    /**
+     * @return the data loader factories by key, in order of registration
+     */
+    public Map<String, Supplier<DataLoader<?, ?>>> getDataLoaders() {
+        return Collections.unmodifiableMap(dataLoaders);
+    }
+
+    /**
+     * Adds a factory for a data loader that is created for every query execution.
+     * <p>
+     * Data fetchers obtain the data loader of the current execution using {@link QueryContext#dataLoader(String)}
+     * on the execution context. Loads are dispatched per execution level, so all loads issued by the fields of one
+     * level are passed to the batch loader in a single call.
+     *
+     * @param key     the data loader key
+     * @param factory the factory that creates a new data loader
+     * @return the options, for fluent usage
+     */
+    public SchemaDefinitionOptions addDataLoader(String key, Supplier<DataLoader<?, ?>> factory) {
+        Objects.requireNonNull(key, "Data loader key cannot be null");
+        Objects.requireNonNull(factory, "Data loader factory cannot be null");
+        dataLoaders.put(key, factory);
+        return this;
+    }
+}
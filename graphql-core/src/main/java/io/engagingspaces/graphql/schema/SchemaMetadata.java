@@ -19,6 +19,71 @@ public class SchemaMetadata {
      */
     public static final String METADATA_MUTATIONS = "mutations";
 
+    /**
+     * Key to the per-field cost hints stored in schema metadata, keyed by {@code TypeName.fieldName}.
+     */
+    public static final String METADATA_FIELD_COSTS = "fieldCosts";
+
+    /**
+     * Key to the maximum cost of a query stored in schema metadata.
+     */
+    public static final String METADATA_MAX_QUERY_COST = "maxQueryCost";
+
+    /**
+     * Key to the maximum depth of a query stored in schema metadata.
+     */
+    public static final String METADATA_MAX_QUERY_DEPTH = "maxQueryDepth";
+
+    /**
+     * Key to the name of the worker pool that executes queries, stored in schema metadata.
+     */
+    public static final String METADATA_WORKER_POOL_NAME = "workerPoolName";
+
+    /**
+     * Key to the size of the worker pool that executes queries, stored in schema metadata.
+     */
+    public static final String METADATA_WORKER_POOL_SIZE = "workerPoolSize";
+
+    /**
+     * Key to the flag that indicates whether queries are executed in order on the worker pool.
+     */
+    public static final String METADATA_WORKER_ORDERED = "workerOrdered";
+
+    /**
+     * Key to the maximum number of queries waiting for the worker pool, stored in schema metadata.
+     */
+    public static final String METADATA_WORKER_MAX_QUEUE_DEPTH = "workerMaxQueueDepth";
+
+    /**
+     * The default size of the worker pool that executes queries.
+     */
+    public static final int DEFAULT_WORKER_POOL_SIZE = 20;
+
+    /**
+     * Key to the maximum number of cached query responses, stored in schema metadata.
+     */
+    public static final String METADATA_RESPONSE_CACHE_SIZE = "responseCacheSize";
+
+    /**
+     * Key to the time in milliseconds that query responses are cached, stored in schema metadata.
+     */
+    public static final String METADATA_RESPONSE_CACHE_TTL = "responseCacheTtl";
+
+    /**
+     * The default time in milliseconds that query responses are cached.
+     */
+    public static final long DEFAULT_RESPONSE_CACHE_TTL = 60000;
+
+    /**
+     * Key to the flag that indicates whether identical queries in flight share a single execution.
+     */
+    public static final String METADATA_QUERY_COALESCING = "queryCoalescing";
+
+    /**
+     * Key to the fraction of query executions that are traced, stored in schema metadata.
+     */
+    public static final String METADATA_TRACING_SAMPLE_RATE = "tracingSampleRate";
+
     private String schemaName;
     private String serviceAddress;
     private DeliveryOptions deliveryOptions;
@@ -110,6 +175,224 @@ public class SchemaMetadata {
         return this;
     }
 
+    public int getMaxQueryCost() {
+        return metadata.getInteger(METADATA_MAX_QUERY_COST, 0);
+    }
+
+    /**
+     * Sets the maximum cost of queries on the schema. Queries that exceed it are rejected before execution.
+     *
+     * @param maxQueryCost the maximum query cost, or {@code 0} for no limit
+     * @return the schema metadata, for fluent usage
+     * @see #setFieldCost(String, String, int, int)
+     */
+    public SchemaMetadata setMaxQueryCost(int maxQueryCost) {
+        if (maxQueryCost < 0) {
+            throw new IllegalArgumentException("Maximum query cost cannot be negative");
+        }
+        metadata.put(METADATA_MAX_QUERY_COST, maxQueryCost);
+        return this;
+    }
+
+    public int getMaxQueryDepth() {
+        return metadata.getInteger(METADATA_MAX_QUERY_DEPTH, 0);
+    }
+
+    /**
+     * Sets the maximum depth of nested fields in queries on the schema. Queries that exceed it are rejected before
+     * execution.
+     *
+     * @param maxQueryDepth the maximum query depth, or {@code 0} for no limit
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setMaxQueryDepth(int maxQueryDepth) {
+        if (maxQueryDepth < 0) {
+            throw new IllegalArgumentException("Maximum query depth cannot be negative");
+        }
+        metadata.put(METADATA_MAX_QUERY_DEPTH, maxQueryDepth);
+        return this;
+    }
+
+    /**
+     * Sets the cost hint of a field, that is used to calculate the cost of queries before execution.
+     * <p>
+     * Fields without a cost hint cost {@code 1}. The cost of the sub-selection of a field is multiplied by the
+     * {@code multiplier}, which estimates the number of items returned by list fields.
+     *
+     * @param typeName   the name of the type that declares the field
+     * @param fieldName  the name of the field
+     * @param cost       the cost of resolving the field
+     * @param multiplier the multiplier of the cost of the sub-selection of the field
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setFieldCost(String typeName, String fieldName, int cost, int multiplier) {
+        Objects.requireNonNull(typeName, "Type name cannot be null");
+        Objects.requireNonNull(fieldName, "Field name cannot be null");
+        JsonObject fieldCosts = metadata.getJsonObject(METADATA_FIELD_COSTS);
+        if (fieldCosts == null) {
+            fieldCosts = new JsonObject();
+            metadata.put(METADATA_FIELD_COSTS, fieldCosts);
+        }
+        fieldCosts.put(typeName + "." + fieldName, new JsonObject().put("cost", cost).put("multiplier", multiplier));
+        return this;
+    }
+
+    public String getWorkerPoolName() {
+        return metadata.getString(METADATA_WORKER_POOL_NAME);
+    }
+
+    /**
+     * Sets the name of the vert.x worker pool on which queries are executed, for schema's with data fetchers that
+     * block. Schema's that use the same name share the worker pool.
+     * <p>
+     * By default no worker pool is used, and queries are executed on the context that receives them.
+     *
+     * @param workerPoolName the name of the worker pool, or {@code null} to not use a worker pool
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setWorkerPoolName(String workerPoolName) {
+        if (workerPoolName == null) {
+            metadata.remove(METADATA_WORKER_POOL_NAME);
+        } else {
+            metadata.put(METADATA_WORKER_POOL_NAME, workerPoolName);
+        }
+        return this;
+    }
+
+    public int getWorkerPoolSize() {
+        return metadata.getInteger(METADATA_WORKER_POOL_SIZE, DEFAULT_WORKER_POOL_SIZE);
+    }
+
+    /**
+     * Sets the number of threads of the worker pool. Only applies to the schema that first creates the pool.
+     *
+     * @param workerPoolSize the size of the worker pool
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setWorkerPoolSize(int workerPoolSize) {
+        if (workerPoolSize < 1) {
+            throw new IllegalArgumentException("Worker pool size must be at least 1");
+        }
+        metadata.put(METADATA_WORKER_POOL_SIZE, workerPoolSize);
+        return this;
+    }
+
+    public boolean isWorkerOrdered() {
+        return metadata.getBoolean(METADATA_WORKER_ORDERED, false);
+    }
+
+    /**
+     * Sets whether queries received on the same context are executed on the worker pool one after the other,
+     * in the order they were received. Unordered queries execute in parallel. Defaults to {@code false}.
+     * <p>
+     * A published schema receives all its queries on the context of its service consumer, so ordered execution
+     * serializes all queries of the schema and leaves the other threads of the worker pool unused.
+     *
+     * @param workerOrdered {@code true} for ordered execution, {@code false} for parallel execution
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setWorkerOrdered(boolean workerOrdered) {
+        metadata.put(METADATA_WORKER_ORDERED, workerOrdered);
+        return this;
+    }
+
+    public int getWorkerMaxQueueDepth() {
+        return metadata.getInteger(METADATA_WORKER_MAX_QUEUE_DEPTH, 0);
+    }
+
+    /**
+     * Sets the maximum number of queries of the schema that wait for a worker thread. Queries that arrive when the
+     * queue is full are rejected.
+     *
+     * @param workerMaxQueueDepth the maximum queue depth, or {@code 0} for no limit
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setWorkerMaxQueueDepth(int workerMaxQueueDepth) {
+        if (workerMaxQueueDepth < 0) {
+            throw new IllegalArgumentException("Worker queue depth cannot be negative");
+        }
+        metadata.put(METADATA_WORKER_MAX_QUEUE_DEPTH, workerMaxQueueDepth);
+        return this;
+    }
+
+    public int getResponseCacheSize() {
+        return metadata.getInteger(METADATA_RESPONSE_CACHE_SIZE, 0);
+    }
+
+    /**
+     * Sets the maximum number of query responses that are cached by the schema definition. Successful results of
+     * queries are cached by query and variables, and are discarded whenever a mutation is executed.
+     * <p>
+     * By default no responses are cached.
+     *
+     * @param responseCacheSize the maximum number of cached responses, or {@code 0} to disable the cache
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setResponseCacheSize(int responseCacheSize) {
+        if (responseCacheSize < 0) {
+            throw new IllegalArgumentException("Response cache size cannot be negative");
+        }
+        metadata.put(METADATA_RESPONSE_CACHE_SIZE, responseCacheSize);
+        return this;
+    }
+
+    public long getResponseCacheTtl() {
+        return metadata.getLong(METADATA_RESPONSE_CACHE_TTL, DEFAULT_RESPONSE_CACHE_TTL);
+    }
+
+    /**
+     * Sets the time in milliseconds after which cached query responses expire.
+     *
+     * @param responseCacheTtl the time to live of cached responses in milliseconds
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setResponseCacheTtl(long responseCacheTtl) {
+        if (responseCacheTtl < 1) {
+            throw new IllegalArgumentException("Response cache time to live must be positive");
+        }
+        metadata.put(METADATA_RESPONSE_CACHE_TTL, responseCacheTtl);
+        return this;
+    }
+
+    public boolean isQueryCoalescing() {
+        return metadata.getBoolean(METADATA_QUERY_COALESCING, false);
+    }
+
+    /**
+     * Sets whether identical read queries that are executed at the same time share a single execution and its
+     * result. Mutations are never coalesced.
+     * <p>
+     * By default every query is executed separately.
+     *
+     * @param queryCoalescing {@code true} to coalesce identical queries, {@code false} otherwise
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setQueryCoalescing(boolean queryCoalescing) {
+        metadata.put(METADATA_QUERY_COALESCING, queryCoalescing);
+        return this;
+    }
+
+    public double getTracingSampleRate() {
+        return metadata.getDouble(METADATA_TRACING_SAMPLE_RATE, 0.0);
+    }
+
+    /**
+     * Sets the fraction of query executions for which the start offset and duration of every resolved field are
+     * recorded. The trace is returned in the {@code tracing} extension of the query result.
+     * <p>
+     * By default no executions are traced.
+     *
+     * @param tracingSampleRate the sample rate, from {@code 0} for no executions to {@code 1} for all executions
+     * @return the schema metadata, for fluent usage
+     */
+    public SchemaMetadata setTracingSampleRate(double tracingSampleRate) {
+        if (tracingSampleRate < 0 || tracingSampleRate > 1) {
+            throw new IllegalArgumentException("Tracing sample rate must be between 0 and 1");
+        }
+        metadata.put(METADATA_TRACING_SAMPLE_RATE, tracingSampleRate);
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
         return (T) metadata.getValue(key);
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.vertx.core.json.JsonObject;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution metrics of a single {@link SchemaDefinition}.
+ * <p>
+ * The metrics count the outcome of every query execution, and keep a {@link LatencyHistogram} for each
+ * {@link Phase} of the execution. All metrics are updated without locking, so they can be read at any time while
+ * queries are executed.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class SchemaMetrics {
+
+    /**
+     * The phases of query processing for which latencies are recorded.
+     */
+    public enum Phase {
+
+        /**
+         * Parsing of query documents that were not found in the document cache.
+         */
+        PARSE,
+
+        /**
+         * Validation of query documents that were not found in the document cache.
+         */
+        VALIDATE,
+
+        /**
+         * Resolving the fields of the query.
+         */
+        EXECUTE,
+
+        /**
+         * Conversion of the execution result into a query result.
+         */
+        SERIALIZE,
+
+        /**
+         * The complete execution by the GraphQL engine, from parsing to resolving the last field.
+         */
+        TOTAL,
+
+        /**
+         * Handling of a service proxy request, from receiving the message to sending the reply.
+         */
+        REQUEST
+    }
+
+    private final String schemaName;
+    private final long startTime = System.currentTimeMillis();
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Creates new schema metrics.
+     *
+     * @param schemaName the name of the schema
+     */
+    public SchemaMetrics(String schemaName) {
+        this.schemaName = Objects.requireNonNull(schemaName, "Schema name cannot be null");
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records the latency of a query processing phase.
+     *
+     * @param phase the phase
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        latencies.get(phase).record(nanos);
+    }
+
+    /**
+     * Records the outcome of a query execution.
+     *
+     * @param result the query result
+     */
+    public void queryCompleted(QueryResult result) {
+        queries.increment();
+        if (!result.isSucceeded()) {
+            failures.increment();
+            if (result.getErrors().stream().anyMatch(error ->
+                    QueryResult.QueryError.QUERY_TIMEOUT.equals(error.getErrorType()))) {
+                timeouts.increment();
+            }
+        }
+    }
+
+    /**
+     * Records a query execution that failed with an exception instead of a query result.
+     */
+    public void queryErrored() {
+        queries.increment();
+        errors.increment();
+    }
+
+    /**
+     * Records a query that was rejected without being executed.
+     */
+    public void queryRejected() {
+        rejections.increment();
+    }
+
+    /**
+     * @return the name of the schema
+     */
+    public String schemaName() {
+        return schemaName;
+    }
+
+    /**
+     * Gets the latency histogram of a query processing phase.
+     *
+     * @param phase the phase
+     * @return the latency histogram
+     */
+    public LatencyHistogram latency(Phase phase) {
+        return latencies.get(phase);
+    }
+
+    /**
+     * @return the number of executed queries
+     */
+    public long queryCount() {
+        return queries.sum();
+    }
+
+    /**
+     * @return the number of executed queries that returned a failed query result, including timeouts
+     */
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of executed queries that failed with an exception
+     */
+    public long errorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * @return the number of executed queries that were aborted because their deadline passed
+     */
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return the number of queries that were rejected without being executed
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return the fraction of executed queries that failed, or {@code 0} if no queries were executed
+     */
+    public double errorRate() {
+        long queryCount = queryCount();
+        return queryCount == 0 ? 0 : (double) (failureCount() + errorCount()) / queryCount;
+    }
+
+    /**
+     * @return the JSON representation of the metrics, with latencies in microseconds
+     */
+    public JsonObject toJson() {
+        JsonObject latencyJson = new JsonObject();
+        latencies.forEach((phase, histogram) ->
+                latencyJson.put(phase.name().toLowerCase(Locale.ROOT), histogram.toJson()));
+        long uptime = Math.max(1, System.currentTimeMillis() - startTime);
+        return new JsonObject()
+                .put("schemaName", schemaName)
+                .put("startTime", startTime)
+                .put("queries", queryCount())
+                .put("queriesPerSecond", queryCount() * 1000.0 / uptime)
+                .put("failures", failureCount())
+                .put("errors", errorCount())
+                .put("timeouts", timeoutCount())
+                .put("rejections", rejectionCount())
+                .put("errorRate", errorRate())
+                .put("latencies", latencyJson);
+    }
+}
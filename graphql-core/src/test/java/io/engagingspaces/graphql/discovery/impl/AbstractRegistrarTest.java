@@ -28,6 +28,7 @@ import org.junit.runner.RunWith;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for the abstract registrar base class.
@@ -106,6 +107,24 @@ public class AbstractRegistrarTest {
         abstractRegistrar.close();
     }
 
+    @Test
+    public void should_Reject_Registration_With_Duplicate_Name() {
+        TestRegistration registration1 = new TestRegistration(ServiceDiscovery.create(vertx, options), options);
+        TestRegistration registration2 = new TestRegistration(ServiceDiscovery.create(vertx, options), options);
+        abstractRegistrar.register(options.getName(), "theName", registration1);
+        abstractRegistrar.register(options.getName(), "theName", registration1);
+        try {
+            abstractRegistrar.register(options.getName(), "theName", registration2);
+            fail("Expected duplicate registration to be rejected");
+        } catch (IllegalStateException ex) {
+            assertEquals("Registration 'theName' already exists in service discovery: theDiscovery", ex.getMessage());
+        }
+        assertEquals(1, abstractRegistrar.registrations().size());
+        assertEquals(registration1, abstractRegistrar.findRegistration(options.getName(), "theName").orElse(null));
+
+        abstractRegistrar.close();
+    }
+
     @Test
     public void should_Cleanup_On_Close() {
         abstractRegistrar.getOrCreateDiscovery(options, () -> {
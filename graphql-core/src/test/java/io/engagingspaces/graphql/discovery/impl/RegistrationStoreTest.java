@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.discovery.impl;
+
+import io.engagingspaces.graphql.discovery.Registration;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the registration store of registrars.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class RegistrationStoreTest {
+
+    @Test
+    public void should_Find_Registrations_By_Discovery_And_Name() {
+        RegistrationStore<TestRegistration> store = new RegistrationStore<>();
+        TestRegistration registration1 = new TestRegistration();
+        TestRegistration registration2 = new TestRegistration();
+        assertTrue(store.add("discovery1", "schema", registration1));
+        assertTrue(store.add("discovery2", "schema", registration2));
+        assertFalse(store.add("discovery2", "schema", registration2));
+        assertFalse(store.add("discovery2", "schema", new TestRegistration()));
+
+        assertSame(registration1, store.find("discovery1", "schema").get());
+        assertSame(registration2, store.find("discovery2", "schema").get());
+        assertFalse(store.find("discovery1", "other").isPresent());
+        assertFalse(store.find("discovery1", null).isPresent());
+        assertEquals(2, store.size());
+
+        store.remove(registration1);
+        assertFalse(store.find("discovery1", "schema").isPresent());
+        assertEquals(1, store.values().size());
+    }
+
+    @Test
+    public void should_Reference_Count_Service_Discoveries() {
+        RegistrationStore<TestRegistration> store = new RegistrationStore<>();
+        TestRegistration registration1 = new TestRegistration();
+        TestRegistration registration2 = new TestRegistration();
+        store.add("discovery", "schema1", registration1);
+        store.add("discovery", null, registration2);
+        assertTrue(store.isInUse("discovery"));
+
+        assertEquals(Optional.empty(), store.remove(registration1));
+        assertEquals(Optional.empty(), store.remove(registration1));
+        assertTrue(store.isInUse("discovery"));
+        assertEquals(Optional.of("discovery"), store.remove(registration2));
+        assertFalse(store.isInUse("discovery"));
+
+        store.add("discovery", "schema1", registration1);
+        store.clear();
+        assertFalse(store.isInUse("discovery"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void should_Keep_Index_Consistent_Under_Concurrent_Updates() throws InterruptedException {
+        RegistrationStore<TestRegistration> store = new RegistrationStore<>();
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        AtomicInteger lastRemovals = new AtomicInteger();
+        for (int thread = 0; thread < threads; thread++) {
+            String discoveryName = "discovery" + (thread % 2);
+            int offset = thread * perThread;
+            executor.execute(() -> {
+                List<TestRegistration> added = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    TestRegistration registration = new TestRegistration();
+                    store.add(discoveryName, "schema" + (offset + i), registration);
+                    added.add(registration);
+                }
+                added.forEach(registration -> store.remove(registration)
+                        .ifPresent(name -> lastRemovals.incrementAndGet()));
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(0, store.size());
+        assertFalse(store.isInUse("discovery0"));
+        assertFalse(store.isInUse("discovery1"));
+        assertTrue(lastRemovals.get() >= 2);
+    }
+
+    private static class TestRegistration implements Registration {
+
+        @Override
+        public ServiceDiscovery getDiscovery() {
+            return null;
+        }
+
+        @Override
+        public ServiceDiscoveryOptions getDiscoveryOptions() {
+            return null;
+        }
+    }
+}
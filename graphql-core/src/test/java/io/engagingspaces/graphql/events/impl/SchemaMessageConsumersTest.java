@@ -17,16 +17,25 @@
 package io.engagingspaces.graphql.events.impl;
 
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
+import io.engagingspaces.graphql.query.Queryable;
 import io.engagingspaces.graphql.events.SchemaUsageHandler;
 import io.engagingspaces.graphql.schema.SchemaDefinition;
 import io.engagingspaces.graphql.schema.SchemaMetadata;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.example.graphql.testdata.droids.DroidsSchema.droidsSchema;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -121,4 +130,32 @@ public class SchemaMessageConsumersTest {
         messageConsumers.close();
         assertEquals(0, messageConsumers.getConsumers().size());
     }
+
+    @Test
+    public void should_Coalesce_Announce_Events_Keeping_Latest_Status(TestContext context) {
+        Async async = context.async();
+        List<List<Record>> batches = new ArrayList<>();
+        messageConsumers.registerConsumer("coalescedAnnounce", batches::add, 100);
+
+        vertx.eventBus().publish("coalescedAnnounce", createRecord("endpoint1", Status.UP));
+        vertx.eventBus().publish("coalescedAnnounce", createRecord("endpoint2", Status.UP));
+        vertx.eventBus().publish("coalescedAnnounce", createRecord("endpoint1", Status.DOWN));
+        vertx.eventBus().publish("coalescedAnnounce", createRecord("endpoint3", Status.UP).put("type", "other"));
+
+        vertx.setTimer(500, t -> {
+            context.assertEquals(1, batches.size());
+            List<Record> records = batches.get(0);
+            context.assertEquals(2, records.size());
+            context.assertEquals("endpoint1", records.get(0).getLocation().getString(Record.ENDPOINT));
+            context.assertEquals(Status.DOWN, records.get(0).getStatus());
+            context.assertEquals("endpoint2", records.get(1).getLocation().getString(Record.ENDPOINT));
+            context.assertEquals(Status.UP, records.get(1).getStatus());
+            async.complete();
+        });
+    }
+
+    private static JsonObject createRecord(String endpoint, Status status) {
+        return new Record().setName("TheSchema").setType(Queryable.SERVICE_TYPE).setStatus(status)
+                .setLocation(new JsonObject().put(Record.ENDPOINT, endpoint)).toJson();
+    }
 }
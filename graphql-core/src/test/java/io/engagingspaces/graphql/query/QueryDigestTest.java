@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for query normalization and hashing.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryDigestTest {
+
+    @Test
+    public void should_Remove_Insignificant_Characters() {
+        assertEquals("query Hero($id:String!){droid(id:$id){name friends{... on Droid{id}}}}",
+                QueryDigest.normalize("  query Hero ( $id: String! ) {\n" +
+                        "    droid(id: $id) { # the droid\n" +
+                        "      name,\n" +
+                        "      friends { ... on Droid { id } }\n" +
+                        "    }\n" +
+                        "  }\n"));
+    }
+
+    @Test
+    public void should_Keep_String_Values_Intact() {
+        assertEquals("{droid(id:\"a,  # \\\"b\"){name}}",
+                QueryDigest.normalize("{ droid(id: \"a,  # \\\"b\") { name } }"));
+    }
+
+    @Test
+    public void should_Hash_Normalized_Queries() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", QueryDigest.sha256(""));
+        assertEquals(QueryDigest.normalizedHash("{ droidHero { name } }"),
+                QueryDigest.normalizedHash("{droidHero{\n  name\n}}"));
+        assertNotEquals(QueryDigest.normalizedHash("{ droidHero { name } }"),
+                QueryDigest.normalizedHash("{ droidHero { id } }"));
+    }
+
+    @Test
+    public void should_Detect_Mutations() {
+        assertTrue(QueryDigest.isMutation("mutation { increment }"));
+        assertTrue(QueryDigest.isMutation("# comment\n mutation Increment($by: Int = 1) { increment(by: $by) }"));
+        assertTrue(QueryDigest.isMutation("fragment F on Counter { value } mutation { increment { ...F } }"));
+        assertFalse(QueryDigest.isMutation("{ counter(name: \"mutation\") }"));
+        assertFalse(QueryDigest.isMutation("query mutation { mutation { mutation } }"));
+        assertFalse(QueryDigest.isMutation("query Q($filter: Filter = {a: [1]}) { mutations }"));
+    }
+}
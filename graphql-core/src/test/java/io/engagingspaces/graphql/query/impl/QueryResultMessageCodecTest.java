@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.query.impl;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.QueryableVertxEBProxy;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.impl.MessageImpl;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.serviceproxy.ServiceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.example.graphql.testdata.droids.DroidsSchema.droidsSchema;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the query result message codec and the service proxy classes that use it.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@RunWith(VertxUnitRunner.class)
+public class QueryResultMessageCodecTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void should_Encode_And_Decode_Query_Result_On_Wire() {
+        QueryResult queryResult = new QueryResult(new JsonObject().put("droid", new JsonObject().put("name", "R2-D2")),
+                false, Collections.singletonList(new QueryResult.QueryError("ValidationError", "Oops",
+                Collections.singletonList(new QueryResult.ErrorLocation(1, 2)))));
+        QueryResultMessageCodec codec = new QueryResultMessageCodec();
+        Buffer buffer = Buffer.buffer().appendString("prefix");
+        codec.encodeToWire(buffer, queryResult);
+
+        assertEquals(queryResult, codec.decodeFromWire(6, buffer));
+        assertSame(queryResult, codec.transform(queryResult));
+    }
+
+    @Test
+    public void should_Pass_Query_Result_By_Reference_Locally(TestContext context) {
+        QueryResult queryResult = new QueryResult(new JsonObject().put("foo", "bar"), true, Collections.emptyList());
+        QueryResultMessageCodec.register(vertx);
+        QueryResultMessageCodec.register(vertx);
+        vertx.eventBus().consumer("local.result", msg -> msg.reply(queryResult));
+        vertx.eventBus().send("local.result", new JsonObject(), context.asyncAssertSuccess(reply ->
+                assertSame(queryResult, reply.body())));
+    }
+
+    @Test
+    public void should_Query_Through_Service_Proxy(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        MessageConsumer<JsonObject> consumer = QueryableServiceHandler.registerService(
+                vertx, definition, definition.serviceAddress());
+        Queryable queryable = Queryable.createProxy(vertx, definition.serviceAddress(), new JsonObject());
+
+        queryable.query("{ droidHero { name } }", context.asyncAssertSuccess(queryResult -> {
+            assertTrue(queryResult.isSucceeded());
+            assertEquals("R2-D2", queryResult.getData().getJsonObject("droidHero").getString("name"));
+            queryable.queryBatch(Collections.singletonList(new JsonObject().put("query", "{ droidHero { name } }")),
+                    context.asyncAssertSuccess(queryResults -> {
+                assertEquals(Collections.singletonList(queryResult), queryResults);
+                consumer.unregister();
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Reply_Json_To_Generated_Service_Proxy(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        QueryableServiceHandler.registerService(vertx, definition, definition.serviceAddress());
+        Queryable queryable = new QueryableVertxEBProxy(vertx, definition.serviceAddress());
+        List<Object> replies = new ArrayList<>();
+        vertx.eventBus().addInterceptor(sendContext -> {
+            replies.add(sendContext.message().body());
+            sendContext.next();
+        });
+        queryable.query("{ droidHero { name } }", context.asyncAssertSuccess(queryResult -> {
+            assertEquals("R2-D2", queryResult.getData().getJsonObject("droidHero").getString("name"));
+            assertEquals(2, replies.size());
+            assertTrue(replies.get(1) instanceof JsonObject);
+        }));
+    }
+
+    @Test
+    public void should_Reply_Failure_When_Query_Throws(TestContext context) {
+        Queryable failing = new Queryable() {
+            @Override
+            public void query(String graphqlQuery, Handler<AsyncResult<QueryResult>> resultHandler) {
+                throw new IllegalStateException("Query failed");
+            }
+
+            @Override
+            public void queryWithVariables(String graphqlQuery, JsonObject variables,
+                                           Handler<AsyncResult<QueryResult>> resultHandler) {
+                query(graphqlQuery, resultHandler);
+            }
+
+            @Override
+            public void queryPersisted(String queryHash, JsonObject variables,
+                                       Handler<AsyncResult<QueryResult>> resultHandler) {
+                query(queryHash, resultHandler);
+            }
+
+            @Override
+            public void queryBatch(List<JsonObject> queries, Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+                throw new IllegalStateException("Query failed");
+            }
+        };
+        QueryableServiceHandler.registerService(vertx, failing, "failing.service");
+        Queryable queryable = Queryable.createProxy(vertx, "failing.service", new JsonObject());
+
+        queryable.query("{ droidHero { name } }", context.asyncAssertFailure(cause -> {
+            assertTrue(cause instanceof ServiceException);
+            assertEquals(500, ((ServiceException) cause).failureCode());
+            assertEquals("Query failed", cause.getMessage());
+        }));
+    }
+
+    @Test
+    public void should_Encode_And_Decode_Query_Result_In_Binary() {
+        JsonArray droids = new JsonArray();
+        for (int index = 0; index < 200; index++) {
+            droids.add(new JsonObject().put("id", String.valueOf(index)).put("name", "Droid " + index)
+                    .put("primaryFunction", "Astromech").put("height", 0.96d + index).put("serial", 100L + index)
+                    .put("active", index % 2 == 0).put("friends", new JsonArray().add(index).addNull()));
+        }
+        QueryResult queryResult = new QueryResult(new JsonObject().put("droids", droids), false,
+                Collections.singletonList(new QueryResult.QueryError("ValidationError", "\u00dcnicode",
+                        Collections.singletonList(new QueryResult.ErrorLocation(300, 2)))));
+
+        Buffer plain = Buffer.buffer();
+        new QueryResultBinaryCodec(-1).encodeToWire(plain, queryResult);
+        assertEquals(queryResult, new QueryResultBinaryCodec().decodeFromWire(0, plain));
+        assertTrue(plain.length() < queryResult.toJson().toBuffer().length());
+
+        Buffer compressed = Buffer.buffer().appendString("prefix");
+        new QueryResultBinaryCodec().encodeToWire(compressed, queryResult);
+        assertEquals(queryResult, new QueryResultBinaryCodec().decodeFromWire(6, compressed));
+        assertTrue(compressed.length() < plain.length());
+    }
+
+    @Test
+    public void should_Encode_And_Decode_Query_Result_Extensions() {
+        QueryResult queryResult = new QueryResult(new JsonObject().put("foo", "bar"), true, null,
+                new JsonObject().put("tracing", new JsonObject().put("duration", 42L)));
+        QueryResult plainResult = new QueryResult(new JsonObject().put("foo", "bar"), true, null);
+
+        Buffer json = Buffer.buffer();
+        new QueryResultMessageCodec().encodeToWire(json, queryResult);
+        assertEquals(queryResult, new QueryResultMessageCodec().decodeFromWire(0, json));
+
+        // Frames are followed by other data, which must not be mistaken for extensions
+        Buffer binary = Buffer.buffer();
+        new QueryResultBinaryCodec().encodeToWire(binary, queryResult);
+        new QueryResultBinaryCodec().encodeToWire(binary, plainResult);
+        QueryResult decoded = new QueryResultBinaryCodec().decodeFromWire(0, binary);
+        assertEquals(queryResult, decoded);
+        assertEquals(42L, decoded.getExtensions().getJsonObject("tracing").getLong("duration").longValue());
+        assertEquals(plainResult, new QueryResultBinaryCodec().decodeFromWire(binary.getInt(0) + 4, binary));
+        assertTrue(new QueryResultBinaryCodec().decodeFromWire(binary.getInt(0) + 4, binary)
+                .getExtensions().isEmpty());
+    }
+
+    @Test
+    public void should_Reply_With_Codec_Requested_By_Proxy(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        QueryableServiceHandler.registerService(vertx, definition, definition.serviceAddress());
+        Queryable queryable = Queryable.createProxy(vertx, definition.serviceAddress(),
+                new JsonObject().put("codecName", QueryResultBinaryCodec.CODEC_NAME));
+        List<String> replyCodecs = new ArrayList<>();
+        vertx.eventBus().addInterceptor(sendContext -> {
+            if (sendContext.message().body() instanceof QueryResult) {
+                replyCodecs.add(((MessageImpl) sendContext.message()).codec().name());
+            }
+            sendContext.next();
+        });
+        queryable.query("{ droidHero { name } }", context.asyncAssertSuccess(queryResult -> {
+            assertEquals("R2-D2", queryResult.getData().getJsonObject("droidHero").getString("name"));
+            assertEquals(Collections.singletonList(QueryResultBinaryCodec.CODEC_NAME), replyCodecs);
+        }));
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.schema;
+
+import graphql.ExecutionResult;
+import graphql.Scalars;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLTypeReference;
+import io.engagingspaces.graphql.query.QueryDigest;
+import io.engagingspaces.graphql.query.QueryResult;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.dataloader.DataLoader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.example.graphql.testdata.droids.DroidsSchema.droidsSchema;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the schema definition.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@RunWith(VertxUnitRunner.class)
+public class SchemaDefinitionTest {
+
+    private static final String DROIDS_QUERY =
+            "        query CheckTypeOfR2 {\n" +
+            "            droidHero {\n" +
+            "                __typename\n" +
+            "                name\n" +
+            "            }\n" +
+            "        }";
+
+    private static final String DROIDS_VARIABLES_QUERY =
+            "        query GetDroidName($id: String!) {\n" +
+            "            droid(id: $id) {\n" +
+            "                name\n" +
+            "            }\n" +
+            "        }";
+
+    private static final String DROIDS_FRIENDS_QUERY =
+            "        query DroidFriends {\n" +
+            "            droidHero {\n" +
+            "                name\n" +
+            "                friends {\n" +
+            "                    name\n" +
+            "                    friends {\n" +
+            "                        name\n" +
+            "                    }\n" +
+            "                }\n" +
+            "            }\n" +
+            "        }";
+
+    @Test
+    public void should_Execute_Queries_Using_Default_Options() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        QueryResult result = definition.queryBlocking(DROIDS_QUERY, null);
+        assertTrue(result.isSucceeded());
+        assertEquals("R2-D2", result.getData().getJsonObject("droidHero").getString("name"));
+
+        result = definition.queryBlocking(DROIDS_VARIABLES_QUERY, new JsonObject().put("id", "2001"));
+        assertTrue(result.isSucceeded());
+        assertEquals("R2-D2", result.getData().getJsonObject("droid").getString("name"));
+    }
+
+    @Test
+    public void should_Reuse_Configured_Execution_Engine(TestContext context) {
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create()
+                        .setExecutorService(executor)
+                        .setInstrumentation(new NoOpInstrumentation() {
+                            @Override
+                            public InstrumentationContext<ExecutionResult> beginExecution(
+                                    InstrumentationExecutionParameters parameters) {
+                                executions.incrementAndGet();
+                                return super.beginExecution(parameters);
+                            }
+                        }));
+
+        Async async = context.async();
+        definition.queryNonBlocking(DROIDS_QUERY, null, rh -> {
+            context.assertTrue(rh.succeeded());
+            context.assertTrue(rh.result().isSucceeded());
+            context.assertEquals("Droid", rh.result().getData().getJsonObject("droidHero").getString("__typename"));
+
+            QueryResult result = definition.queryBlocking(DROIDS_QUERY, null);
+            context.assertEquals(rh.result(), result);
+            context.assertEquals(2, executions.get());
+            executor.shutdown();
+            async.complete();
+        });
+    }
+
+    @Test
+    public void should_Copy_Schema_Definition_Options() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        SchemaDefinitionOptions options = new SchemaDefinitionOptions(
+                SchemaDefinitionOptions.create().setExecutorService(executor));
+        assertSame(executor, options.getExecutorService());
+        assertNull(options.getInstrumentation());
+        assertNull(options.getQueryExecutionStrategy());
+        assertNull(options.getMutationExecutionStrategy());
+        executor.shutdown();
+    }
+
+    @Test
+    public void should_Cache_Parsed_Documents_By_Normalized_Query() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create().setDocumentCacheSize(1));
+        QueryDocumentCache cache = definition.documentCache();
+        assertEquals(1, cache.maxSize());
+
+        assertTrue(definition.queryBlocking(DROIDS_QUERY, null).isSucceeded());
+        assertTrue(definition.queryBlocking("query CheckTypeOfR2 { droidHero { __typename, name } }", null)
+                .isSucceeded());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+
+        assertTrue(definition.queryBlocking(DROIDS_VARIABLES_QUERY, new JsonObject().put("id", "2000"))
+                .isSucceeded());
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2L, (long) cache.toJson().getLong("misses"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void should_Not_Cache_Documents_When_Disabled() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create().setDocumentCacheSize(0));
+        assertTrue(definition.queryBlocking(DROIDS_QUERY, null).isSucceeded());
+        assertTrue(definition.queryBlocking(DROIDS_QUERY, null).isSucceeded());
+        assertEquals(0, definition.documentCache().size());
+        assertEquals(0, definition.documentCache().hitCount());
+        assertEquals(2, definition.documentCache().missCount());
+    }
+
+    @Test
+    public void should_Execute_Persisted_Query_By_Hash(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        String queryHash = QueryDigest.sha256(DROIDS_VARIABLES_QUERY);
+        JsonObject variables = new JsonObject().put("id", "2001");
+
+        definition.queryPersisted(queryHash, variables, context.asyncAssertSuccess(notFound -> {
+            assertFalse(notFound.isSucceeded());
+            assertEquals(1, notFound.getErrors().size());
+            assertEquals(QueryResult.QueryError.PERSISTED_QUERY_NOT_FOUND,
+                    notFound.getErrors().get(0).getErrorType());
+
+            definition.queryWithVariables(DROIDS_VARIABLES_QUERY, variables, context.asyncAssertSuccess(full -> {
+                assertEquals(1, definition.persistedQueries().size());
+                definition.queryPersisted(queryHash, variables, context.asyncAssertSuccess(persisted -> {
+                    assertTrue(persisted.isSucceeded());
+                    assertEquals(full, persisted);
+                    assertEquals(1, definition.persistedQueries().hitCount());
+                    assertEquals(1, definition.persistedQueries().missCount());
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Not_Persist_Queries_When_Disabled(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create().setPersistedQueriesSize(0));
+        definition.query(DROIDS_QUERY, context.asyncAssertSuccess(result -> {
+            assertTrue(result.isSucceeded());
+            assertEquals(0, definition.persistedQueries().size());
+            definition.queryPersisted(QueryDigest.sha256(DROIDS_QUERY), null, context.asyncAssertSuccess(notFound ->
+                    assertEquals(QueryResult.QueryError.PERSISTED_QUERY_NOT_FOUND,
+                            notFound.getErrors().get(0).getErrorType())));
+        }));
+    }
+
+    @Test
+    public void should_Execute_Query_Batch_In_Order(TestContext context) {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create().setExecutorService(executor));
+        List<JsonObject> queries = Arrays.asList(
+                new JsonObject().put("query", DROIDS_QUERY),
+                new JsonObject().put("query", DROIDS_VARIABLES_QUERY).put("variables", new JsonObject().put("id", "2001")),
+                new JsonObject().put("variables", new JsonObject()),
+                new JsonObject().put("query", DROIDS_VARIABLES_QUERY).put("variables", new JsonObject()));
+
+        definition.queryBatch(queries, context.asyncAssertSuccess(results -> {
+            assertEquals(4, results.size());
+            assertEquals("Droid", results.get(0).getData().getJsonObject("droidHero").getString("__typename"));
+            assertEquals("R2-D2", results.get(1).getData().getJsonObject("droid").getString("name"));
+            assertFalse(results.get(2).isSucceeded());
+            assertEquals(QueryResult.QueryError.EXECUTION_FAILED, results.get(2).getErrors().get(0).getErrorType());
+            assertFalse(results.get(3).isSucceeded());
+            assertEquals(QueryResult.QueryError.EXECUTION_FAILED, results.get(3).getErrors().get(0).getErrorType());
+            executor.shutdown();
+        }));
+    }
+
+    @Test
+    public void should_Skip_Query_With_Expired_Deadline(TestContext context) {
+        AtomicInteger executions = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null,
+                SchemaDefinitionOptions.create().setInstrumentation(new NoOpInstrumentation() {
+                    @Override
+                    public InstrumentationContext<ExecutionResult> beginExecution(
+                            InstrumentationExecutionParameters parameters) {
+                        executions.incrementAndGet();
+                        return super.beginExecution(parameters);
+                    }
+                }));
+        definition.queryNonBlocking(DROIDS_QUERY, null, System.currentTimeMillis() - 1,
+                context.asyncAssertSuccess(result -> {
+            assertFalse(result.isSucceeded());
+            assertEquals(QueryResult.QueryError.QUERY_TIMEOUT, result.getErrors().get(0).getErrorType());
+            assertEquals(0, executions.get());
+        }));
+    }
+
+    @Test
+    public void should_Abort_Field_Resolution_After_Deadline(TestContext context) {
+        AtomicInteger fetches = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(slowSchema(fetches, 150), null);
+
+        definition.queryNonBlocking("{ first: slow second: slow third: slow }", null,
+                System.currentTimeMillis() + 100, context.asyncAssertSuccess(result -> {
+            assertFalse(result.isSucceeded());
+            assertEquals(1, result.getErrors().size());
+            assertEquals(QueryResult.QueryError.QUERY_TIMEOUT, result.getErrors().get(0).getErrorType());
+            assertTrue(fetches.get() <= 1);
+        }));
+        definition.queryNonBlocking("{ slow }", null, 0, context.asyncAssertSuccess(result ->
+                assertEquals("done", result.getData().getString("slow"))));
+    }
+
+    @Test
+    public void should_Calculate_Query_Cost_Using_Field_Cost_Hints() {
+        SchemaMetadata metadata = SchemaMetadata.create()
+                .setFieldCost("Droid", "friends", 1, 10)
+                .setFieldCost("Character", "friends", 1, 10);
+        QueryCostAnalyzer analyzer = SchemaDefinition.createInstance(droidsSchema, metadata).costAnalyzer();
+        assertFalse(analyzer.isEnabled());
+
+        QueryCostAnalyzer.QueryCost queryCost = analyzer.calculate(new Parser().parseDocument(DROIDS_FRIENDS_QUERY));
+        assertEquals(123, queryCost.cost());
+        assertEquals(4, queryCost.depth());
+    }
+
+    @Test
+    public void should_Reject_Queries_Exceeding_Maximum_Cost() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, SchemaMetadata.create()
+                .setFieldCost("Droid", "friends", 1, 10)
+                .setFieldCost("Character", "friends", 1, 10)
+                .setMaxQueryCost(100));
+        assertTrue(definition.queryBlocking(DROIDS_QUERY, null).isSucceeded());
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            QueryResult result = definition.queryBlocking(DROIDS_FRIENDS_QUERY, null);
+            assertFalse(result.isSucceeded());
+            assertEquals(1, result.getErrors().size());
+            assertEquals(QueryResult.QueryError.QUERY_COST_EXCEEDED, result.getErrors().get(0).getErrorType());
+            assertEquals("Query cost 123 exceeds maximum cost of 100", result.getErrors().get(0).getMessage());
+        }
+        assertEquals(1, definition.documentCache().hitCount());
+    }
+
+    @Test
+    public void should_Reject_Documents_With_Multiple_Operations_When_Cost_Is_Limited() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema,
+                SchemaMetadata.create().setMaxQueryCost(100));
+        QueryResult result = definition.queryBlocking(
+                "query First { droidHero { name } } query Second { droidHero { id } }", null);
+        assertFalse(result.isSucceeded());
+        assertEquals(QueryResult.QueryError.QUERY_COST_EXCEEDED, result.getErrors().get(0).getErrorType());
+        assertEquals("Query cost cannot be analyzed for documents with multiple operations",
+                result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void should_Reject_Negative_Query_Limits() {
+        try {
+            SchemaMetadata.create().setMaxQueryCost(-1);
+            fail("Expected negative maximum query cost to be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Maximum query cost cannot be negative", ex.getMessage());
+        }
+        try {
+            SchemaMetadata.create().setMaxQueryDepth(-1);
+            fail("Expected negative maximum query depth to be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Maximum query depth cannot be negative", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void should_Count_Conditional_Fields_In_Query_Cost() {
+        String query =
+                "        query ConditionalFriends($flag: Boolean!) {\n" +
+                "            droidHero {\n" +
+                "                name @skip(if: $flag)\n" +
+                "                friends @include(if: $flag) {\n" +
+                "                    name\n" +
+                "                }\n" +
+                "            }\n" +
+                "        }";
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, SchemaMetadata.create()
+                .setFieldCost("Droid", "friends", 1, 10)
+                .setFieldCost("Character", "friends", 1, 10)
+                .setMaxQueryCost(100));
+        assertEquals(13, definition.costAnalyzer().calculate(new Parser().parseDocument(query)).cost());
+
+        QueryResult result = definition.queryBlocking(query, new JsonObject().put("flag", false));
+        assertTrue(result.isSucceeded());
+        assertEquals("R2-D2", result.getData().getJsonObject("droidHero").getString("name"));
+        assertFalse(result.getData().getJsonObject("droidHero").containsKey("friends"));
+
+        result = definition.queryBlocking(query, new JsonObject().put("flag", true));
+        assertTrue(result.isSucceeded());
+        assertFalse(result.getData().getJsonObject("droidHero").containsKey("name"));
+        assertFalse(result.getData().getJsonObject("droidHero").getJsonArray("friends").isEmpty());
+    }
+
+    @Test
+    public void should_Reject_Queries_Exceeding_Maximum_Depth() {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema,
+                SchemaMetadata.create().setMaxQueryDepth(3));
+        assertEquals(3, definition.metadata().getMaxQueryDepth());
+        QueryResult result = definition.queryBlocking(DROIDS_FRIENDS_QUERY, null);
+        assertFalse(result.isSucceeded());
+        assertEquals(QueryResult.QueryError.QUERY_COST_EXCEEDED, result.getErrors().get(0).getErrorType());
+        assertEquals("Query depth 4 exceeds maximum depth of 3", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void should_Execute_Queries_On_Worker_Pool(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        SchemaDefinition definition = SchemaDefinition.createInstance(slowSchema(new AtomicInteger(), 0, threads),
+                SchemaMetadata.create().setWorkerPoolName("slow-pool").setWorkerPoolSize(2).setWorkerOrdered(false));
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            Context original = Vertx.currentContext();
+            definition.queryNonBlocking("{ slow }", null, rh -> {
+                context.assertTrue(rh.succeeded());
+                context.assertEquals("done", rh.result().getData().getString("slow"));
+                context.assertEquals(original, Vertx.currentContext());
+                context.assertTrue(threads.get(0).startsWith("slow-pool"));
+                vertx.close(context.asyncAssertSuccess(closed -> async.complete()));
+            });
+        });
+    }
+
+    @Test
+    public void should_Reject_Queries_When_Worker_Queue_Is_Full(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        SchemaDefinition definition = SchemaDefinition.createInstance(slowSchema(new AtomicInteger(), 100),
+                SchemaMetadata.create().setWorkerPoolName("single-pool").setWorkerPoolSize(1)
+                        .setWorkerMaxQueueDepth(1));
+        List<QueryResult> results = new CopyOnWriteArrayList<>();
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            for (int query = 0; query < 3; query++) {
+                definition.queryNonBlocking("{ slow }", null, context.asyncAssertSuccess(result -> {
+                    results.add(result);
+                    if (results.size() == 3) {
+                        context.assertTrue(results.stream().anyMatch(QueryResult::isSucceeded));
+                        context.assertTrue(results.stream().anyMatch(rejected -> !rejected.isSucceeded() &&
+                                QueryResult.QueryError.QUERY_REJECTED.equals(
+                                        rejected.getErrors().get(0).getErrorType())));
+                        context.assertEquals(0, definition.workerQueueDepth());
+                        vertx.close(context.asyncAssertSuccess(closed -> async.complete()));
+                    }
+                }));
+            }
+        });
+    }
+
+    @Test
+    public void should_Batch_Data_Loader_Calls_Per_Execution(TestContext context) {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        SchemaDefinition definition = SchemaDefinition.createInstance(charactersSchema(), null,
+                SchemaDefinitionOptions.create().addDataLoader("names", () ->
+                        DataLoader.<Integer, String>newDataLoader(keys -> {
+                            batches.add(new ArrayList<>(keys));
+                            return CompletableFuture.completedFuture(keys.stream()
+                                    .map(key -> "Character " + key).collect(Collectors.toList()));
+                        })));
+        Async async = context.async();
+        definition.queryNonBlocking("{ characters { name friends { name } } }", null, rh -> {
+            context.assertTrue(rh.succeeded());
+            context.assertTrue(rh.result().isSucceeded());
+            JsonObject first = rh.result().getData().getJsonArray("characters").getJsonObject(0);
+            context.assertEquals("Character 1", first.getString("name"));
+            context.assertEquals("Character 2", first.getJsonArray("friends").getJsonObject(0).getString("name"));
+            context.assertEquals(1, batches.size());
+            context.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5, 6)), new HashSet<>(batches.get(0)));
+
+            definition.queryNonBlocking("{ characters { name } }", null, rh2 -> {
+                context.assertTrue(rh2.succeeded());
+                context.assertEquals(2, batches.size());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void should_Cache_Query_Responses_Until_Mutation(TestContext context) {
+        AtomicInteger counter = new AtomicInteger();
+        AtomicInteger fetches = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(counterSchema(counter, fetches),
+                SchemaMetadata.create().setResponseCacheSize(10));
+        Async async = context.async();
+        definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(first ->
+                definition.queryNonBlocking("{\n  counter\n}", null, context.asyncAssertSuccess(second -> {
+                    context.assertEquals(0, second.getData().getInteger("counter"));
+                    context.assertEquals(1, fetches.get());
+                    context.assertEquals(1L, definition.responseCache().hitCount());
+
+                    definition.queryNonBlocking("mutation { increment }", null, context.asyncAssertSuccess(mutation ->
+                            definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(third -> {
+                                context.assertEquals(1, third.getData().getInteger("counter"));
+                                context.assertEquals(2, fetches.get());
+                                context.assertEquals(1L, definition.responseCache().invalidationCount());
+                                context.assertEquals(1.0 / 3, definition.responseCache().hitRatio());
+                                async.complete();
+                            }))));
+                }))));
+    }
+
+    @Test
+    public void should_Invalidate_Response_Cache_On_Blocking_Mutation(TestContext context) {
+        AtomicInteger counter = new AtomicInteger();
+        AtomicInteger fetches = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(counterSchema(counter, fetches),
+                SchemaMetadata.create().setResponseCacheSize(10));
+        Async async = context.async();
+        definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(first -> {
+            context.assertTrue(definition.queryBlocking("mutation { increment }", null).isSucceeded());
+            context.assertEquals(1L, definition.responseCache().invalidationCount());
+
+            definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(second -> {
+                context.assertEquals(1, second.getData().getInteger("counter"));
+                context.assertEquals(2, fetches.get());
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Return_Copies_Of_Cached_Responses(TestContext context) {
+        AtomicInteger counter = new AtomicInteger();
+        AtomicInteger fetches = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(counterSchema(counter, fetches),
+                SchemaMetadata.create().setResponseCacheSize(10));
+        Async async = context.async();
+        definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(first -> {
+            first.getData().put("counter", 42);
+            definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(second -> {
+                context.assertEquals(0, second.getData().getInteger("counter"));
+                second.getData().put("counter", 43);
+                definition.queryNonBlocking("{ counter }", null, context.asyncAssertSuccess(third -> {
+                    context.assertEquals(0, third.getData().getInteger("counter"));
+                    context.assertEquals(1, fetches.get());
+                    async.complete();
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Create_Cache_Keys_From_Canonical_Variables() {
+        assertEquals(QueryResponseCache.cacheKey("query Q($a: Int, $b: Int) { q(a: $a, b: $b) }",
+                new JsonObject().put("a", 1).put("b", new JsonObject().put("x", 1).put("y", "z"))),
+                QueryResponseCache.cacheKey("query Q($a:Int,$b:Int){q(a:$a,b:$b)}",
+                        new JsonObject().put("b", new JsonObject().put("y", "z").put("x", 1L)).put("a", 1)));
+        assertNotEquals(QueryResponseCache.cacheKey("{ q }", new JsonObject().put("a", 1)),
+                QueryResponseCache.cacheKey("{ q }", new JsonObject().put("a", "1")));
+    }
+
+    @Test
+    public void should_Coalesce_Identical_Queries_In_Flight(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        AtomicInteger fetches = new AtomicInteger();
+        SchemaDefinition definition = SchemaDefinition.createInstance(slowSchema(fetches, 200),
+                SchemaMetadata.create().setQueryCoalescing(true).setWorkerPoolName("coalesce-pool")
+                        .setWorkerOrdered(false));
+        List<QueryResult> results = new CopyOnWriteArrayList<>();
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            Context original = Vertx.currentContext();
+            for (int query = 0; query < 5; query++) {
+                definition.queryNonBlocking("{ slow }", null, context.asyncAssertSuccess(result -> {
+                    context.assertEquals(original, Vertx.currentContext());
+                    results.add(result);
+                    if (results.size() == 5) {
+                        context.assertEquals(1, fetches.get());
+                        context.assertEquals(4L, definition.inFlightQueries().coalescedCount());
+                        context.assertEquals(0, definition.inFlightQueries().size());
+                        context.assertTrue(results.stream().allMatch(shared -> shared.equals(results.get(0))));
+                        context.assertEquals(1L, results.stream().filter(shared -> shared == results.get(0)).count());
+                        vertx.close(context.asyncAssertSuccess(closed -> async.complete()));
+                    }
+                }));
+            }
+        });
+    }
+
+    @Test
+    public void should_Fail_Coalesced_Queries_When_Dispatch_Throws(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema,
+                SchemaMetadata.create().setQueryCoalescing(true),
+                SchemaDefinitionOptions.create().setInstrumentation(new NoOpInstrumentation() {
+                    @Override
+                    public InstrumentationContext<ExecutionResult> beginExecution(
+                            InstrumentationExecutionParameters parameters) {
+                        throw new IllegalStateException("Dispatch failed");
+                    }
+                }));
+        Async async = context.async();
+        definition.query(DROIDS_QUERY, context.asyncAssertFailure(first -> {
+            context.assertEquals("Dispatch failed", first.getMessage());
+            context.assertEquals(0, definition.inFlightQueries().size());
+            definition.query(DROIDS_QUERY, context.asyncAssertFailure(second -> {
+                context.assertEquals("Dispatch failed", second.getMessage());
+                context.assertEquals(0, definition.inFlightQueries().size());
+                async.complete();
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Not_Share_Traces_With_Coalesced_Queries(TestContext context) {
+        Vertx vertx = Vertx.vertx();
+        SchemaDefinition definition = SchemaDefinition.createInstance(slowSchema(new AtomicInteger(), 200),
+                SchemaMetadata.create().setQueryCoalescing(true).setTracingSampleRate(1)
+                        .setWorkerPoolName("traced-coalesce-pool"));
+        List<QueryResult> results = new CopyOnWriteArrayList<>();
+        Async async = context.async();
+        vertx.runOnContext(v -> {
+            for (int query = 0; query < 3; query++) {
+                definition.queryNonBlocking("{ slow }", null, context.asyncAssertSuccess(result -> {
+                    results.add(result);
+                    if (results.size() == 3) {
+                        context.assertEquals(2L, definition.inFlightQueries().coalescedCount());
+                        context.assertEquals(1L, results.stream()
+                                .filter(traced -> traced.getExtensions().containsKey("tracing")).count());
+                        context.assertTrue(results.stream().allMatch(QueryResult::isSucceeded));
+                        vertx.close(context.asyncAssertSuccess(closed -> async.complete()));
+                    }
+                }));
+            }
+        });
+    }
+
+    @Test
+    public void should_Record_Execution_Metrics_Per_Phase(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        Async async = context.async();
+        definition.queryNonBlocking(DROIDS_QUERY, null, context.asyncAssertSuccess(first ->
+                definition.queryNonBlocking(DROIDS_QUERY, null, context.asyncAssertSuccess(second ->
+                        definition.queryNonBlocking("{ unknownField }", null, context.asyncAssertSuccess(third -> {
+                            SchemaMetrics metrics = definition.metrics();
+                            context.assertEquals(3L, metrics.queryCount());
+                            context.assertEquals(1L, metrics.failureCount());
+                            context.assertEquals(2L, metrics.latency(SchemaMetrics.Phase.PARSE).count());
+                            context.assertEquals(3L, metrics.latency(SchemaMetrics.Phase.EXECUTE).count());
+                            context.assertEquals(3L, metrics.latency(SchemaMetrics.Phase.SERIALIZE).count());
+                            context.assertTrue(metrics.latency(SchemaMetrics.Phase.TOTAL).percentile(99) <=
+                                    metrics.latency(SchemaMetrics.Phase.TOTAL).max());
+                            JsonObject json = definition.statistics().getJsonObject("metrics");
+                            context.assertEquals(1.0 / 3, json.getDouble("errorRate"));
+                            context.assertEquals(3L, json.getJsonObject("latencies")
+                                    .getJsonObject("total").getLong("count"));
+                            async.complete();
+                        }))))));
+    }
+
+    @Test
+    public void should_Calculate_Latency_Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000L, histogram.count());
+        assertEquals(1000L, histogram.max());
+        assertEquals(500.5, histogram.mean(), 0.001);
+        assertTrue(Math.abs(histogram.percentile(50) - 500) <= 500 / 8);
+        assertTrue(Math.abs(histogram.percentile(99) - 990) <= 990 / 8);
+        assertEquals(1L, histogram.percentile(0));
+        assertEquals(1000L, histogram.percentile(100));
+    }
+
+    @Test
+    public void should_Trace_Sampled_Query_Executions(TestContext context) {
+        SchemaDefinition traced = SchemaDefinition.createInstance(droidsSchema,
+                SchemaMetadata.create().setTracingSampleRate(1));
+        SchemaDefinition untraced = SchemaDefinition.createInstance(droidsSchema, null);
+        Async async = context.async();
+        traced.queryNonBlocking("{ droidHero { name primaryFunction } }", null, context.asyncAssertSuccess(result -> {
+            JsonObject tracing = result.getExtensions().getJsonObject("tracing");
+            context.assertNotNull(tracing);
+            context.assertTrue(tracing.getLong("duration") > 0);
+            JsonArray resolvers = tracing.getJsonObject("execution").getJsonArray("resolvers");
+            context.assertTrue(resolvers.stream().anyMatch(resolver -> new JsonArray().add("droidHero")
+                    .equals(((JsonObject) resolver).getJsonArray("path"))));
+            context.assertTrue(resolvers.stream().anyMatch(resolver -> new JsonArray().add("droidHero")
+                    .add("name").equals(((JsonObject) resolver).getJsonArray("path"))));
+            context.assertEquals(result, new QueryResult(result.toJson()));
+
+            untraced.queryNonBlocking(DROIDS_QUERY, null, context.asyncAssertSuccess(untracedResult -> {
+                context.assertTrue(untracedResult.getExtensions().isEmpty());
+                context.assertFalse(untracedResult.toJson().containsKey("extensions"));
+                async.complete();
+            }));
+        }));
+    }
+
+    private static GraphQLSchema counterSchema(AtomicInteger counter, AtomicInteger fetches) {
+        return GraphQLSchema.newSchema()
+                .query(GraphQLObjectType.newObject()
+                        .name("CounterQueries")
+                        .field(GraphQLFieldDefinition.newFieldDefinition()
+                                .name("counter")
+                                .type(Scalars.GraphQLInt)
+                                .dataFetcher(environment -> {
+                                    fetches.incrementAndGet();
+                                    return counter.get();
+                                }))
+                        .build())
+                .mutation(GraphQLObjectType.newObject()
+                        .name("CounterMutations")
+                        .field(GraphQLFieldDefinition.newFieldDefinition()
+                                .name("increment")
+                                .type(Scalars.GraphQLInt)
+                                .dataFetcher(environment -> counter.incrementAndGet()))
+                        .build())
+                .build();
+    }
+
+    private static GraphQLSchema charactersSchema() {
+        GraphQLObjectType characterType = GraphQLObjectType.newObject()
+                .name("Character")
+                .field(GraphQLFieldDefinition.newFieldDefinition()
+                        .name("name")
+                        .type(Scalars.GraphQLString)
+                        .dataFetcher(environment -> environment.<QueryContext>getContext()
+                                .<Integer, String>dataLoader("names").load(environment.getSource())))
+                .field(GraphQLFieldDefinition.newFieldDefinition()
+                        .name("friends")
+                        .type(new GraphQLList(new GraphQLTypeReference("Character")))
+                        .dataFetcher(environment -> Arrays.asList(
+                                (Integer) environment.getSource() % 3 + 1, (Integer) environment.getSource() + 3)))
+                .build();
+        return GraphQLSchema.newSchema().query(GraphQLObjectType.newObject()
+                .name("CharacterQueries")
+                .field(GraphQLFieldDefinition.newFieldDefinition()
+                        .name("characters")
+                        .type(new GraphQLList(characterType))
+                        .dataFetcher(environment -> Arrays.asList(1, 2, 3)))
+                .build()).build();
+    }
+
+    private static GraphQLSchema slowSchema(AtomicInteger fetches, long sleepMillis) {
+        return slowSchema(fetches, sleepMillis, new ArrayList<>());
+    }
+
+    private static GraphQLSchema slowSchema(AtomicInteger fetches, long sleepMillis, List<String> threads) {
+        return GraphQLSchema.newSchema().query(GraphQLObjectType.newObject()
+                .name("SlowQueries")
+                .field(GraphQLFieldDefinition.newFieldDefinition()
+                        .name("slow")
+                        .type(Scalars.GraphQLString)
+                        .dataFetcher(environment -> {
+                            fetches.incrementAndGet();
+                            threads.add(Thread.currentThread().getName());
+                            try {
+                                Thread.sleep(sleepMillis);
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return "done";
+                        }))
+                .build()).build();
+    }
+}
@@ -16,18 +16,22 @@
 
 package io.engagingspaces.graphql.servicediscovery.client;
 
+import io.engagingspaces.graphql.query.QueryDigest;
 import io.engagingspaces.graphql.query.QueryResult;
 import io.engagingspaces.graphql.query.Queryable;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceReference;
 import io.vertx.servicediscovery.Status;
 
+import java.util.List;
 import java.util.Objects;
 
 import static io.engagingspaces.graphql.query.Queryable.SERVICE_TYPE;
@@ -81,6 +85,24 @@ public interface GraphQLClient {
      */
     static void getSchemaProxy(ServiceDiscovery discovery, Record record,
                                Handler<AsyncResult<Queryable>> resultHandler) {
+        getSchemaProxy(discovery, record, null, resultHandler);
+    }
+
+    /**
+     * Get the GraphQL service proxy that is associated with the provided service record, using the specified
+     * delivery options.
+     * <p>
+     * Service proxies are cached per service discovery, record endpoint and delivery options (see
+     * {@link SchemaProxyCache}), so that only the first invocation for an endpoint retrieves a service reference
+     * from the service discovery.
+     *
+     * @param discovery       the service discovery instance
+     * @param record          the service record of a published GraphQL service
+     * @param deliveryOptions the delivery options of the service proxy, or {@code null} for defaults
+     * @param resultHandler   the result handler
+     */
+    static void getSchemaProxy(ServiceDiscovery discovery, Record record, JsonObject deliveryOptions,
+                               Handler<AsyncResult<Queryable>> resultHandler) {
         Objects.requireNonNull(discovery, "Service discovery cannot be null");
         Objects.requireNonNull(record, "Record cannot be null");
         Objects.requireNonNull(resultHandler, "Schema proxy result handler cannot be null");
@@ -95,9 +117,13 @@ public interface GraphQLClient {
             resultHandler.handle(Future.failedFuture("Record '" + record.getName() +
                     "' has no service discovery registration"));
         } else {
-            ServiceReference reference = discovery.getReference(record);
-            Queryable queryable = reference.cached() == null ? reference.get() : reference.cached();
-            reference.release();
+            Queryable queryable = SchemaProxyCache.forDiscovery(discovery).get(record, deliveryOptions, () -> {
+                ServiceReference reference = discovery.getReferenceWithConfiguration(record, deliveryOptions == null ?
+                        new JsonObject() : new JsonObject().put("deliveryOptions", deliveryOptions));
+                Queryable proxy = reference.cached() == null ? reference.get() : reference.cached();
+                reference.release();
+                return proxy;
+            });
             resultHandler.handle(Future.succeededFuture(queryable));
         }
     }
@@ -129,6 +155,11 @@ public interface GraphQLClient {
      * <p>
      * The top-level keys in the `variables` parameter represent the variable names that are used in the query, and
      * the json values are passed as {@link Object} to the query executor.
+     * <p>
+     * To reduce the message size the query is first sent as a persisted query, using only the hash of the query text.
+     * If the GraphQL service does not know the query yet, or does not support persisted queries, the full query
+     * text is sent once, after which the service persists it for subsequent executions. Services that do not support
+     * persisted queries are remembered in the {@link SchemaProxyCache}, and receive the full query text right away.
      *
      * @param discovery     the service discovery instance
      * @param record        the service record of a published GraphQL service
@@ -145,10 +176,105 @@ public interface GraphQLClient {
 
         getSchemaProxy(discovery, record, rh -> {
            if (rh.succeeded()) {
-               rh.result().queryWithVariables(query, variables, resultHandler);
+               Queryable queryable = rh.result();
+               SchemaProxyCache proxyCache = SchemaProxyCache.forDiscovery(discovery);
+               if (proxyCache.isPersistedQueryUnsupported(record)) {
+                   queryable.queryWithVariables(query, variables, resultHandler);
+                   return;
+               }
+               queryable.queryPersisted(QueryDigest.sha256(query), variables, ph -> {
+                   if (ph.succeeded() && !isPersistedQueryNotFound(ph.result())) {
+                       resultHandler.handle(ph);
+                   } else if (ph.succeeded()) {
+                       queryable.queryWithVariables(query, variables, resultHandler);
+                   } else if (isPersistedQueryUnsupported(ph.cause())) {
+                       proxyCache.setPersistedQueryUnsupported(record);
+                       queryable.queryWithVariables(query, variables, resultHandler);
+                   } else {
+                       resultHandler.handle(Future.failedFuture(ph.cause()));
+                   }
+               });
            } else {
                resultHandler.handle(Future.failedFuture(rh.cause()));
            }
         });
     }
+
+    /**
+     * Executes the parametrized GraphQL query on the GraphQL service associated with the first of the provided
+     * service records, hedging read queries on the second record using the provided query hedger.
+     * <p>
+     * If no reply is received within the hedging delay the query is sent to the second record as well, and the first
+     * successful query result is returned. Mutations are only sent to the first record.
+     *
+     * @param discovery     the service discovery instance
+     * @param records       the service records of GraphQL services publishing the same schema, in order of preference
+     * @param query         the GraphQL query
+     * @param variables     the variables to pass to the query executor
+     * @param hedger        the query hedger
+     * @param resultHandler the result handler
+     */
+    @GenIgnore
+    static void executeQuery(ServiceDiscovery discovery, List<Record> records, String query, JsonObject variables,
+                             QueryHedger hedger, Handler<AsyncResult<QueryResult>> resultHandler) {
+        Objects.requireNonNull(discovery, "Service discovery cannot be null");
+        Objects.requireNonNull(hedger, "Query hedger cannot be null");
+        hedger.execute(query, records, (record, handler) ->
+                executeQuery(discovery, record, query, variables, handler), resultHandler);
+    }
+
+    /**
+     * Executes a batch of GraphQL queries on the GraphQL service that is associated with the provided service record,
+     * using a single round trip.
+     * <p>
+     * Each entry is a json object with a {@code query} string and optional {@code variables} object. On success the
+     * query results are returned in the same order as the entries. Be sure to check {@link QueryResult#isSucceeded()}
+     * on each of the query results, as entries may fail individually.
+     *
+     * @param discovery     the service discovery instance
+     * @param record        the service record of a published GraphQL service
+     * @param queries       the GraphQL queries and their variables
+     * @param resultHandler the result handler
+     */
+    static void executeQuery(ServiceDiscovery discovery, Record record, List<JsonObject> queries,
+                             Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+        Objects.requireNonNull(discovery, "Service discovery cannot be null");
+        Objects.requireNonNull(record, "Record cannot be null");
+        Objects.requireNonNull(queries, "GraphQL queries cannot be null");
+        Objects.requireNonNull(resultHandler, "Query result handler cannot be null");
+
+        getSchemaProxy(discovery, record, rh -> {
+            if (rh.succeeded()) {
+                rh.result().queryBatch(queries, resultHandler);
+            } else {
+                resultHandler.handle(Future.failedFuture(rh.cause()));
+            }
+        });
+    }
+
+    /**
+     * Checks whether the query result indicates the GraphQL service did not know the persisted query.
+     *
+     * @param queryResult the result of a persisted query
+     * @return {@code true} if the full query text needs to be sent, {@code false} otherwise
+     */
+    @GenIgnore
+    static boolean isPersistedQueryNotFound(QueryResult queryResult) {
+        return queryResult != null && !queryResult.isSucceeded() && queryResult.getErrors().size() == 1 &&
+                QueryResult.QueryError.PERSISTED_QUERY_NOT_FOUND.equals(
+                        queryResult.getErrors().get(0).getErrorType());
+    }
+
+    /**
+     * Checks whether the failure of a persisted query was caused by a GraphQL service that does not support
+     * persisted queries, i.e. a service that was published by an older version of this library.
+     *
+     * @param cause the failure cause
+     * @return {@code true} if the full query text needs to be sent, {@code false} otherwise
+     */
+    @GenIgnore
+    static boolean isPersistedQueryUnsupported(Throwable cause) {
+        return cause instanceof ReplyException && cause.getMessage() != null &&
+                cause.getMessage().startsWith("Invalid action");
+    }
 }
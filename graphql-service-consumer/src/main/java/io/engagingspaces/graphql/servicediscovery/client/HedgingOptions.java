@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.client;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * Options for hedging read queries (see {@link QueryHedger}).
+ * <p>
+ * If no reply is received within the configured percentile of the observed query latencies, the query is sent to a
+ * second graphql service of the same schema, and the first successful reply is used. The number of hedged queries
+ * is limited to a ratio of all queries, so that hedging does not add significant load to slow publishers.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class HedgingOptions {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+    public static final long DEFAULT_MIN_DELAY = 5;
+    public static final long DEFAULT_MIN_SAMPLES = 100;
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+    private double percentile = DEFAULT_PERCENTILE;
+    private long minDelay = DEFAULT_MIN_DELAY;
+    private long minSamples = DEFAULT_MIN_SAMPLES;
+    private double budgetRatio = DEFAULT_BUDGET_RATIO;
+
+    /**
+     * Creates hedging options with default values.
+     */
+    public HedgingOptions() {
+    }
+
+    /**
+     * Creates a copy of the provided hedging options.
+     *
+     * @param other the options to copy
+     */
+    public HedgingOptions(HedgingOptions other) {
+        Objects.requireNonNull(other, "Hedging options cannot be null");
+        this.percentile = other.percentile;
+        this.minDelay = other.minDelay;
+        this.minSamples = other.minSamples;
+        this.budgetRatio = other.budgetRatio;
+    }
+
+    /**
+     * Creates hedging options from its json representation, using default values for missing keys.
+     *
+     * @param json the json object
+     */
+    public HedgingOptions(JsonObject json) {
+        Objects.requireNonNull(json, "Hedging options json cannot be null");
+        this.percentile = json.getDouble("percentile", DEFAULT_PERCENTILE);
+        this.minDelay = json.getLong("minDelay", DEFAULT_MIN_DELAY);
+        this.minSamples = json.getLong("minSamples", DEFAULT_MIN_SAMPLES);
+        this.budgetRatio = json.getDouble("budgetRatio", DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * @return the percentile of observed latencies after which a query is hedged
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @param percentile the percentile of observed latencies after which a query is hedged, between {@code 0} and
+     *                   {@code 100}
+     * @return this, for fluent calls
+     */
+    public HedgingOptions setPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * @return the minimum time in milliseconds to wait for a reply before a query is hedged
+     */
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * @param minDelay the minimum time in milliseconds to wait for a reply before a query is hedged
+     * @return this, for fluent calls
+     */
+    public HedgingOptions setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+        return this;
+    }
+
+    /**
+     * @return the number of latencies that must be observed before queries are hedged
+     */
+    public long getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * @param minSamples the number of latencies that must be observed before queries are hedged
+     * @return this, for fluent calls
+     */
+    public HedgingOptions setMinSamples(long minSamples) {
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    /**
+     * @return the maximum ratio of hedged queries to queries
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * @param budgetRatio the maximum ratio of hedged queries to queries, e.g. {@code 0.05} for at most one hedged
+     *                    query per 20 queries
+     * @return this, for fluent calls
+     */
+    public HedgingOptions setBudgetRatio(double budgetRatio) {
+        if (budgetRatio < 0 || budgetRatio > 1) {
+            throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+        }
+        this.budgetRatio = budgetRatio;
+        return this;
+    }
+
+    /**
+     * @return the json representation of the hedging options
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("percentile", percentile)
+                .put("minDelay", minDelay)
+                .put("minSamples", minSamples)
+                .put("budgetRatio", budgetRatio);
+    }
+}
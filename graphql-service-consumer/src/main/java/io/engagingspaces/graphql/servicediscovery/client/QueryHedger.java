@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.client;
+
+import io.engagingspaces.graphql.query.QueryDigest;
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.schema.LatencyHistogram;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends read queries to a second graphql service if the first one does not reply in time.
+ * <p>
+ * The hedging delay is the configured percentile of the latencies of successful queries executed by the hedger.
+ * The number of hedged queries is bounded by a token bucket, to which every query adds the budget ratio of a token,
+ * and every hedged query takes a whole token. Mutations are never hedged.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class QueryHedger {
+
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final Vertx vertx;
+    private final HedgingOptions options;
+    private final long depositPerQuery;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong tokens = new AtomicLong();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private QueryHedger(Vertx vertx, HedgingOptions options) {
+        this.vertx = Objects.requireNonNull(vertx, "Vertx cannot be null");
+        this.options = new HedgingOptions(Objects.requireNonNull(options, "Hedging options cannot be null"));
+        this.depositPerQuery = Math.round(options.getBudgetRatio() * TOKEN);
+    }
+
+    /**
+     * Creates a new query hedger.
+     *
+     * @param vertx   the vert.x instance
+     * @param options the hedging options
+     * @return the query hedger
+     */
+    public static QueryHedger create(Vertx vertx, HedgingOptions options) {
+        return new QueryHedger(vertx, options);
+    }
+
+    /**
+     * @return the hedging options
+     */
+    public HedgingOptions getOptions() {
+        return new HedgingOptions(options);
+    }
+
+    /**
+     * Executes the query on the first record, and if it is a read query that is not answered within the hedging
+     * delay, also on the second record. The result handler receives the first successful result, or the last failure
+     * if all attempts failed.
+     *
+     * @param query         the GraphQL query
+     * @param records       the records to send the query to, in order of preference
+     * @param sender        sends the query to a record, and passes the reply to the provided handler
+     * @param resultHandler the result handler
+     */
+    public void execute(String query, List<Record> records,
+                        BiConsumer<Record, Handler<AsyncResult<QueryResult>>> sender,
+                        Handler<AsyncResult<QueryResult>> resultHandler) {
+        Objects.requireNonNull(query, "GraphQL query cannot be null");
+        Objects.requireNonNull(records, "Records cannot be null");
+        Objects.requireNonNull(sender, "Query sender cannot be null");
+        Objects.requireNonNull(resultHandler, "Query result handler cannot be null");
+        if (records.isEmpty()) {
+            resultHandler.handle(Future.failedFuture("No records to send query to"));
+            return;
+        }
+        queries.increment();
+        tokens.accumulateAndGet(depositPerQuery, (current, deposit) -> Math.min(MAX_TOKENS, current + deposit));
+
+        HedgedQuery hedgedQuery = new HedgedQuery(resultHandler);
+        hedgedQuery.send(records.get(0), sender, false);
+        long delay = hedgeDelay();
+        if (records.size() < 2 || delay < 0 || hedgedQuery.isCompleted() || QueryDigest.isMutation(query)) {
+            return;
+        }
+        long timerId = vertx.setTimer(delay, id -> {
+            if (!hedgedQuery.isCompleted() && withdrawToken()) {
+                hedged.increment();
+                hedgedQuery.send(records.get(1), sender, true);
+            }
+        });
+        hedgedQuery.onCompleted(() -> vertx.cancelTimer(timerId));
+    }
+
+    /**
+     * @return the delay in milliseconds after which queries are hedged, or {@code -1} if not enough latencies have
+     * been observed yet
+     */
+    public long hedgeDelay() {
+        if (latencies.count() < options.getMinSamples()) {
+            return -1;
+        }
+        long percentile = TimeUnit.MICROSECONDS.toMillis(latencies.percentile(options.getPercentile()));
+        return Math.max(Math.max(1, options.getMinDelay()), percentile);
+    }
+
+    /**
+     * @return the number of queries executed by the hedger
+     */
+    public long queries() {
+        return queries.sum();
+    }
+
+    /**
+     * @return the number of queries that were sent a second time
+     */
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * @return the number of hedged queries where the second reply was used
+     */
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    private boolean withdrawToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private final class HedgedQuery {
+
+        private final Handler<AsyncResult<QueryResult>> resultHandler;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile Runnable completionAction;
+
+        private HedgedQuery(Handler<AsyncResult<QueryResult>> resultHandler) {
+            this.resultHandler = resultHandler;
+        }
+
+        private boolean isCompleted() {
+            return completed.get();
+        }
+
+        private void onCompleted(Runnable action) {
+            completionAction = action;
+            if (completed.get()) {
+                action.run();
+            }
+        }
+
+        private void send(Record record, BiConsumer<Record, Handler<AsyncResult<QueryResult>>> sender,
+                          boolean hedge) {
+            pending.incrementAndGet();
+            long start = System.nanoTime();
+            sender.accept(record, rh -> {
+                boolean last = pending.decrementAndGet() == 0;
+                if (rh.succeeded()) {
+                    latencies.record(System.nanoTime() - start);
+                    if (completed.compareAndSet(false, true)) {
+                        if (hedge) {
+                            hedgeWins.increment();
+                        }
+                        complete(rh);
+                    }
+                } else if (last && completed.compareAndSet(false, true)) {
+                    complete(rh);
+                }
+            });
+        }
+
+        private void complete(AsyncResult<QueryResult> result) {
+            Runnable action = completionAction;
+            if (action != null) {
+                action.run();
+            }
+            resultHandler.handle(result);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.client;
+
+import io.engagingspaces.graphql.query.Queryable;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of {@link Queryable} service proxies of the graphql services of a service discovery, keyed by record endpoint
+ * and delivery options.
+ * <p>
+ * Service proxies are stateless, so a single proxy per endpoint and delivery options can be shared by all queries.
+ * Once a proxy is cached, retrieving it requires no service discovery lookups and allocates no objects. Entries
+ * must be invalidated when the record of the endpoint is withdrawn, which the discovery registrar of schema consumers
+ * does when it receives `announce` events.
+ * <p>
+ * The cache also remembers the endpoints of graphql services that do not support persisted queries, so that clients
+ * send the full query text to them right away. This is forgotten when the record of the endpoint is withdrawn.
+ * <p>
+ * Caches are kept per service discovery instance, because the service discovery does not expose its vert.x instance.
+ * A cache only references the service proxies and never its service discovery, so it is discarded when the service
+ * discovery is garbage collected, regardless of the vert.x instance being closed. The discovery registrar of schema
+ * consumers removes the cache as soon as it closes a managed service discovery (see {@link #remove(ServiceDiscovery)}).
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class SchemaProxyCache {
+
+    private static final Map<ServiceDiscovery, SchemaProxyCache> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static final JsonObject DEFAULT_OPTIONS = new JsonObject();
+
+    private final ConcurrentMap<String, ConcurrentMap<JsonObject, Queryable>> proxies = new ConcurrentHashMap<>();
+    private final Set<String> persistedQueriesUnsupported = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private SchemaProxyCache() {
+    }
+
+    /**
+     * Gets the proxy cache of the specified service discovery, and creates it if it does not exist.
+     *
+     * @param discovery the service discovery
+     * @return the proxy cache
+     */
+    public static SchemaProxyCache forDiscovery(ServiceDiscovery discovery) {
+        Objects.requireNonNull(discovery, "Service discovery cannot be null");
+        return CACHES.computeIfAbsent(discovery, key -> new SchemaProxyCache());
+    }
+
+    /**
+     * Discards the proxy cache of the specified service discovery, e.g. when the service discovery is closed.
+     *
+     * @param discovery the service discovery
+     */
+    public static void remove(ServiceDiscovery discovery) {
+        if (discovery != null) {
+            CACHES.remove(discovery);
+        }
+    }
+
+    /**
+     * Gets the cached service proxy of the record endpoint and delivery options, or creates and caches it.
+     *
+     * @param record          the service record of a published GraphQL service
+     * @param deliveryOptions the delivery options of the proxy, or {@code null} for defaults
+     * @param factory         the factory that creates the proxy when it is not cached
+     * @return the service proxy
+     */
+    public Queryable get(Record record, JsonObject deliveryOptions, Supplier<Queryable> factory) {
+        Objects.requireNonNull(record, "Record cannot be null");
+        Objects.requireNonNull(factory, "Service proxy factory cannot be null");
+        String endpoint = endpoint(record);
+        if (endpoint == null) {
+            misses.increment();
+            return factory.get();
+        }
+        JsonObject options = deliveryOptions == null ? DEFAULT_OPTIONS : deliveryOptions;
+        Map<JsonObject, Queryable> endpointProxies = proxies.get(endpoint);
+        Queryable proxy = endpointProxies == null ? null : endpointProxies.get(options);
+        if (proxy != null) {
+            hits.increment();
+            return proxy;
+        }
+        misses.increment();
+        return proxies.computeIfAbsent(endpoint, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(options.copy(), key -> factory.get());
+    }
+
+    /**
+     * Checks whether the graphql service at the endpoint of the specified record is known not to support persisted
+     * queries.
+     *
+     * @param record the service record of a published GraphQL service
+     * @return {@code true} if persisted queries are unsupported, {@code false} if supported or not known yet
+     */
+    public boolean isPersistedQueryUnsupported(Record record) {
+        String endpoint = endpoint(record);
+        return endpoint != null && persistedQueriesUnsupported.contains(endpoint);
+    }
+
+    /**
+     * Remembers that the graphql service at the endpoint of the specified record does not support persisted queries.
+     *
+     * @param record the service record of a published GraphQL service
+     */
+    public void setPersistedQueryUnsupported(Record record) {
+        String endpoint = endpoint(record);
+        if (endpoint != null) {
+            persistedQueriesUnsupported.add(endpoint);
+        }
+    }
+
+    /**
+     * Removes the cached service proxies of the endpoint of the specified record.
+     *
+     * @param record the service record that was withdrawn
+     */
+    public void invalidate(Record record) {
+        String endpoint = endpoint(record);
+        if (endpoint != null) {
+            persistedQueriesUnsupported.remove(endpoint);
+            if (proxies.remove(endpoint) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached service proxies.
+     */
+    public void clear() {
+        proxies.clear();
+        persistedQueriesUnsupported.clear();
+    }
+
+    /**
+     * @return the number of cached service proxies
+     */
+    public int size() {
+        return proxies.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * @return the number of times a cached service proxy was returned
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of times a service proxy had to be created
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of endpoints for which cached service proxies were invalidated
+     */
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    private static String endpoint(Record record) {
+        return record == null || record.getLocation() == null ? null : record.getLocation().getString(Record.ENDPOINT);
+    }
+}
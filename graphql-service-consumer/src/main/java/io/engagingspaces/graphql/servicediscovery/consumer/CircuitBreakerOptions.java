@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * Options of the per-endpoint circuit breakers of a {@link DiscoveryRegistrar}.
+ * <p>
+ * The circuit of an endpoint opens after a number of consecutive failed requests, where requests that take longer
+ * than the slow call duration also count as failures. While open, the endpoint is ejected from selection. After the
+ * open duration a single probe request is admitted (half-open), which closes the circuit if it succeeds, or opens it
+ * again if it fails.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class CircuitBreakerOptions {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_SLOW_CALL_DURATION = 0;
+    public static final long DEFAULT_OPEN_DURATION = 10000;
+
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+    private long openDuration = DEFAULT_OPEN_DURATION;
+
+    /**
+     * Creates circuit breaker options with default values.
+     */
+    public CircuitBreakerOptions() {
+    }
+
+    /**
+     * Creates a copy of the provided circuit breaker options.
+     *
+     * @param other the options to copy
+     */
+    public CircuitBreakerOptions(CircuitBreakerOptions other) {
+        Objects.requireNonNull(other, "Circuit breaker options cannot be null");
+        this.failureThreshold = other.failureThreshold;
+        this.slowCallDuration = other.slowCallDuration;
+        this.openDuration = other.openDuration;
+    }
+
+    /**
+     * Creates circuit breaker options from its json representation, using default values for missing keys.
+     *
+     * @param json the json object
+     */
+    public CircuitBreakerOptions(JsonObject json) {
+        Objects.requireNonNull(json, "Circuit breaker options json cannot be null");
+        this.failureThreshold = json.getInteger("failureThreshold", DEFAULT_FAILURE_THRESHOLD);
+        this.slowCallDuration = json.getLong("slowCallDuration", DEFAULT_SLOW_CALL_DURATION);
+        this.openDuration = json.getLong("openDuration", DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * @return the number of consecutive failures after which the circuit of an endpoint opens
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failures after which the circuit of an endpoint opens
+     * @return this, for fluent calls
+     */
+    public CircuitBreakerOptions setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        return this;
+    }
+
+    /**
+     * @return the duration in milliseconds after which a request counts as failed, or {@code 0} if disabled
+     */
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * @param slowCallDuration the duration in milliseconds after which a request counts as failed, or {@code 0} to
+     *                         only count failed requests
+     * @return this, for fluent calls
+     */
+    public CircuitBreakerOptions setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds an endpoint is ejected before a probe request is admitted
+     */
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * @param openDuration the time in milliseconds an endpoint is ejected before a probe request is admitted
+     * @return this, for fluent calls
+     */
+    public CircuitBreakerOptions setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    /**
+     * @return the json representation of the circuit breaker options
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("failureThreshold", failureThreshold)
+                .put("slowCallDuration", slowCallDuration)
+                .put("openDuration", openDuration);
+    }
+}
@@ -18,25 +18,58 @@ package io.engagingspaces.graphql.servicediscovery.consumer;
 
 import io.engagingspaces.graphql.discovery.impl.AbstractRegistrar;
 import io.engagingspaces.graphql.discovery.impl.AbstractRegistration;
+import io.engagingspaces.graphql.events.SchemaAnnounceBatchHandler;
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
 import io.engagingspaces.graphql.events.SchemaUsageHandler;
 import io.engagingspaces.graphql.events.impl.SchemaMessageConsumers;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.EndpointCircuitBreakers;
+import io.engagingspaces.graphql.servicediscovery.client.HedgingOptions;
+import io.engagingspaces.graphql.servicediscovery.client.QueryHedger;
+import io.engagingspaces.graphql.servicediscovery.client.SchemaProxyCache;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.Status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Manages {@link ServiceDiscovery} creation, and registration of discovery events.
+ * <p>
+ * For every managed service discovery a local index of graphql service records is maintained from the `announce`
+ * events, so that records can be found without querying the service discovery backend. The same events invalidate
+ * the cached service proxies (see {@link SchemaProxyCache}) of withdrawn records.
+ * <p>
+ * If circuit breaker options are set, endpoints that fail repeatedly are ejected from selection until a probe
+ * request succeeds again (see {@link CircuitBreakerOptions}). If hedging options are set, read queries that are not
+ * answered in time are also sent to a second publisher of the schema (see {@link QueryHedger}).
  *
  * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
  */
 public class DiscoveryRegistrar extends AbstractRegistrar<DiscoveryRegistration> {
 
     private final SchemaMessageConsumers eventManager;
+    private final ConcurrentMap<String, SchemaRecordIndex> recordIndexes;
+    private volatile LoadBalancer loadBalancer;
+    private volatile EndpointCircuitBreakers circuitBreakers;
+    private volatile QueryHedger queryHedger;
+    private volatile long announceCoalescing;
 
     protected DiscoveryRegistrar(Vertx vertx) {
         super(vertx);
         this.eventManager = new SchemaMessageConsumers(vertx);
+        this.recordIndexes = new ConcurrentHashMap<>();
+        this.loadBalancer = LoadBalancer.firstAvailable();
     }
 
     /**
@@ -49,6 +82,98 @@ public class DiscoveryRegistrar extends AbstractRegistrar<DiscoveryRegistration>
         return new DiscoveryRegistrar(vertx);
     }
 
+    /**
+     * @return the load balancer that selects between the records of schema's that are published multiple times
+     */
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    /**
+     * Sets the load balancer that selects between the records of schema's that are published multiple times, i.e.
+     * with the same schema name but different service addresses. The default balancer always selects the record that
+     * was announced first.
+     *
+     * @param loadBalancer the load balancer
+     * @return this, for fluent calls
+     */
+    public DiscoveryRegistrar setLoadBalancer(LoadBalancer loadBalancer) {
+        this.loadBalancer = Objects.requireNonNull(loadBalancer, "Load balancer cannot be null");
+        return this;
+    }
+
+    /**
+     * @return the circuit breaker options, or {@code null} if circuit breaking is disabled
+     */
+    public CircuitBreakerOptions getCircuitBreakerOptions() {
+        EndpointCircuitBreakers breakers = circuitBreakers;
+        return breakers == null ? null : breakers.getOptions();
+    }
+
+    /**
+     * Sets the options of the per-endpoint circuit breakers, which eject endpoints from selection after repeated
+     * failed or slow requests. Circuit breaking is disabled by default. Setting new options resets the state of all
+     * circuits.
+     *
+     * @param options the circuit breaker options, or {@code null} to disable circuit breaking
+     * @return this, for fluent calls
+     */
+    public DiscoveryRegistrar setCircuitBreakerOptions(CircuitBreakerOptions options) {
+        this.circuitBreakers = options == null ? null : new EndpointCircuitBreakers(options);
+        return this;
+    }
+
+    /**
+     * @return the hedging options, or {@code null} if hedging is disabled
+     */
+    public HedgingOptions getHedgingOptions() {
+        QueryHedger hedger = queryHedger;
+        return hedger == null ? null : hedger.getOptions();
+    }
+
+    /**
+     * Sets the options for hedging read queries to schema's that are published multiple times. Hedging is disabled
+     * by default. Setting new options discards the latencies observed so far.
+     *
+     * @param options the hedging options, or {@code null} to disable hedging
+     * @return this, for fluent calls
+     */
+    public DiscoveryRegistrar setHedgingOptions(HedgingOptions options) {
+        this.queryHedger = options == null ? null : QueryHedger.create(vertx, options);
+        return this;
+    }
+
+    /**
+     * @return the query hedger, or {@code null} if hedging is disabled
+     */
+    protected QueryHedger queryHedger() {
+        return queryHedger;
+    }
+
+    /**
+     * @return the time window in milliseconds over which `announce` events are coalesced, or {@code 0} if disabled
+     */
+    public long getAnnounceCoalescing() {
+        return announceCoalescing;
+    }
+
+    /**
+     * Sets the time window over which `announce` events are coalesced, for service discoveries that are started
+     * after this call. Coalescing is disabled by default.
+     * <p>
+     * When enabled, the events of a window are deduplicated, keeping the latest status of each graphql service, and
+     * delivered as a batch. Announce handlers that implement {@link SchemaAnnounceBatchHandler} receive the batch,
+     * others are invoked for each record in the batch. The record index, the load balancer, the circuit breakers and
+     * the proxy cache are still updated on every event, so withdrawn records are never selected during the window.
+     *
+     * @param windowMillis the time window in milliseconds, or {@code 0} to deliver every event immediately
+     * @return this, for fluent calls
+     */
+    public DiscoveryRegistrar setAnnounceCoalescing(long windowMillis) {
+        this.announceCoalescing = Math.max(0, windowMillis);
+        return this;
+    }
+
     /**
      * Registers the provided event handlers to the `announce` and `usage` events of the service discovery
      * specified in the service discovery options.
@@ -65,7 +190,19 @@ public class DiscoveryRegistrar extends AbstractRegistrar<DiscoveryRegistration>
             stopListening(options);
             return null;
         });
-        eventManager.registerConsumer(options.getAnnounceAddress(), announceHandler);
+        recordIndexes.computeIfAbsent(options.getName(), name -> {
+            SchemaRecordIndex index = new SchemaRecordIndex(options.getAnnounceAddress());
+            index.load(discovery);
+            return index;
+        });
+        if (announceCoalescing > 0) {
+            eventManager.registerConsumer(options.getAnnounceAddress(),
+                    record -> indexRecord(options.getAnnounceAddress(), record),
+                    SchemaAnnounceBatchHandler.of(announceHandler), announceCoalescing);
+        } else {
+            eventManager.registerConsumer(options.getAnnounceAddress(),
+                    indexingHandler(options.getAnnounceAddress(), announceHandler));
+        }
         eventManager.registerConsumer(options.getUsageAddress(), usageHandler);
         return register(options.getName(), DiscoveryRegistration.create(discovery, options));
     }
@@ -78,9 +215,153 @@ public class DiscoveryRegistrar extends AbstractRegistrar<DiscoveryRegistration>
     protected void stopListening(ServiceDiscoveryOptions options) {
         eventManager.unregisterConsumer(options.getAnnounceAddress());
         eventManager.unregisterConsumer(options.getUsageAddress());
+        if (options.getName() != null) {
+            recordIndexes.remove(options.getName());
+        }
+        SchemaProxyCache.remove(getDiscovery(options.getName()));
         closeServiceDiscovery(options.getName());
     }
 
+    /**
+     * Finds the graphql service record of the specified schema in the specified managed service discovery.
+     * <p>
+     * The record is looked up in the local record index. If the schema is published multiple times, the
+     * {@link LoadBalancer} selects one of its records. Only if it is not indexed (e.g. because the schema was
+     * published just now and its `announce` event has not yet been received) the service discovery is queried, and
+     * the records that are found are added to the index. If no record is found the result is {@code null}, and the
+     * schema is not queried again until it is announced or a short while has passed. If the circuits of all
+     * endpoints of the schema are open, the result is failed.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param schemaName    the name of the schema definition
+     * @param resultHandler the result handler
+     */
+    protected void findRecord(String discoveryName, String schemaName, Handler<AsyncResult<Record>> resultHandler) {
+        Objects.requireNonNull(resultHandler, "Record result handler cannot be null");
+        findRecords(discoveryName, schemaName, 1, rh -> {
+            if (rh.failed()) {
+                resultHandler.handle(Future.failedFuture(rh.cause()));
+            } else {
+                resultHandler.handle(Future.succeededFuture(rh.result().isEmpty() ? null : rh.result().get(0)));
+            }
+        });
+    }
+
+    /**
+     * Finds up to the specified number of graphql service records of the specified schema, with distinct endpoints,
+     * in the specified managed service discovery.
+     * <p>
+     * The first record is selected by the {@link LoadBalancer}, the others are the next available records in order
+     * of announcement. Records are looked up the same way as in {@link #findRecord}, except that the result is an
+     * empty list if none are found.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param schemaName    the name of the schema definition
+     * @param count         the maximum number of records to find
+     * @param resultHandler the result handler
+     */
+    protected void findRecords(String discoveryName, String schemaName, int count,
+                               Handler<AsyncResult<List<Record>>> resultHandler) {
+        Objects.requireNonNull(schemaName, "Schema definition name cannot be null");
+        Objects.requireNonNull(resultHandler, "Records result handler cannot be null");
+        ServiceDiscovery discovery = getDiscovery(discoveryName);
+        if (discovery == null) {
+            resultHandler.handle(Future.failedFuture("Service discovery with name '" + discoveryName +
+                    "' is not managed by this discovery registrar"));
+            return;
+        }
+        SchemaRecordIndex index = recordIndexes.get(discoveryName);
+        List<Record> indexed = index == null ? Collections.emptyList() : index.findAll(schemaName);
+        if (!indexed.isEmpty()) {
+            resultHandler.handle(selectRecords(schemaName, indexed, count));
+        } else if (index != null && index.isMissing(schemaName)) {
+            resultHandler.handle(Future.succeededFuture(Collections.emptyList()));
+        } else {
+            long generation = index == null ? 0 : index.generation();
+            discovery.getRecords(record -> schemaName.equals(record.getName()), rh -> {
+                if (rh.succeeded() && index != null) {
+                    index.fill(schemaName, rh.result(), generation);
+                }
+                if (rh.failed()) {
+                    resultHandler.handle(Future.failedFuture(rh.cause()));
+                } else if (rh.result().isEmpty()) {
+                    resultHandler.handle(Future.succeededFuture(Collections.emptyList()));
+                } else {
+                    resultHandler.handle(selectRecords(schemaName, rh.result(), count));
+                }
+            });
+        }
+    }
+
+    private Future<List<Record>> selectRecords(String schemaName, List<Record> records, int count) {
+        EndpointCircuitBreakers breakers = circuitBreakers;
+        List<Record> available = breakers == null ? records : breakers.available(records);
+        if (available.isEmpty()) {
+            return Future.failedFuture("All publishers of schema '" + schemaName +
+                    "' are unavailable, because their circuits are open");
+        }
+        Record selected = loadBalancer.select(available);
+        if (count <= 1 || available.size() == 1) {
+            return Future.succeededFuture(Collections.singletonList(selected));
+        }
+        List<Record> selection = new ArrayList<>(Math.min(count, available.size()));
+        selection.add(selected);
+        for (Record record : available) {
+            if (selection.size() == count) {
+                break;
+            } else if (record != selected && !Objects.equals(endpoint(record), endpoint(selected))) {
+                selection.add(record);
+            }
+        }
+        return Future.succeededFuture(selection);
+    }
+
+    private static String endpoint(Record record) {
+        return record.getLocation() == null ? null : record.getLocation().getString(Record.ENDPOINT);
+    }
+
+    /**
+     * Informs the load balancer and circuit breakers that a request is sent to the endpoint of the record, and
+     * returns a result handler that informs them of the completion of the request.
+     *
+     * @param record        the record the request is sent to
+     * @param resultHandler the result handler of the request
+     * @param <T>           the result type of the request
+     * @return the result handler to pass to the request
+     */
+    protected <T> Handler<AsyncResult<T>> trackRequest(Record record, Handler<AsyncResult<T>> resultHandler) {
+        LoadBalancer balancer = loadBalancer;
+        EndpointCircuitBreakers breakers = circuitBreakers;
+        long start = System.nanoTime();
+        balancer.requestStarted(record);
+        if (breakers != null) {
+            breakers.requestStarted(record);
+        }
+        return rh -> {
+            long latency = System.nanoTime() - start;
+            balancer.requestCompleted(record, latency, rh.succeeded());
+            if (breakers != null) {
+                breakers.requestCompleted(record, latency, rh.succeeded());
+            }
+            resultHandler.handle(rh);
+        };
+    }
+
+    /**
+     * @return the circuit breakers, or {@code null} if circuit breaking is disabled
+     */
+    EndpointCircuitBreakers circuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * @param discoveryName the name of the service discovery
+     * @return optional that holds the record index of the managed service discovery, or empty if not managed
+     */
+    Optional<SchemaRecordIndex> recordIndex(String discoveryName) {
+        return discoveryName == null ? Optional.empty() : Optional.ofNullable(recordIndexes.get(discoveryName));
+    }
+
     /**
      * Closes the registrar and release all its resources.
      */
@@ -90,6 +371,35 @@ public class DiscoveryRegistrar extends AbstractRegistrar<DiscoveryRegistration>
                 .map(AbstractRegistration::getDiscoveryOptions)
                 .forEach(this::stopListening);
         eventManager.close();
+        recordIndexes.clear();
+        serviceDiscoveryNames().forEach(discoveryName -> SchemaProxyCache.remove(getDiscovery(discoveryName)));
         super.close();
     }
+
+    private SchemaAnnounceHandler indexingHandler(String announceAddress, SchemaAnnounceHandler announceHandler) {
+        return record -> {
+            indexRecord(announceAddress, record);
+            announceHandler.schemaDiscoveryEvent(record);
+        };
+    }
+
+    private void indexRecord(String announceAddress, Record record) {
+        // Service discoveries may share an announce address, so update all indexes that listen to the address
+        recordIndexes.forEach((discoveryName, index) -> {
+            if (Objects.equals(announceAddress, index.getAnnounceAddress())) {
+                index.update(record);
+                ServiceDiscovery discovery = getDiscovery(discoveryName);
+                if (!Status.UP.equals(record.getStatus())) {
+                    loadBalancer.recordRemoved(record);
+                    EndpointCircuitBreakers breakers = circuitBreakers;
+                    if (breakers != null) {
+                        breakers.recordRemoved(record);
+                    }
+                    if (discovery != null) {
+                        SchemaProxyCache.forDiscovery(discovery).invalidate(record);
+                    }
+                }
+            }
+        });
+    }
 }
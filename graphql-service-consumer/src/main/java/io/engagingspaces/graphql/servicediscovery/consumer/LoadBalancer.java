@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer;
+
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.FirstAvailableBalancer;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.LatencyEwmaBalancer;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.PowerOfTwoChoicesBalancer;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.RoundRobinBalancer;
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+
+/**
+ * Strategy for selecting one of the records of a schema that is published by multiple publishers, when executing
+ * a query from a {@link SchemaConsumer}.
+ * <p>
+ * The records passed to {@link #select(List)} all have status `UP` and the same schema name, but a different
+ * endpoint. Selection must take constant time, as it happens on every query execution. Balancers that take the load
+ * of endpoints into account are informed of the start and completion of every request.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public interface LoadBalancer {
+
+    /**
+     * Creates a balancer that always selects the record that was announced first, i.e. no balancing at all.
+     *
+     * @return the load balancer
+     */
+    static LoadBalancer firstAvailable() {
+        return new FirstAvailableBalancer();
+    }
+
+    /**
+     * Creates a balancer that selects the records in turn.
+     *
+     * @return the load balancer
+     */
+    static LoadBalancer roundRobin() {
+        return new RoundRobinBalancer();
+    }
+
+    /**
+     * Creates a balancer that selects two records at random, and then the one with the least outstanding requests.
+     *
+     * @return the load balancer
+     */
+    static LoadBalancer powerOfTwoChoices() {
+        return new PowerOfTwoChoicesBalancer();
+    }
+
+    /**
+     * Creates a balancer that selects two records at random, and then the one with the lowest exponentially weighted
+     * moving average of its latencies, weighted by its outstanding requests.
+     *
+     * @return the load balancer
+     */
+    static LoadBalancer latencyEwma() {
+        return new LatencyEwmaBalancer(LatencyEwmaBalancer.DEFAULT_DECAY_TIME);
+    }
+
+    /**
+     * Selects the record to send a request to.
+     *
+     * @param records the candidate records, never empty
+     * @return the selected record
+     */
+    Record select(List<Record> records);
+
+    /**
+     * Invoked when a request is sent to the endpoint of the record. Does nothing by default.
+     *
+     * @param record the selected record
+     */
+    default void requestStarted(Record record) {
+        // Nothing to do
+    }
+
+    /**
+     * Invoked when a request to the endpoint of the record has completed. Does nothing by default.
+     *
+     * @param record       the selected record
+     * @param latencyNanos the latency of the request in nanoseconds
+     * @param succeeded    whether the request succeeded
+     */
+    default void requestCompleted(Record record, long latencyNanos, boolean succeeded) {
+        // Nothing to do
+    }
+
+    /**
+     * Invoked when the record was withdrawn from the service discovery, so that any state that is kept for its
+     * endpoint can be released. Does nothing by default.
+     *
+     * @param record the withdrawn record
+     */
+    default void recordRemoved(Record record) {
+        // Nothing to do
+    }
+}
@@ -19,8 +19,10 @@ package io.engagingspaces.graphql.servicediscovery.consumer;
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
 import io.engagingspaces.graphql.events.SchemaReferenceData;
 import io.engagingspaces.graphql.events.SchemaUsageHandler;
+import io.engagingspaces.graphql.query.QueryDigest;
 import io.engagingspaces.graphql.query.QueryResult;
 import io.engagingspaces.graphql.servicediscovery.client.GraphQLClient;
+import io.engagingspaces.graphql.servicediscovery.client.QueryHedger;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -135,6 +137,10 @@ public interface SchemaConsumer extends SchemaAnnounceHandler, SchemaUsageHandle
      * Executes the GraphQL query against the specified schema definition (aka the graphql service name)
      * that is published to the service discovery with the specified name.
      * <p>
+     * The service record of the schema is resolved from the local record index of the discovery registrar, which is
+     * kept current with the `announce` events of the service discovery. If the schema is published multiple times,
+     * the {@link DiscoveryRegistrar#getLoadBalancer() load balancer} of the registrar selects the record.
+     * <p>
      * On success a {@link QueryResult} is returned. The GraphQL query itself may still have failed, so
      * check {@link QueryResult#isSucceeded()} afterwards. If not successful parse errors can be retrieved
      * from {@link QueryResult#getErrors()}.
@@ -161,6 +167,9 @@ public interface SchemaConsumer extends SchemaAnnounceHandler, SchemaUsageHandle
      * <p>
      * The top-level keys in the `variables` json represent the variable names that are used in the query string, and
      * are passed with their corresponding values to the query executor.
+     * <p>
+     * If hedging options are set on the discovery registrar, read queries are hedged on a second publisher of the
+     * schema (see {@link DiscoveryRegistrar#setHedgingOptions}).
      *
      * @param discoveryName the name of the service discovery
      * @param schemaName    the name of the schema definition to query
@@ -180,9 +189,66 @@ public interface SchemaConsumer extends SchemaAnnounceHandler, SchemaUsageHandle
             return;
         }
         ServiceDiscovery discovery = discoveryRegistrar().getDiscovery(discoveryName);
-        discovery.getRecord(record -> schemaName.equals(record.getName()), rh -> {
+        QueryHedger hedger = discoveryRegistrar().queryHedger();
+        if (hedger != null && !QueryDigest.isMutation(query)) {
+            discoveryRegistrar().findRecords(discoveryName, schemaName, 2, rh -> {
+                if (rh.failed()) {
+                    resultHandler.handle(Future.failedFuture(rh.cause()));
+                } else if (rh.result().isEmpty()) {
+                    resultHandler.handle(Future.failedFuture(
+                            "Failed to find published schema '" + schemaName + "' in repository: " + discoveryName));
+                } else {
+                    hedger.execute(query, rh.result(), (record, handler) -> GraphQLClient.executeQuery(
+                            discovery, record, query, variables, discoveryRegistrar().trackRequest(record, handler)),
+                            resultHandler);
+                }
+            });
+            return;
+        }
+        discoveryRegistrar().findRecord(discoveryName, schemaName, rh -> {
+            if (rh.succeeded() && rh.result() != null) {
+                GraphQLClient.executeQuery(discovery, rh.result(), query, variables,
+                        discoveryRegistrar().trackRequest(rh.result(), resultHandler));
+            } else if (rh.failed()) {
+                resultHandler.handle(Future.failedFuture(rh.cause()));
+            } else {
+                resultHandler.handle(Future.failedFuture(
+                        "Failed to find published schema '" + schemaName + "' in repository: " + discoveryName));
+            }
+        });
+    }
+
+    /**
+     * Executes a batch of GraphQL queries against the specified schema definition (aka the graphql service name)
+     * that is published to the service discovery with the specified name, using a single round trip.
+     * <p>
+     * Each entry is a json object with a {@code query} string and optional {@code variables} object. On success the
+     * query results are returned in the same order as the entries. Be sure to check {@link QueryResult#isSucceeded()}
+     * on each of the query results, as entries may fail individually.
+     *
+     * @param discoveryName the name of the service discovery
+     * @param schemaName    the name of the schema definition to query
+     * @param queries       the GraphQL queries and their variables
+     * @param resultHandler the result handler
+     */
+    default void executeQuery(String discoveryName, String schemaName, List<JsonObject> queries,
+                              Handler<AsyncResult<List<QueryResult>>> resultHandler) {
+        Objects.requireNonNull(schemaName, "Schema definition name cannot be null");
+        Objects.requireNonNull(queries, "GraphQL queries cannot be null");
+        Objects.requireNonNull(resultHandler, "Query result handler cannot be null");
+
+        if (!managedDiscoveries().contains(discoveryName)) {
+            resultHandler.handle(Future.failedFuture("Service discovery with name '" + discoveryName +
+                    "' is not managed by this schema consumer"));
+            return;
+        }
+        ServiceDiscovery discovery = discoveryRegistrar().getDiscovery(discoveryName);
+        discoveryRegistrar().findRecord(discoveryName, schemaName, rh -> {
             if (rh.succeeded() && rh.result() != null) {
-                GraphQLClient.executeQuery(discovery, rh.result(), query, variables, resultHandler);
+                GraphQLClient.executeQuery(discovery, rh.result(), queries,
+                        discoveryRegistrar().trackRequest(rh.result(), resultHandler));
+            } else if (rh.failed()) {
+                resultHandler.handle(Future.failedFuture(rh.cause()));
             } else {
                 resultHandler.handle(Future.failedFuture(
                         "Failed to find published schema '" + schemaName + "' in repository: " + discoveryName));
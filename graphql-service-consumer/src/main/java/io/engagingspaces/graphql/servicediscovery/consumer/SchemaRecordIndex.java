@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer;
+
+import io.engagingspaces.graphql.query.Queryable;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.Status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Local index of the graphql service records of a managed service discovery, keyed by schema name.
+ * <p>
+ * The index is loaded from the service discovery once, and then kept current with the `announce` events of the
+ * service discovery, so that query execution does not need to scan the service discovery backend. When multiple
+ * publishers publish the same schema, the records are kept in the order in which they were announced.
+ * <p>
+ * Records are identified by their endpoint address, because `announce` events do not contain the registration id.
+ * <p>
+ * Records that are not indexed yet can be added with the result of a service discovery query. If such a query finds
+ * no records, the schema is remembered as missing for a short while, so that queries of unknown schema's do not
+ * scan the service discovery backend every time.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class SchemaRecordIndex {
+
+    /**
+     * The number of milliseconds a schema of which no records were found is remembered as missing.
+     */
+    static final long MISSING_SCHEMA_TTL = 1000;
+
+    private final String announceAddress;
+    private final ConcurrentMap<String, PublishedRecords> records;
+    private final ConcurrentMap<String, Long> missingSchemas;
+    private final Set<String> withdrawnWhileLoading;
+    private boolean loading;
+    private long generation;
+
+    SchemaRecordIndex(String announceAddress) {
+        this.announceAddress = announceAddress;
+        this.records = new ConcurrentHashMap<>();
+        this.missingSchemas = new ConcurrentHashMap<>();
+        this.withdrawnWhileLoading = new HashSet<>();
+    }
+
+    /**
+     * Loads the graphql service records that are currently published to the service discovery. Records that are
+     * announced while loading take precedence over the loaded records.
+     *
+     * @param discovery the service discovery
+     */
+    void load(ServiceDiscovery discovery) {
+        synchronized (this) {
+            loading = true;
+        }
+        discovery.getRecords(record -> Queryable.SERVICE_TYPE.equals(record.getType()), rh -> {
+            synchronized (this) {
+                if (rh.succeeded()) {
+                    rh.result().stream()
+                            .filter(record -> record.getName() != null && endpoint(record) != null)
+                            .filter(record -> !withdrawnWhileLoading.contains(endpoint(record)))
+                            .forEach(record -> records.compute(record.getName(), (name, existing) ->
+                                    existing != null && existing.byEndpoint.containsKey(endpoint(record)) ?
+                                            existing : with(existing, record)));
+                }
+                withdrawnWhileLoading.clear();
+                loading = false;
+                generation++;
+            }
+        });
+    }
+
+    /**
+     * Updates the index with an announced record. Records with status {@link Status#UP} are added or replaced, records
+     * with any other status are removed.
+     *
+     * @param record the announced record
+     */
+    synchronized void update(Record record) {
+        if (record.getName() == null || endpoint(record) == null) {
+            return;
+        }
+        generation++;
+        if (Status.UP.equals(record.getStatus())) {
+            missingSchemas.remove(record.getName());
+            records.compute(record.getName(), (name, existing) -> with(existing, record));
+        } else {
+            if (loading) {
+                withdrawnWhileLoading.add(endpoint(record));
+            }
+            records.computeIfPresent(record.getName(), (name, existing) -> without(existing, record));
+        }
+    }
+
+    /**
+     * Gets the generation of the index, which changes whenever the index is loaded or updated. It must be passed to
+     * {@link #fill(String, List, long)} when the service discovery is queried for records that are not indexed.
+     *
+     * @return the generation of the index
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Adds the records of a schema that were found by querying the service discovery, or remembers the schema as
+     * missing if none were found. Nothing is changed if the index was loaded or updated since the query was started,
+     * because the records that were found may have been withdrawn in the meantime.
+     *
+     * @param schemaName      the name of the schema
+     * @param found           the records that were found
+     * @param queryGeneration the generation of the index when the query was started
+     */
+    synchronized void fill(String schemaName, List<Record> found, long queryGeneration) {
+        if (loading || generation != queryGeneration) {
+            return;
+        }
+        List<Record> published = new ArrayList<>();
+        for (Record record : found) {
+            if (schemaName.equals(record.getName()) && Queryable.SERVICE_TYPE.equals(record.getType()) &&
+                    Status.UP.equals(record.getStatus()) && endpoint(record) != null) {
+                published.add(record);
+            }
+        }
+        if (published.isEmpty()) {
+            missingSchemas.put(schemaName, System.currentTimeMillis() + MISSING_SCHEMA_TTL);
+        } else {
+            published.forEach(record -> records.compute(schemaName, (name, existing) ->
+                    existing != null && existing.byEndpoint.containsKey(endpoint(record)) ?
+                            existing : with(existing, record)));
+        }
+    }
+
+    /**
+     * Checks whether a recent service discovery query found no records of the schema, and none were announced since.
+     *
+     * @param schemaName the name of the schema
+     * @return {@code true} if the schema is known to be missing, {@code false} otherwise
+     */
+    boolean isMissing(String schemaName) {
+        Long expiry = missingSchemas.get(schemaName);
+        if (expiry == null) {
+            return false;
+        } else if (System.currentTimeMillis() < expiry) {
+            return true;
+        }
+        missingSchemas.remove(schemaName, expiry);
+        return false;
+    }
+
+    /**
+     * @param schemaName the name of the schema
+     * @return optional that holds the first announced record of the schema, or empty if not found
+     */
+    Optional<Record> find(String schemaName) {
+        List<Record> published = findAll(schemaName);
+        return published.isEmpty() ? Optional.empty() : Optional.of(published.get(0));
+    }
+
+    /**
+     * Gets the records of the schema, in the order in which they were announced. The returned list is an immutable
+     * snapshot that is not copied, so it can be retrieved on every query execution.
+     *
+     * @param schemaName the name of the schema
+     * @return the records of the schema
+     */
+    List<Record> findAll(String schemaName) {
+        PublishedRecords published = records.get(schemaName);
+        return published == null ? Collections.emptyList() : published.list;
+    }
+
+    /**
+     * @return the announce address of the service discovery the index is for
+     */
+    String getAnnounceAddress() {
+        return announceAddress;
+    }
+
+    /**
+     * @return the number of indexed records
+     */
+    int size() {
+        return records.values().stream().mapToInt(published -> published.list.size()).sum();
+    }
+
+    private static String endpoint(Record record) {
+        return record.getLocation() == null ? null : record.getLocation().getString(Record.ENDPOINT);
+    }
+
+    // Published records are copied on write, so that they can be read without locking
+    private static PublishedRecords with(PublishedRecords existing, Record record) {
+        Map<String, Record> updated =
+                existing == null ? new LinkedHashMap<>() : new LinkedHashMap<>(existing.byEndpoint);
+        updated.put(endpoint(record), record);
+        return new PublishedRecords(updated);
+    }
+
+    private static PublishedRecords without(PublishedRecords existing, Record record) {
+        if (!existing.byEndpoint.containsKey(endpoint(record))) {
+            return existing;
+        }
+        Map<String, Record> updated = new LinkedHashMap<>(existing.byEndpoint);
+        updated.remove(endpoint(record));
+        return updated.isEmpty() ? null : new PublishedRecords(updated);
+    }
+
+    private static final class PublishedRecords {
+
+        private final Map<String, Record> byEndpoint;
+        private final List<Record> list;
+
+        private PublishedRecords(Map<String, Record> byEndpoint) {
+            this.byEndpoint = Collections.unmodifiableMap(byEndpoint);
+            this.list = Collections.unmodifiableList(new ArrayList<>(byEndpoint.values()));
+        }
+    }
+}
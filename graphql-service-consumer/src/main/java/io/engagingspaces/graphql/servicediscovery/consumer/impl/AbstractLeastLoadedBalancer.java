@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer.impl;
+
+import io.engagingspaces.graphql.servicediscovery.consumer.LoadBalancer;
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for load balancers that select the least loaded of two randomly chosen records.
+ * <p>
+ * Comparing two random candidates rather than all records keeps selection constant-time, while still avoiding
+ * overloaded endpoints with high probability. Statistics are kept per record endpoint.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public abstract class AbstractLeastLoadedBalancer implements LoadBalancer {
+
+    private static final EndpointStatistics IDLE = new EndpointStatistics();
+
+    private final ConcurrentMap<String, EndpointStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Record select(List<Record> records) {
+        int size = records.size();
+        if (size == 1) {
+            return records.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Record record1 = records.get(first);
+        Record record2 = records.get(second);
+        return cost(statistics(record1)) <= cost(statistics(record2)) ? record1 : record2;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void requestStarted(Record record) {
+        String endpoint = endpoint(record);
+        if (endpoint != null) {
+            EndpointStatistics endpointStatistics = statistics.get(endpoint);
+            if (endpointStatistics == null) {
+                endpointStatistics = statistics.computeIfAbsent(endpoint, key -> new EndpointStatistics());
+            }
+            endpointStatistics.outstanding.incrementAndGet();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void requestCompleted(Record record, long latencyNanos, boolean succeeded) {
+        String endpoint = endpoint(record);
+        EndpointStatistics endpointStatistics = endpoint == null ? null : statistics.get(endpoint);
+        if (endpointStatistics != null) {
+            endpointStatistics.outstanding.decrementAndGet();
+            completed(endpointStatistics, latencyNanos, succeeded);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordRemoved(Record record) {
+        String endpoint = endpoint(record);
+        if (endpoint != null) {
+            statistics.remove(endpoint);
+        }
+    }
+
+    /**
+     * Gets the number of requests to the endpoint of the record that have not completed yet.
+     *
+     * @param record the record
+     * @return the number of outstanding requests
+     */
+    public int outstanding(Record record) {
+        return statistics(record).outstanding.get();
+    }
+
+    /**
+     * Calculates the cost of sending a request to an endpoint. The endpoint with the lowest cost is selected.
+     *
+     * @param endpointStatistics the statistics of the endpoint
+     * @return the cost
+     */
+    protected abstract double cost(EndpointStatistics endpointStatistics);
+
+    /**
+     * Invoked when a request to an endpoint has completed. Does nothing by default.
+     *
+     * @param endpointStatistics the statistics of the endpoint
+     * @param latencyNanos       the latency of the request in nanoseconds
+     * @param succeeded          whether the request succeeded
+     */
+    protected void completed(EndpointStatistics endpointStatistics, long latencyNanos, boolean succeeded) {
+        // Nothing to do
+    }
+
+    private EndpointStatistics statistics(Record record) {
+        String endpoint = endpoint(record);
+        return endpoint == null ? IDLE : statistics.getOrDefault(endpoint, IDLE);
+    }
+
+    private static String endpoint(Record record) {
+        return record.getLocation() == null ? null : record.getLocation().getString(Record.ENDPOINT);
+    }
+
+    /**
+     * Load statistics of a record endpoint.
+     */
+    protected static class EndpointStatistics {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double latencyEwma;
+        private long lastUpdate;
+        private boolean measured;
+
+        /**
+         * @return the number of outstanding requests
+         */
+        protected int outstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * @return the moving average latency in nanoseconds, or {@code 0} if not measured yet
+         */
+        protected synchronized double latencyEwma() {
+            return latencyEwma;
+        }
+
+        /**
+         * Adds a latency to the moving average, decayed by the time since the previous latency.
+         *
+         * @param latencyNanos the latency in nanoseconds
+         * @param decayNanos   the decay time in nanoseconds
+         */
+        protected synchronized void updateLatencyEwma(long latencyNanos, long decayNanos) {
+            long now = System.nanoTime();
+            if (!measured) {
+                latencyEwma = latencyNanos;
+                measured = true;
+            } else {
+                double weight = Math.exp(-(double) Math.max(0, now - lastUpdate) / decayNanos);
+                latencyEwma = latencyEwma * weight + latencyNanos * (1 - weight);
+            }
+            lastUpdate = now;
+        }
+    }
+}
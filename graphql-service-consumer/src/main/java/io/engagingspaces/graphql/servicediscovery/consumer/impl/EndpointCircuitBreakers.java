@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer.impl;
+
+import io.engagingspaces.graphql.servicediscovery.consumer.CircuitBreakerOptions;
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Circuit breakers of the endpoints of graphql service records, keyed by the {@link Record#ENDPOINT} location.
+ * <p>
+ * As long as all circuits are closed, filtering the available records does not copy the list of candidates.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class EndpointCircuitBreakers {
+
+    /**
+     * The state of the circuit of an endpoint.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerOptions options;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final AtomicInteger notClosed = new AtomicInteger();
+
+    /**
+     * Creates new endpoint circuit breakers.
+     *
+     * @param options the circuit breaker options
+     */
+    public EndpointCircuitBreakers(CircuitBreakerOptions options) {
+        this.options = new CircuitBreakerOptions(options);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(options.getSlowCallDuration());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(options.getOpenDuration());
+    }
+
+    /**
+     * @return the circuit breaker options
+     */
+    public CircuitBreakerOptions getOptions() {
+        return new CircuitBreakerOptions(options);
+    }
+
+    /**
+     * Filters the records whose endpoints are not ejected.
+     *
+     * @param records the candidate records
+     * @return the available records, which is the list that was passed in if all circuits are closed
+     */
+    public List<Record> available(List<Record> records) {
+        if (notClosed.get() == 0) {
+            return records;
+        }
+        return records.stream().filter(this::isAvailable).collect(Collectors.toList());
+    }
+
+    /**
+     * Checks whether requests can be sent to the endpoint of the record, i.e. whether its circuit is closed, or
+     * half-open without a probe request in progress.
+     *
+     * @param record the record
+     * @return {@code true} if available, {@code false} if the endpoint is ejected
+     */
+    public boolean isAvailable(Record record) {
+        Circuit circuit = circuit(record);
+        return circuit == null || circuit.isAvailable(System.nanoTime());
+    }
+
+    /**
+     * Gets the state of the circuit of the endpoint of the record.
+     *
+     * @param record the record
+     * @return the circuit state
+     */
+    public State state(Record record) {
+        Circuit circuit = circuit(record);
+        return circuit == null ? State.CLOSED : circuit.state(System.nanoTime());
+    }
+
+    /**
+     * Invoked when a request is sent to the endpoint of the record. Admits the request as probe if the circuit
+     * is half-open.
+     *
+     * @param record the record
+     */
+    public void requestStarted(Record record) {
+        Circuit circuit = circuit(record);
+        if (circuit != null) {
+            circuit.started(System.nanoTime());
+        }
+    }
+
+    /**
+     * Invoked when a request to the endpoint of the record has completed.
+     *
+     * @param record       the record
+     * @param latencyNanos the latency of the request in nanoseconds
+     * @param succeeded    whether the request succeeded
+     */
+    public void requestCompleted(Record record, long latencyNanos, boolean succeeded) {
+        String endpoint = endpoint(record);
+        if (endpoint == null) {
+            return;
+        }
+        boolean failed = !succeeded || (slowCallNanos > 0 && latencyNanos > slowCallNanos);
+        Circuit circuit = circuits.get(endpoint);
+        if (circuit == null) {
+            if (!failed) {
+                return;
+            }
+            circuit = circuits.computeIfAbsent(endpoint, key -> new Circuit());
+        }
+        circuit.completed(failed, System.nanoTime());
+    }
+
+    /**
+     * Removes the circuit of the endpoint of a withdrawn record.
+     *
+     * @param record the withdrawn record
+     */
+    public void recordRemoved(Record record) {
+        String endpoint = endpoint(record);
+        Circuit circuit = endpoint == null ? null : circuits.remove(endpoint);
+        if (circuit != null) {
+            circuit.remove();
+        }
+    }
+
+    private Circuit circuit(Record record) {
+        String endpoint = endpoint(record);
+        return endpoint == null ? null : circuits.get(endpoint);
+    }
+
+    private static String endpoint(Record record) {
+        return record.getLocation() == null ? null : record.getLocation().getString(Record.ENDPOINT);
+    }
+
+    private final class Circuit {
+
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean probing;
+
+        private synchronized boolean isAvailable(long now) {
+            switch (state) {
+                case OPEN:
+                    return now - openedAt >= openNanos;
+                case HALF_OPEN:
+                    return !probing;
+                default:
+                    return true;
+            }
+        }
+
+        private synchronized State state(long now) {
+            return state == State.OPEN && now - openedAt >= openNanos ? State.HALF_OPEN : state;
+        }
+
+        private synchronized void started(long now) {
+            if (state == State.OPEN && now - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.HALF_OPEN) {
+                probing = true;
+            }
+        }
+
+        private synchronized void completed(boolean failed, long now) {
+            switch (state) {
+                case CLOSED:
+                    failures = failed ? failures + 1 : 0;
+                    if (failures >= options.getFailureThreshold()) {
+                        open(now);
+                        notClosed.incrementAndGet();
+                    }
+                    break;
+                case HALF_OPEN:
+                    if (failed) {
+                        open(now);
+                    } else {
+                        state = State.CLOSED;
+                        failures = 0;
+                        probing = false;
+                        notClosed.decrementAndGet();
+                    }
+                    break;
+                default:
+                    // Responses to requests that were sent before the circuit opened
+                    break;
+            }
+        }
+
+        private synchronized void remove() {
+            if (state != State.CLOSED) {
+                notClosed.decrementAndGet();
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+            probing = false;
+        }
+    }
+}
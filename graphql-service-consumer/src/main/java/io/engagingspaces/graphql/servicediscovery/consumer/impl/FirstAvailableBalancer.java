@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer.impl;
+
+import io.engagingspaces.graphql.servicediscovery.consumer.LoadBalancer;
+import io.vertx.servicediscovery.Record;
+
+import java.util.List;
+
+/**
+ * Load balancer that always selects the record that was announced first.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class FirstAvailableBalancer implements LoadBalancer {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Record select(List<Record> records) {
+        return records.get(0);
+    }
+}
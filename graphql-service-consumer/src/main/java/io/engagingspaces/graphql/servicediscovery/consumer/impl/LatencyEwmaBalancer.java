@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load balancer that selects the record with the lowest exponentially weighted moving average latency out of two
+ * random records.
+ * <p>
+ * The average is weighted by the number of outstanding requests plus one, so that an endpoint that becomes slow is
+ * avoided before its slow responses arrive. Endpoints without measured latencies have zero cost, so that new
+ * publishers are tried right away. The weight of past latencies decays with the time since the last latency. Failed
+ * requests count as at least twice the current average, so that endpoints that fail fast do not attract requests.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class LatencyEwmaBalancer extends AbstractLeastLoadedBalancer {
+
+    /**
+     * The default decay time of past latencies in milliseconds.
+     */
+    public static final long DEFAULT_DECAY_TIME = 10000;
+
+    private final long decayNanos;
+
+    /**
+     * Creates a new latency EWMA balancer.
+     *
+     * @param decayTime the time in milliseconds after which the weight of past latencies has decayed to 1/e
+     */
+    public LatencyEwmaBalancer(long decayTime) {
+        if (decayTime <= 0) {
+            throw new IllegalArgumentException("Decay time must be positive");
+        }
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double cost(EndpointStatistics endpointStatistics) {
+        return endpointStatistics.latencyEwma() * (endpointStatistics.outstanding() + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void completed(EndpointStatistics endpointStatistics, long latencyNanos, boolean succeeded) {
+        long latency = succeeded ? latencyNanos : Math.max(latencyNanos, (long) (2 * endpointStatistics.latencyEwma()));
+        endpointStatistics.updateLatencyEwma(latency, decayNanos);
+    }
+}
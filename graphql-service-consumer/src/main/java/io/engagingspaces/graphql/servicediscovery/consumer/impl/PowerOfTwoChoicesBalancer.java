@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer.impl;
+
+/**
+ * Load balancer that selects the record with the least outstanding requests out of two random records.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class PowerOfTwoChoicesBalancer extends AbstractLeastLoadedBalancer {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double cost(EndpointStatistics endpointStatistics) {
+        return endpointStatistics.outstanding();
+    }
+}
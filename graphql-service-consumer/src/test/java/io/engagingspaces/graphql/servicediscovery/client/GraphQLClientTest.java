@@ -16,8 +16,10 @@
 
 package io.engagingspaces.graphql.servicediscovery.client;
 
+import io.engagingspaces.graphql.query.QueryDigest;
 import io.engagingspaces.graphql.query.QueryResult;
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
 import io.engagingspaces.graphql.servicediscovery.publisher.SchemaRegistration;
 import io.engagingspaces.graphql.servicediscovery.service.GraphQLService;
 import io.vertx.core.Handler;
@@ -48,7 +50,11 @@ import graphql.schema.GraphQLSchema;
 import static org.example.graphql.testdata.droids.DroidsSchema.droidsSchema;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
@@ -143,6 +149,67 @@ public class GraphQLClientTest {
         }));
     }
 
+    @Test
+    public void should_Execute_Persisted_Query_After_First_Execution(TestContext context) {
+        JsonObject variables = new JsonObject().put("id", "2001");
+        GraphQLClient.executeQuery(discovery, record, DROIDS_VARIABLES_QUERY, variables,
+                context.asyncAssertSuccess(first -> {
+            assertTrue(first.isSucceeded());
+            Queryable queryable = discovery.getReference(record).get();
+            queryable.queryPersisted(QueryDigest.sha256(DROIDS_VARIABLES_QUERY), variables,
+                    context.asyncAssertSuccess(persisted -> {
+                assertTrue(persisted.isSucceeded());
+                assertEquals(first, persisted);
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Stop_Sending_Persisted_Queries_To_Service_Without_Support(TestContext context) {
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema, null);
+        List<String> actions = new ArrayList<>();
+        // Replies like the service handler of a library version without persisted queries
+        vertx.eventBus().<JsonObject>consumer("legacy.droids", msg -> {
+            String action = msg.headers().get("action");
+            actions.add(action);
+            if ("queryWithVariables".equals(action)) {
+                msg.reply(definition.queryBlocking(msg.body().getString("graphqlQuery"),
+                        msg.body().getJsonObject("variables")).toJson());
+            } else {
+                msg.fail(-1, "Invalid action: " + action);
+            }
+        });
+        Record legacyRecord = new Record(record.toJson()).setName("LegacyDroids").setRegistration(null)
+                .setLocation(new JsonObject().put(Record.ENDPOINT, "legacy.droids"));
+        discovery.publish(legacyRecord, context.asyncAssertSuccess(published ->
+                GraphQLClient.executeQuery(discovery, published, DROIDS_QUERY, context.asyncAssertSuccess(first -> {
+                    assertTrue(first.isSucceeded());
+                    assertEquals(Arrays.asList("queryPersisted", "queryWithVariables"), actions);
+                    assertTrue(SchemaProxyCache.forDiscovery(discovery).isPersistedQueryUnsupported(published));
+                    actions.clear();
+
+                    GraphQLClient.executeQuery(discovery, published, DROIDS_QUERY,
+                            context.asyncAssertSuccess(second -> {
+                        assertEquals(first, second);
+                        assertEquals(Collections.singletonList("queryWithVariables"), actions);
+                    }));
+                }))));
+    }
+
+    @Test
+    public void should_Execute_Query_Batch_Directly_From_Valid_Record(TestContext context) {
+        List<JsonObject> queries = Arrays.asList(
+                new JsonObject().put("query", DROIDS_QUERY),
+                new JsonObject().put("query", DROIDS_VARIABLES_QUERY).put("variables", new JsonObject().put("id", "2000")));
+        GraphQLClient.executeQuery(discovery, record, queries, context.asyncAssertSuccess(queryResults -> {
+            assertEquals(2, queryResults.size());
+            assertTrue(queryResults.get(0).isSucceeded());
+            assertNotNull(queryResults.get(0).getData().getJsonObject("droidHero"));
+            assertTrue(queryResults.get(1).isSucceeded());
+            assertNotNull(queryResults.get(1).getData().getJsonObject("droid"));
+        }));
+    }
+
     @Test
     public void should_Execute_Invalid_Query_And_Return_Query_Result_Errors(TestContext context) {
         GraphQLClient.executeQuery(discovery, record, DROIDS_QUERY.substring(10),
@@ -271,6 +338,31 @@ public class GraphQLClientTest {
         });
     }
 
+    @Test
+    public void should_Reuse_Cached_Service_Proxy_Per_Endpoint_And_Delivery_Options(TestContext context) {
+        SchemaProxyCache cache = SchemaProxyCache.forDiscovery(discovery);
+        JsonObject binaryOptions = new JsonObject().put("codecName", "graphql-query-result-binary");
+        GraphQLClient.getSchemaProxy(discovery, record, context.asyncAssertSuccess(proxy1 ->
+            GraphQLClient.getSchemaProxy(discovery, record, context.asyncAssertSuccess(proxy2 -> {
+                context.assertTrue(proxy1 == proxy2);
+                context.assertEquals(1L, cache.hits());
+
+                GraphQLClient.getSchemaProxy(discovery, record, binaryOptions, context.asyncAssertSuccess(proxy3 -> {
+                    context.assertFalse(proxy1 == proxy3);
+                    context.assertEquals(2, cache.size());
+
+                    cache.invalidate(record);
+                    context.assertEquals(0, cache.size());
+                    context.assertEquals(1L, cache.invalidations());
+                    GraphQLClient.getSchemaProxy(discovery, record, context.asyncAssertSuccess(proxy4 -> {
+                        context.assertFalse(proxy1 == proxy4);
+                        proxy4.query(DROIDS_QUERY, context.asyncAssertSuccess(result ->
+                                context.assertTrue(result.isSucceeded())));
+                    }));
+                }));
+            }))));
+    }
+
     @Test
     public void should_Fail_Service_Proxy_Filtering_On_Unknown_Record(TestContext context) {
         GraphQLClient.getSchemaProxy(discovery, new JsonObject().put("name", "FooBar"),
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.client;
+
+import io.engagingspaces.graphql.query.QueryResult;
+import io.engagingspaces.graphql.query.Queryable;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Tests for the {@link QueryHedger}.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+@RunWith(VertxUnitRunner.class)
+public class QueryHedgerTest {
+
+    private static final String QUERY = "query { hello }";
+
+    private Vertx vertx;
+    private List<Record> records;
+    private List<String> sent;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        records = Arrays.asList(createRecord("slow"), createRecord("fast"));
+        sent = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void should_Hedge_Slow_Read_Query_On_Second_Record(TestContext context) {
+        Async async = context.async();
+        QueryHedger hedger = QueryHedger.create(vertx,
+                new HedgingOptions().setMinSamples(0).setMinDelay(20).setBudgetRatio(1));
+        hedger.execute(QUERY, records, sender(), rh -> {
+            context.assertTrue(rh.succeeded());
+            context.assertEquals("fast", rh.result().getData().getString("endpoint"));
+            context.assertEquals(Arrays.asList("slow", "fast"), sent);
+            context.assertEquals(1L, hedger.hedged());
+            context.assertEquals(1L, hedger.hedgeWins());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void should_Never_Hedge_Mutations(TestContext context) {
+        Async async = context.async();
+        QueryHedger hedger = QueryHedger.create(vertx,
+                new HedgingOptions().setMinSamples(0).setMinDelay(20).setBudgetRatio(1));
+        hedger.execute("mutation { hello }", records, sender(), rh -> {
+            context.assertEquals("slow", rh.result().getData().getString("endpoint"));
+            context.assertEquals(Collections.singletonList("slow"), sent);
+            context.assertEquals(0L, hedger.hedged());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void should_Stop_Hedging_When_Budget_Is_Exceeded(TestContext context) {
+        Async async = context.async();
+        QueryHedger hedger = QueryHedger.create(vertx,
+                new HedgingOptions().setMinSamples(0).setMinDelay(20).setBudgetRatio(0.5));
+        hedger.execute(QUERY, Arrays.asList(records.get(1), records.get(0)), sender(), rh1 -> {
+            context.assertEquals(0L, hedger.hedged());
+            hedger.execute(QUERY, records, sender(), rh2 -> {
+                context.assertEquals("fast", rh2.result().getData().getString("endpoint"));
+                context.assertEquals(1L, hedger.hedged());
+                hedger.execute(QUERY, records, sender(), rh3 -> {
+                    context.assertEquals("slow", rh3.result().getData().getString("endpoint"));
+                    context.assertEquals(1L, hedger.hedged());
+                    context.assertEquals(3L, hedger.queries());
+                    async.complete();
+                });
+            });
+        });
+    }
+
+    @Test
+    public void should_Fail_When_All_Attempts_Fail(TestContext context) {
+        Async async = context.async();
+        QueryHedger hedger = QueryHedger.create(vertx,
+                new HedgingOptions().setMinSamples(0).setMinDelay(1).setBudgetRatio(1));
+        hedger.execute(QUERY, records, (record, handler) -> vertx.setTimer(50, t ->
+                handler.handle(Future.failedFuture("Timeout"))), rh -> {
+            context.assertTrue(rh.failed());
+            context.assertEquals(1L, hedger.hedged());
+            async.complete();
+        });
+    }
+
+    private BiConsumer<Record, Handler<AsyncResult<QueryResult>>> sender() {
+        return (record, handler) -> {
+            String endpoint = record.getLocation().getString(Record.ENDPOINT);
+            sent.add(endpoint);
+            QueryResult result = new QueryResult(new JsonObject().put("endpoint", endpoint), true,
+                    Collections.emptyList());
+            vertx.setTimer("slow".equals(endpoint) ? 200 : 1, t -> handler.handle(Future.succeededFuture(result)));
+        };
+    }
+
+    private static Record createRecord(String endpoint) {
+        return new Record().setName("TheSchema").setType(Queryable.SERVICE_TYPE).setStatus(Status.UP)
+                .setLocation(new JsonObject().put(Record.ENDPOINT, endpoint));
+    }
+}
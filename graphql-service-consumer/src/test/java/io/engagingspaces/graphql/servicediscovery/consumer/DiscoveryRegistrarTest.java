@@ -16,9 +16,12 @@
 
 package io.engagingspaces.graphql.servicediscovery.consumer;
 
+import io.engagingspaces.graphql.events.SchemaAnnounceBatchHandler;
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
 import io.engagingspaces.graphql.events.SchemaReferenceData;
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.servicediscovery.client.SchemaProxyCache;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
@@ -31,6 +34,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -114,7 +119,182 @@ public class DiscoveryRegistrarTest {
 
         // TODO Complete test
 
+        SchemaProxyCache.forDiscovery(discovery1).get(createGraphQLRecord("endpoint1"), null,
+                () -> Queryable.createProxy(vertx, "endpoint1", new JsonObject()));
+        assertEquals(1, SchemaProxyCache.forDiscovery(discovery1).size());
         discovery1.close();
+        assertEquals(0, SchemaProxyCache.forDiscovery(discovery1).size());
+        assertEquals(1, discoveryRegistrar.serviceDiscoveryNames().size());
+    }
+
+    @Test
+    public void should_Index_Graphql_Records_From_Discovery_And_Announce_Events(TestContext context) {
+        Async async = context.async();
+        discoveryRegistrar = DiscoveryRegistrar.create(vertx);
+        options = new ServiceDiscoveryOptions().setName("index-discovery").setAnnounceAddress("indexAnnounce");
+        ServiceDiscovery backend = ServiceDiscovery.create(vertx, options);
+        backend.publish(createGraphQLRecord("endpoint1"), rh -> {
+            Record published1 = rh.result();
+            discoveryRegistrar.startListening(options, record -> {}, refData -> {});
+            vertx.setTimer(100, t1 -> {
+                SchemaRecordIndex index = discoveryRegistrar.recordIndex("index-discovery").get();
+                context.assertEquals(1, index.size());
+
+                backend.publish(createGraphQLRecord("endpoint2"), rh2 -> vertx.setTimer(100, t2 -> {
+                    context.assertEquals(2, index.findAll("TheSchema").size());
+                    context.assertEquals("endpoint1", index.find("TheSchema").get().getLocation().getString("endpoint"));
+                    SchemaProxyCache proxyCache =
+                            SchemaProxyCache.forDiscovery(discoveryRegistrar.getDiscovery("index-discovery"));
+                    proxyCache.get(published1, null, () -> Queryable.createProxy(vertx, "endpoint1", new JsonObject()));
+                    context.assertEquals(1, proxyCache.size());
+
+                    discoveryRegistrar.setLoadBalancer(LoadBalancer.roundRobin());
+                    discoveryRegistrar.findRecord("index-discovery", "TheSchema", rr1 ->
+                            discoveryRegistrar.findRecord("index-discovery", "TheSchema", rr2 -> {
+                                context.assertNotEquals(rr1.result().getLocation().getString("endpoint"),
+                                        rr2.result().getLocation().getString("endpoint"));
+                            }));
+
+                    backend.unpublish(published1.getRegistration(), rh3 -> vertx.setTimer(100, t3 -> {
+                        context.assertEquals(1, index.size());
+                        context.assertEquals(0, proxyCache.size());
+                        discoveryRegistrar.findRecord("index-discovery", "TheSchema", rh4 -> {
+                            context.assertEquals("endpoint2", rh4.result().getLocation().getString("endpoint"));
+                            discoveryRegistrar.findRecord("index-discovery", "OtherSchema", rh5 -> {
+                                context.assertTrue(rh5.succeeded());
+                                context.assertNull(rh5.result());
+                                discoveryRegistrar.close();
+                                context.assertFalse(discoveryRegistrar.recordIndex("index-discovery").isPresent());
+                                backend.close();
+                                async.complete();
+                            });
+                        });
+                    }));
+                }));
+            });
+        });
+    }
+
+    @Test
+    public void should_Index_Records_Found_On_Index_Miss_And_Remember_Missing_Schemas(TestContext context) {
+        Async async = context.async();
+        discoveryRegistrar = DiscoveryRegistrar.create(vertx);
+        options = new ServiceDiscoveryOptions().setName("miss-discovery").setAnnounceAddress("missAnnounce");
+        // Publishes to the same backend, but announces on an address the registrar does not listen to
+        ServiceDiscovery backend = ServiceDiscovery.create(vertx,
+                new ServiceDiscoveryOptions(options).setAnnounceAddress("otherAnnounce"));
+        discoveryRegistrar.startListening(options, record -> {}, refData -> {});
+        vertx.setTimer(100, t1 -> discoveryRegistrar.findRecord("miss-discovery", "TheSchema", rh -> {
+            context.assertTrue(rh.succeeded());
+            context.assertNull(rh.result());
+            SchemaRecordIndex index = discoveryRegistrar.recordIndex("miss-discovery").get();
+            context.assertTrue(index.isMissing("TheSchema"));
+
+            backend.publish(createGraphQLRecord("endpoint1"), rh2 -> discoveryRegistrar.findRecord(
+                    "miss-discovery", "TheSchema", rh3 -> {
+                // Still remembered as missing, because the record was not announced to the registrar
+                context.assertNull(rh3.result());
+                vertx.setTimer(SchemaRecordIndex.MISSING_SCHEMA_TTL, t2 ->
+                        discoveryRegistrar.findRecord("miss-discovery", "TheSchema", rh4 -> {
+                            context.assertEquals("endpoint1", rh4.result().getLocation().getString("endpoint"));
+                            context.assertEquals(1, index.findAll("TheSchema").size());
+                            context.assertFalse(index.isMissing("TheSchema"));
+                            discoveryRegistrar.close();
+                            backend.close();
+                            async.complete();
+                        }));
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Eject_Publishers_With_Open_Circuits(TestContext context) {
+        Async async = context.async();
+        discoveryRegistrar = DiscoveryRegistrar.create(vertx)
+                .setCircuitBreakerOptions(new CircuitBreakerOptions().setFailureThreshold(1).setOpenDuration(60000));
+        options = new ServiceDiscoveryOptions().setName("breaker-discovery").setAnnounceAddress("breakerAnnounce");
+        ServiceDiscovery backend = ServiceDiscovery.create(vertx, options);
+        backend.publish(createGraphQLRecord("endpoint1"), rh1 -> backend.publish(createGraphQLRecord("endpoint2"),
+                rh2 -> {
+            discoveryRegistrar.startListening(options, record -> {}, refData -> {});
+            vertx.setTimer(100, t -> discoveryRegistrar.findRecord("breaker-discovery", "TheSchema", rr1 -> {
+                discoveryRegistrar.<Void>trackRequest(rr1.result(), ar -> {})
+                        .handle(Future.failedFuture("Timeout"));
+
+                discoveryRegistrar.findRecord("breaker-discovery", "TheSchema", rr2 -> {
+                    context.assertNotEquals(rr1.result().getLocation().getString("endpoint"),
+                            rr2.result().getLocation().getString("endpoint"));
+                    discoveryRegistrar.<Void>trackRequest(rr2.result(), ar -> {})
+                            .handle(Future.failedFuture("Timeout"));
+
+                    discoveryRegistrar.findRecord("breaker-discovery", "TheSchema", rr3 -> {
+                        context.assertTrue(rr3.failed());
+                        discoveryRegistrar.close();
+                        backend.close();
+                        async.complete();
+                    });
+                });
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Deliver_Coalesced_Announce_Events_And_Update_Index(TestContext context) {
+        Async async = context.async();
+        List<List<Record>> batches = new ArrayList<>();
+        class BatchHandler implements SchemaAnnounceHandler, SchemaAnnounceBatchHandler {
+            @Override
+            public void schemaDiscoveryEvent(Record record) {
+                context.fail("Expected coalesced announce events");
+            }
+
+            @Override
+            public void schemaDiscoveryEvents(List<Record> records) {
+                batches.add(records);
+            }
+        }
+        discoveryRegistrar = DiscoveryRegistrar.create(vertx).setAnnounceCoalescing(50);
+        options = new ServiceDiscoveryOptions().setName("coalesce-discovery").setAnnounceAddress("coalesceAnnounce");
+        ServiceDiscovery backend = ServiceDiscovery.create(vertx, options);
+        discoveryRegistrar.startListening(options, new BatchHandler(), refData -> {});
+        backend.publish(createGraphQLRecord("endpoint1"), rh1 -> backend.publish(createGraphQLRecord("endpoint2"),
+                rh2 -> backend.unpublish(rh1.result().getRegistration(), rh3 -> vertx.setTimer(300, t -> {
+                    int events = batches.stream().mapToInt(List::size).sum();
+                    context.assertTrue(batches.size() >= 1 && events <= 3);
+                    SchemaRecordIndex index = discoveryRegistrar.recordIndex("coalesce-discovery").get();
+                    context.assertEquals(1, index.size());
+                    context.assertEquals("endpoint2",
+                            index.find("TheSchema").get().getLocation().getString("endpoint"));
+                    discoveryRegistrar.close();
+                    backend.close();
+                    async.complete();
+                }))));
+    }
+
+    @Test
+    public void should_Update_Index_Before_Coalesced_Events_Are_Delivered(TestContext context) {
+        Async async = context.async();
+        List<Record> events = new ArrayList<>();
+        discoveryRegistrar = DiscoveryRegistrar.create(vertx).setAnnounceCoalescing(10000);
+        options = new ServiceDiscoveryOptions().setName("window-discovery").setAnnounceAddress("windowAnnounce");
+        ServiceDiscovery backend = ServiceDiscovery.create(vertx, options);
+        discoveryRegistrar.startListening(options, events::add, refData -> {});
+        backend.publish(createGraphQLRecord("endpoint1"), rh1 -> backend.publish(createGraphQLRecord("endpoint2"),
+                rh2 -> backend.unpublish(rh1.result().getRegistration(), rh3 -> vertx.setTimer(200, t -> {
+                    context.assertTrue(events.isEmpty());
+                    SchemaRecordIndex index = discoveryRegistrar.recordIndex("window-discovery").get();
+                    context.assertEquals(1, index.size());
+                    context.assertEquals("endpoint2",
+                            index.find("TheSchema").get().getLocation().getString("endpoint"));
+                    discoveryRegistrar.close();
+                    backend.close();
+                    async.complete();
+                }))));
+    }
+
+    private Record createGraphQLRecord(String endpoint) {
+        return new Record().setName("TheSchema").setType(Queryable.SERVICE_TYPE)
+                .setLocation(new JsonObject().put("endpoint", endpoint));
     }
 
     private SchemaReferenceData createReferenceInfo(JsonObject record) {
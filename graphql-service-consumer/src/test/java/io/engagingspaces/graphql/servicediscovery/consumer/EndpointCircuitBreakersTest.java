@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer;
+
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.EndpointCircuitBreakers;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.EndpointCircuitBreakers.State;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the per-endpoint {@link EndpointCircuitBreakers}.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class EndpointCircuitBreakersTest {
+
+    private final Record record1 = createRecord("endpoint1");
+    private final Record record2 = createRecord("endpoint2");
+    private final List<Record> records = Arrays.asList(record1, record2);
+
+    @Test
+    public void should_Eject_Endpoint_After_Consecutive_Failures() {
+        EndpointCircuitBreakers breakers = new EndpointCircuitBreakers(
+                new CircuitBreakerOptions().setFailureThreshold(3).setOpenDuration(60000));
+        assertSame(records, breakers.available(records));
+
+        fail(breakers, record1);
+        fail(breakers, record1);
+        succeed(breakers, record1, 0);
+        fail(breakers, record1);
+        fail(breakers, record1);
+        assertEquals(State.CLOSED, breakers.state(record1));
+
+        fail(breakers, record1);
+        assertEquals(State.OPEN, breakers.state(record1));
+        assertFalse(breakers.isAvailable(record1));
+        assertEquals(Collections.singletonList(record2), breakers.available(records));
+        assertEquals(State.CLOSED, breakers.state(record2));
+
+        breakers.recordRemoved(record1);
+        assertEquals(State.CLOSED, breakers.state(record1));
+        assertSame(records, breakers.available(records));
+    }
+
+    @Test
+    public void should_Count_Slow_Calls_As_Failures() {
+        EndpointCircuitBreakers breakers = new EndpointCircuitBreakers(
+                new CircuitBreakerOptions().setFailureThreshold(2).setSlowCallDuration(100));
+        succeed(breakers, record1, TimeUnit.MILLISECONDS.toNanos(50));
+        succeed(breakers, record1, TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(State.CLOSED, breakers.state(record1));
+        succeed(breakers, record1, TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(State.OPEN, breakers.state(record1));
+    }
+
+    @Test
+    public void should_Readmit_Endpoint_After_Successful_Probe() {
+        EndpointCircuitBreakers breakers = new EndpointCircuitBreakers(
+                new CircuitBreakerOptions().setFailureThreshold(1).setOpenDuration(0));
+        fail(breakers, record1);
+        assertEquals(State.HALF_OPEN, breakers.state(record1));
+        assertTrue(breakers.isAvailable(record1));
+
+        // Only a single probe is admitted while half-open
+        breakers.requestStarted(record1);
+        assertFalse(breakers.isAvailable(record1));
+        assertEquals(Collections.singletonList(record2), breakers.available(records));
+
+        breakers.requestCompleted(record1, 0, false);
+        assertEquals(State.HALF_OPEN, breakers.state(record1));
+        breakers.requestStarted(record1);
+        breakers.requestCompleted(record1, 0, true);
+        assertEquals(State.CLOSED, breakers.state(record1));
+        assertSame(records, breakers.available(records));
+    }
+
+    private static void fail(EndpointCircuitBreakers breakers, Record record) {
+        breakers.requestStarted(record);
+        breakers.requestCompleted(record, 0, false);
+    }
+
+    private static void succeed(EndpointCircuitBreakers breakers, Record record, long latencyNanos) {
+        breakers.requestStarted(record);
+        breakers.requestCompleted(record, latencyNanos, true);
+    }
+
+    private static Record createRecord(String endpoint) {
+        return new Record().setName("TheSchema").setType(Queryable.SERVICE_TYPE).setStatus(Status.UP)
+                .setLocation(new JsonObject().put(Record.ENDPOINT, endpoint));
+    }
+}
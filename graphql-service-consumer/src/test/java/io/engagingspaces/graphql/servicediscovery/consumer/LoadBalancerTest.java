@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.consumer;
+
+import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.servicediscovery.consumer.impl.AbstractLeastLoadedBalancer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the {@link LoadBalancer} strategies.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class LoadBalancerTest {
+
+    private final Record record1 = createRecord("endpoint1");
+    private final Record record2 = createRecord("endpoint2");
+    private final Record record3 = createRecord("endpoint3");
+    private final List<Record> records = Arrays.asList(record1, record2, record3);
+
+    @Test
+    public void should_Select_First_Available_Record() {
+        LoadBalancer balancer = LoadBalancer.firstAvailable();
+        assertSame(record1, balancer.select(records));
+        assertSame(record1, balancer.select(records));
+    }
+
+    @Test
+    public void should_Select_Records_Round_Robin() {
+        LoadBalancer balancer = LoadBalancer.roundRobin();
+        assertSame(record1, balancer.select(records));
+        assertSame(record2, balancer.select(records));
+        assertSame(record3, balancer.select(records));
+        assertSame(record1, balancer.select(records));
+        assertSame(record1, balancer.select(Arrays.asList(record1, record2)));
+    }
+
+    @Test
+    public void should_Select_Record_With_Least_Outstanding_Requests() {
+        LoadBalancer balancer = LoadBalancer.powerOfTwoChoices();
+        List<Record> candidates = Arrays.asList(record1, record2);
+        for (int i = 0; i < 5; i++) {
+            balancer.requestStarted(record1);
+        }
+        balancer.requestStarted(record2);
+        for (int i = 0; i < 20; i++) {
+            assertSame(record2, balancer.select(candidates));
+        }
+        assertEquals(5, ((AbstractLeastLoadedBalancer) balancer).outstanding(record1));
+
+        for (int i = 0; i < 5; i++) {
+            balancer.requestCompleted(record1, 0, true);
+        }
+        assertEquals(0, ((AbstractLeastLoadedBalancer) balancer).outstanding(record1));
+        for (int i = 0; i < 20; i++) {
+            assertSame(record1, balancer.select(candidates));
+        }
+        assertSame(record3, balancer.select(Arrays.asList(record3)));
+    }
+
+    @Test
+    public void should_Select_Record_With_Lowest_Latency_Average() {
+        LoadBalancer balancer = LoadBalancer.latencyEwma();
+        List<Record> candidates = Arrays.asList(record1, record2);
+        balancer.requestStarted(record1);
+        balancer.requestCompleted(record1, TimeUnit.MILLISECONDS.toNanos(50), true);
+        balancer.requestStarted(record2);
+        balancer.requestCompleted(record2, TimeUnit.MILLISECONDS.toNanos(5), true);
+        for (int i = 0; i < 20; i++) {
+            assertSame(record2, balancer.select(candidates));
+        }
+
+        // Outstanding requests weigh in before their latencies are known
+        for (int i = 0; i < 20; i++) {
+            balancer.requestStarted(record2);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertSame(record1, balancer.select(candidates));
+        }
+
+        // Endpoints without measurements are tried first
+        balancer.recordRemoved(record2);
+        assertEquals(0, ((AbstractLeastLoadedBalancer) balancer).outstanding(record2));
+        assertSame(record2, balancer.select(candidates));
+    }
+
+    private static Record createRecord(String endpoint) {
+        return new Record().setName("TheSchema").setType(Queryable.SERVICE_TYPE).setStatus(Status.UP)
+                .setLocation(new JsonObject().put(Record.ENDPOINT, endpoint));
+    }
+}
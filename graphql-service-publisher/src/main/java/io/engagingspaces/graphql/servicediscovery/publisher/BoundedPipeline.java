@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Internal pipeline that applies an asynchronous action to a list of items, with a bounded number of actions in
+ * flight.
+ * <p>
+ * Whenever an action completes the next one is started, until the action was applied to all items. The pipeline
+ * runs on a single vert.x context, so that the schema registrar is never updated concurrently, and completions are
+ * handled as separate context tasks, so that the stack depth does not grow with the number of items. An action that
+ * throws is completed with the thrown exception, and only the first completion of an action is counted.
+ *
+ * @param <T> the type of the items
+ * @param <R> the result type of the action
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+final class BoundedPipeline<T, R> {
+
+    private final Context context;
+    private final List<T> items;
+    private final int maxInFlight;
+    private final BiConsumer<T, Handler<AsyncResult<R>>> action;
+    private final Handler<List<AsyncResult<R>>> completionHandler;
+    private final AsyncResult<R>[] results;
+    private int next;
+    private int inFlight;
+    private int completed;
+    private boolean finished;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param context           the context the pipeline runs on
+     * @param items             the items to apply the action to
+     * @param maxInFlight       the maximum number of actions in flight
+     * @param action            the action to apply to each item
+     * @param completionHandler the handler that is invoked with the results, in the order of the items
+     */
+    @SuppressWarnings("unchecked")
+    BoundedPipeline(Context context, List<T> items, int maxInFlight, BiConsumer<T, Handler<AsyncResult<R>>> action,
+                    Handler<List<AsyncResult<R>>> completionHandler) {
+        this.context = context;
+        this.items = items;
+        this.maxInFlight = maxInFlight;
+        this.action = action;
+        this.completionHandler = completionHandler;
+        this.results = new AsyncResult[items.size()];
+    }
+
+    /**
+     * Starts applying the action to the items.
+     */
+    void start() {
+        context.runOnContext(v -> {
+            if (items.isEmpty()) {
+                finish();
+            } else {
+                startNext();
+            }
+        });
+    }
+
+    /**
+     * Stops the pipeline, and invokes the completion handler with the results so far. The results of actions that
+     * did not complete are {@code null}, and their late completions are ignored.
+     * <p>
+     * Must be called on the context of the pipeline.
+     */
+    void stop() {
+        finish();
+    }
+
+    private void startNext() {
+        while (!finished && inFlight < maxInFlight && next < items.size()) {
+            int index = next++;
+            inFlight++;
+            try {
+                action.accept(items.get(index), rh -> context.runOnContext(v -> completed(index, rh)));
+            } catch (RuntimeException ex) {
+                context.runOnContext(v -> completed(index, Future.failedFuture(ex)));
+            }
+        }
+    }
+
+    private void completed(int index, AsyncResult<R> result) {
+        if (finished || results[index] != null) {
+            return;
+        }
+        results[index] = result.succeeded() ?
+                Future.succeededFuture(result.result()) : Future.failedFuture(result.cause());
+        inFlight--;
+        if (++completed == items.size()) {
+            finish();
+        } else {
+            startNext();
+        }
+    }
+
+    private void finish() {
+        if (!finished) {
+            finished = true;
+            completionHandler.handle(Arrays.asList(results));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.vertx.core.AsyncResult;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * The per-schema results of publishing a collection of schema definitions (see
+ * {@link SchemaPublisher#publishAll(io.vertx.servicediscovery.ServiceDiscoveryOptions, java.util.Collection, int,
+ * io.vertx.core.Handler)}).
+ * <p>
+ * Results are in the same order as the schema definitions that were provided.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class BulkPublishResult {
+
+    private final List<SchemaDefinition> definitions;
+    private final List<AsyncResult<SchemaRegistration>> results;
+
+    /**
+     * Creates a new bulk publication result.
+     *
+     * @param definitions the schema definitions that were published
+     * @param results     the publication results, in the same order as the definitions
+     */
+    public BulkPublishResult(List<SchemaDefinition> definitions, List<AsyncResult<SchemaRegistration>> results) {
+        Objects.requireNonNull(definitions, "Schema definitions cannot be null");
+        Objects.requireNonNull(results, "Publication results cannot be null");
+        if (definitions.size() != results.size()) {
+            throw new IllegalArgumentException("Expected " + definitions.size() + " publication results, but got: " +
+                    results.size());
+        }
+        this.definitions = Collections.unmodifiableList(definitions);
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    /**
+     * @return the number of schema definitions that were published
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * @return {@code true} if all schema definitions were published, {@code false} otherwise
+     */
+    public boolean isSucceeded() {
+        return results.stream().allMatch(AsyncResult::succeeded);
+    }
+
+    /**
+     * @return the schema definitions, in the order they were provided
+     */
+    public List<SchemaDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * @param index the index of the schema definition
+     * @return the publication result of the schema definition at the index
+     */
+    public AsyncResult<SchemaRegistration> getResult(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * @return the publication results, in the order the schema definitions were provided
+     */
+    public List<AsyncResult<SchemaRegistration>> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the schema registrations of the schema definitions that were successfully published
+     */
+    public List<SchemaRegistration> getRegistrations() {
+        return results.stream()
+                .filter(AsyncResult::succeeded)
+                .map(AsyncResult::result)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the publication errors of the schema definitions that failed to publish, keyed by schema name
+     */
+    public Map<String, Throwable> getFailures() {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (int index = 0; index < results.size(); index++) {
+            if (results.get(index).failed()) {
+                failures.put(definitions.get(index).schemaName(), results.get(index).cause());
+            }
+        }
+        return failures;
+    }
+}
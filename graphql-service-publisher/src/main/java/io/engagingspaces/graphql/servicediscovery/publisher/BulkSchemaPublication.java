@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Internal pipeline that publishes a list of schema definitions, with a bounded number of publications in flight
+ * (see {@link BoundedPipeline}).
+ * <p>
+ * Schema definitions with a schema name that occurs earlier in the list fail to publish.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+final class BulkSchemaPublication {
+
+    private final SchemaPublisher publisher;
+    private final ServiceDiscoveryOptions options;
+    private final BoundedPipeline<SchemaDefinition, SchemaRegistration> pipeline;
+    private final Set<String> schemaNames = new HashSet<>();
+
+    BulkSchemaPublication(SchemaPublisher publisher, ServiceDiscoveryOptions options,
+                          List<SchemaDefinition> definitions, int maxInFlight,
+                          Handler<AsyncResult<BulkPublishResult>> resultHandler) {
+        this.publisher = publisher;
+        this.options = options;
+        this.pipeline = new BoundedPipeline<>(publisher.schemaRegistrar().getVertx().getOrCreateContext(),
+                definitions, maxInFlight, this::publish, results ->
+                        resultHandler.handle(Future.succeededFuture(new BulkPublishResult(definitions, results))));
+    }
+
+    /**
+     * Starts publishing the schema definitions.
+     */
+    void start() {
+        pipeline.start();
+    }
+
+    private void publish(SchemaDefinition definition, Handler<AsyncResult<SchemaRegistration>> resultHandler) {
+        if (!schemaNames.add(definition.schemaName())) {
+            resultHandler.handle(Future.failedFuture("Schema '" + definition.schemaName() +
+                    "' occurs more than once in publication to: " + options.getName()));
+        } else {
+            publisher.publishDefinition(options, definition, resultHandler);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of closing a {@link SchemaRegistrar}, with the outcome of closing its schema registrations and the
+ * time each phase of the shutdown took.
+ * <p>
+ * Registrations are identified by their service discovery name and schema name, separated by a colon. Stragglers
+ * are registrations whose close action did not complete before the close deadline.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+public class CloseResult {
+
+    private final int registrations;
+    private final int closed;
+    private final Map<String, Throwable> failures;
+    private final List<String> stragglers;
+    private final long proxyUnregistrationTime;
+    private final long closeActionTime;
+    private final long releaseTime;
+
+    CloseResult(int registrations, int closed, Map<String, Throwable> failures, List<String> stragglers,
+                long proxyUnregistrationTime, long closeActionTime, long releaseTime) {
+        this.registrations = registrations;
+        this.closed = closed;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.stragglers = Collections.unmodifiableList(stragglers);
+        this.proxyUnregistrationTime = proxyUnregistrationTime;
+        this.closeActionTime = closeActionTime;
+        this.releaseTime = releaseTime;
+    }
+
+    /**
+     * @return {@code true} if all schema registrations were closed before the deadline, {@code false} otherwise
+     */
+    public boolean isSucceeded() {
+        return failures.isEmpty() && stragglers.isEmpty();
+    }
+
+    /**
+     * @return the number of schema registrations at the time the registrar was closed
+     */
+    public int getRegistrations() {
+        return registrations;
+    }
+
+    /**
+     * @return the number of schema registrations that were closed successfully
+     */
+    public int getClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the errors of the schema registrations that failed to close
+     */
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the schema registrations that were not closed before the deadline
+     */
+    public List<String> getStragglers() {
+        return stragglers;
+    }
+
+    /**
+     * @return the time in milliseconds it took to unregister the service proxies of all schema registrations
+     */
+    public long getProxyUnregistrationTime() {
+        return proxyUnregistrationTime;
+    }
+
+    /**
+     * @return the time in milliseconds it took to close the schema registrations (e.g. un-publishing them)
+     */
+    public long getCloseActionTime() {
+        return closeActionTime;
+    }
+
+    /**
+     * @return the time in milliseconds it took to release the resources of the registrar
+     */
+    public long getReleaseTime() {
+        return releaseTime;
+    }
+
+    /**
+     * @return the total time in milliseconds it took to close the registrar
+     */
+    public long getTotalTime() {
+        return proxyUnregistrationTime + closeActionTime + releaseTime;
+    }
+
+    /**
+     * @return the json representation of the close result
+     */
+    public JsonObject toJson() {
+        JsonObject errors = new JsonObject();
+        failures.forEach((registration, cause) -> errors.put(registration, String.valueOf(cause.getMessage())));
+        return new JsonObject()
+                .put("succeeded", isSucceeded())
+                .put("registrations", registrations)
+                .put("closed", closed)
+                .put("failures", errors)
+                .put("stragglers", new JsonArray(stragglers))
+                .put("phases", new JsonObject()
+                        .put("proxyUnregistration", proxyUnregistrationTime)
+                        .put("closeAction", closeActionTime)
+                        .put("release", releaseTime)
+                        .put("total", getTotalTime()));
+    }
+}
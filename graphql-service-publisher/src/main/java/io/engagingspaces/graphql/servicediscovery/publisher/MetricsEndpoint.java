@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Local consumer at the {@link SchemaRegistrar#METRICS_ADDRESS} that replies with the merged metrics snapshots of
+ * all schema registrars of a vert.x instance.
+ * <p>
+ * A single endpoint exists per vert.x instance while it has registrars with published schema's. It is registered
+ * when the first registrar publishes, and unregistered when the last registrar is closed. The endpoint is kept in
+ * the local shared data of the vert.x instance, so that it is discarded together with the vert.x instance.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+class MetricsEndpoint implements Shareable {
+
+    private static final String ENDPOINTS_MAP = MetricsEndpoint.class.getName();
+    private static final String ENDPOINT_KEY = "endpoint";
+
+    private final Set<SchemaRegistrar> registrars = new CopyOnWriteArraySet<>();
+    private final MessageConsumer<JsonObject> consumer;
+
+    private MetricsEndpoint(Vertx vertx) {
+        this.consumer = vertx.eventBus().localConsumer(SchemaRegistrar.METRICS_ADDRESS,
+                msg -> msg.reply(snapshot()));
+    }
+
+    /**
+     * Adds the registrar to the endpoint of its vert.x instance, and creates the endpoint if it does not exist.
+     *
+     * @param vertx     the vert.x instance
+     * @param registrar the schema registrar
+     */
+    static void add(Vertx vertx, SchemaRegistrar registrar) {
+        LocalMap<String, MetricsEndpoint> endpoints = vertx.sharedData().getLocalMap(ENDPOINTS_MAP);
+        synchronized (endpoints) {
+            MetricsEndpoint endpoint = endpoints.get(ENDPOINT_KEY);
+            if (endpoint == null) {
+                endpoint = new MetricsEndpoint(vertx);
+                endpoints.put(ENDPOINT_KEY, endpoint);
+            }
+            endpoint.registrars.add(registrar);
+        }
+    }
+
+    /**
+     * Removes the registrar from the endpoint of its vert.x instance, and unregisters the endpoint if it was the last
+     * registrar.
+     *
+     * @param vertx     the vert.x instance
+     * @param registrar the schema registrar
+     */
+    static void remove(Vertx vertx, SchemaRegistrar registrar) {
+        LocalMap<String, MetricsEndpoint> endpoints = vertx.sharedData().getLocalMap(ENDPOINTS_MAP);
+        synchronized (endpoints) {
+            MetricsEndpoint endpoint = endpoints.get(ENDPOINT_KEY);
+            if (endpoint != null && endpoint.registrars.remove(registrar) && endpoint.registrars.isEmpty()) {
+                endpoints.remove(ENDPOINT_KEY);
+                endpoint.consumer.unregister();
+            }
+        }
+    }
+
+    private JsonObject snapshot() {
+        JsonArray publishers = new JsonArray();
+        registrars.forEach(registrar -> publishers.add(registrar.metricsSnapshot()));
+        return new JsonObject()
+                .put("timestamp", System.currentTimeMillis())
+                .put("publishers", publishers);
+    }
+}
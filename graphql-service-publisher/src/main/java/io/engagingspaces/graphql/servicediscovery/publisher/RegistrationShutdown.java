@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.engagingspaces.graphql.servicediscovery.publisher;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Internal pipeline that applies a close action (e.g. un-publishing) to a list of schema registrations, with a
+ * bounded number of close actions in flight (see {@link BoundedPipeline}) and an overall deadline.
+ * <p>
+ * When the deadline passes, close actions that are still in flight or were not started yet are reported as
+ * stragglers, and their late completions are ignored. Close actions that throw are reported as failures.
+ *
+ * @author <a href="https://github.com/aschrijver/">Arnold Schrijver</a>
+ */
+final class RegistrationShutdown {
+
+    private final Vertx vertx;
+    private final Context context;
+    private final List<SchemaRegistration> registrations;
+    private final long timeout;
+    private final Handler<RegistrationShutdown> completionHandler;
+    private final BoundedPipeline<SchemaRegistration, Void> pipeline;
+    private final Map<String, Throwable> failures = new LinkedHashMap<>();
+    private final List<String> stragglers = new ArrayList<>();
+    private int closed;
+    private long timerId = -1;
+
+    RegistrationShutdown(Vertx vertx, List<SchemaRegistration> registrations,
+                         BiConsumer<SchemaRegistration, Handler<AsyncResult<Void>>> closeAction,
+                         int maxInFlight, long timeout, Handler<RegistrationShutdown> completionHandler) {
+        this.vertx = vertx;
+        this.context = vertx.getOrCreateContext();
+        this.registrations = registrations;
+        this.timeout = timeout;
+        this.completionHandler = completionHandler;
+        this.pipeline = new BoundedPipeline<>(context, registrations, maxInFlight, closeAction, this::finish);
+    }
+
+    /**
+     * Starts closing the schema registrations.
+     */
+    void start() {
+        context.runOnContext(v -> {
+            if (!registrations.isEmpty()) {
+                timerId = vertx.setTimer(Math.max(1, timeout), id -> pipeline.stop());
+            }
+            pipeline.start();
+        });
+    }
+
+    /**
+     * @return the number of schema registrations that were closed successfully
+     */
+    int closed() {
+        return closed;
+    }
+
+    /**
+     * @return the errors of the schema registrations that failed to close
+     */
+    Map<String, Throwable> failures() {
+        return failures;
+    }
+
+    /**
+     * @return the schema registrations that did not complete before the deadline
+     */
+    List<String> stragglers() {
+        return stragglers;
+    }
+
+    private void finish(List<AsyncResult<Void>> results) {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+        }
+        for (int index = 0; index < registrations.size(); index++) {
+            AsyncResult<Void> result = results.get(index);
+            if (result == null) {
+                stragglers.add(describe(registrations.get(index)));
+            } else if (result.succeeded()) {
+                closed++;
+            } else {
+                failures.put(describe(registrations.get(index)), result.cause());
+            }
+        }
+        completionHandler.handle(this);
+    }
+
+    private static String describe(SchemaRegistration registration) {
+        String discoveryName = registration.getDiscoveryOptions() == null ?
+                null : registration.getDiscoveryOptions().getName();
+        return discoveryName + ":" + registration.getSchemaName();
+    }
+}
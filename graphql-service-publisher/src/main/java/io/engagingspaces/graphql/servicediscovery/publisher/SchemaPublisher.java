@@ -21,11 +21,12 @@ import io.engagingspaces.graphql.events.SchemaPublishedHandler;
 import io.engagingspaces.graphql.events.SchemaUnpublishedHandler;
 import io.engagingspaces.graphql.schema.SchemaDefinition;
 import io.engagingspaces.graphql.schema.SchemaMetadata;
+import io.engagingspaces.graphql.schema.SchemaMetrics;
 import io.engagingspaces.graphql.servicediscovery.service.GraphQLService;
 import io.vertx.core.AsyncResult;
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 
@@ -45,10 +46,17 @@ import java.util.stream.Collectors;
 public interface SchemaPublisher extends
         SchemaPublishedHandler<SchemaRegistration>, SchemaUnpublishedHandler<SchemaRegistration> {
 
+    /**
+     * The default maximum number of schema publications that are in flight when publishing multiple schema's.
+     */
+    int DEFAULT_PUBLISH_CONCURRENCY = 64;
+
     /**
      * Publishes the provided schema definitions to the specified service discovery.
      * <p>
-     * Upon success a list of {@link SchemaRegistration}s is returned in the result handler.
+     * Upon success a list of {@link SchemaRegistration}s is returned in the result handler. If some of the schema
+     * definitions fail to publish, the result is failed with a {@link PartialPublishException}, while the other
+     * schema definitions remain published.
      *
      * @param options       the service discovery options
      * @param resultHandler the result handler
@@ -63,30 +71,54 @@ public interface SchemaPublisher extends
             resultHandler.handle(Future.failedFuture("Nothing to publish. No schema definitions provided"));
             return;
         }
-        List<Future> futures = new ArrayList<>();
-        Arrays.asList(schemas).forEach(schema ->
-                publish(options, schema, rh -> futures.add(
-                        rh.succeeded() ? Future.succeededFuture(rh.result()) : Future.failedFuture(rh.cause()))));
+        if (Arrays.stream(schemas).anyMatch(Objects::isNull)) {
+            resultHandler.handle(Future.failedFuture("Nothing to publish. Schema definitions cannot be null"));
+            return;
+        }
+        List<SchemaDefinition> definitions = Arrays.stream(schemas)
+                .map(schema -> SchemaDefinition.createInstance(schema, SchemaMetadata.create()))
+                .collect(Collectors.toList());
 
-        CompositeFuture.all(futures).setHandler(rh -> {
-            if (rh.failed()) {
-                resultHandler.handle(Future.failedFuture(rh.cause()));
-                return;
-            }
-            CompositeFuture composite = rh.result();
-            List<SchemaRegistration> published = composite.list();
-            if (published.size() != schemas.length) {
-                List<Throwable> errors = rh.result().<Future<Void>>list().stream()
-                        .filter(Future::failed)
-                        .map(Future::cause)
-                        .collect(Collectors.toList());
-                resultHandler.handle(Future.failedFuture(new PartialPublishException(errors)));
+        publishAll(options, definitions, DEFAULT_PUBLISH_CONCURRENCY, rh -> {
+            BulkPublishResult result = rh.result();
+            if (result.isSucceeded()) {
+                resultHandler.handle(Future.succeededFuture(result.getRegistrations()));
             } else {
-                resultHandler.handle(Future.succeededFuture(published));
+                resultHandler.handle(Future.failedFuture(
+                        new PartialPublishException(new ArrayList<>(result.getFailures().values()))));
             }
         });
     }
 
+    /**
+     * Publishes the provided schema definitions, which hold the GraphQL schema's and their metadata, to the specified
+     * service discovery.
+     * <p>
+     * At most {@code maxInFlight} schema definitions are being published at the same time, and the next publication
+     * is started as soon as one completes. The result handler always succeeds with a {@link BulkPublishResult} that
+     * holds the result of every schema definition, in the order they were provided. Schema definitions with a schema
+     * name that occurs earlier in the collection fail to publish, as do schema definitions whose publication throws.
+     *
+     * @param options       the service discovery options
+     * @param definitions   the schema definitions to publish
+     * @param maxInFlight   the maximum number of publications in flight
+     * @param resultHandler the result handler
+     * @throws IllegalArgumentException if the collection contains {@code null}, or {@code maxInFlight} is less than 1
+     */
+    default void publishAll(ServiceDiscoveryOptions options, Collection<SchemaDefinition> definitions,
+                            int maxInFlight, Handler<AsyncResult<BulkPublishResult>> resultHandler) {
+        Objects.requireNonNull(options, "Schema discovery options cannot be null");
+        Objects.requireNonNull(definitions, "Schema definitions cannot be null");
+        Objects.requireNonNull(resultHandler, "Publication result handler cannot be null");
+        if (definitions.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Schema definitions cannot contain null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of publications in flight must be at least 1");
+        }
+        new BulkSchemaPublication(this, options, new ArrayList<>(definitions), maxInFlight, resultHandler).start();
+    }
+
     /**
      * Publishes the schema definition to the service discovery indicated by the provided schema publisher options.
      *
@@ -118,18 +150,43 @@ public interface SchemaPublisher extends
         Objects.requireNonNull(options, "Schema discovery options cannot be null");
         Objects.requireNonNull(resultHandler, "Publication result handler cannot be null");
 
-        SchemaDefinition definition = SchemaDefinition.createInstance(schema, metadata);
+        publishDefinition(options, SchemaDefinition.createInstance(schema, metadata), resultHandler);
+    }
+
+    /**
+     * Publishes the schema definition to the service discovery indicated by the provided schema publisher options.
+     *
+     * @param options       the service discovery options
+     * @param definition    the schema definition to publish
+     * @param resultHandler the result handler
+     */
+    default void publishDefinition(ServiceDiscoveryOptions options, SchemaDefinition definition,
+                                   Handler<AsyncResult<SchemaRegistration>> resultHandler) {
+        Objects.requireNonNull(resultHandler, "Publication result handler cannot be null");
+        if (definition == null) {
+            resultHandler.handle(Future.failedFuture("Nothing to publish. No schema definition provided"));
+            return;
+        }
+        Objects.requireNonNull(options, "Schema discovery options cannot be null");
+
         if (schemaRegistrar().findRegistration(options.getName(), definition.schemaName()).isPresent()) {
             resultHandler.handle(Future.failedFuture("Schema '" +
                     definition.schemaName() + "' was already published to: " + options.getName()));
             return;
         }
-        metadata.put("publisherId", schemaRegistrar().getPublisherId());
+        definition.metadata().put("publisherId", schemaRegistrar().getPublisherId());
         ServiceDiscovery discovery = schemaRegistrar().getOrCreateDiscovery(options);
 
         GraphQLService.publish(schemaRegistrar().getVertx(), discovery, definition, rh -> {
             if (rh.succeeded()) {
-                SchemaRegistration registration = schemaRegistrar().register(rh.result(), options, this, this);
+                SchemaRegistration registration;
+                try {
+                    registration = schemaRegistrar().register(rh.result(), options, this, this);
+                } catch (IllegalStateException ex) {
+                    // Lost a concurrent publication of the same schema, retract the record that was just published.
+                    GraphQLService.unpublish(rh.result(), done -> resultHandler.handle(Future.failedFuture(ex)));
+                    return;
+                }
                 resultHandler.handle(Future.succeededFuture(registration));
             } else {
                 resultHandler.handle(Future.failedFuture(rh.cause()));
@@ -164,6 +221,30 @@ public interface SchemaPublisher extends
         return Collections.unmodifiableList(schemaRegistrar().registrations());
     }
 
+    /**
+     * Gets the execution metrics of a schema that is published by this publisher.
+     *
+     * @param discoveryName the name of the service discovery the schema is published to
+     * @param schemaName    the name of the published schema
+     * @return optional that holds the schema metrics, or empty if the schema is not published
+     */
+    default Optional<SchemaMetrics> metrics(String discoveryName, String schemaName) {
+        return schemaRegistrar().findRegistration(discoveryName, schemaName)
+                .map(registration -> registration.getSchemaDefinition().metrics());
+    }
+
+    /**
+     * Gets a snapshot of the execution metrics and cache statistics of all schema's published by this publisher.
+     * <p>
+     * The same snapshot is returned in reply to messages sent to {@link SchemaRegistrar#METRICS_ADDRESS} followed by
+     * a dot and the publisher id.
+     *
+     * @return the JSON representation of the metrics
+     */
+    default JsonObject metricsSnapshot() {
+        return schemaRegistrar().metricsSnapshot();
+    }
+
     /**
      * Un-publishes all registered schema and closes the schema publisher.
      *
@@ -175,6 +256,24 @@ public interface SchemaPublisher extends
         publisher.schemaRegistrar().close(publisher::unpublish, resultHandler);
     }
 
+    /**
+     * Un-publishes all registered schema and closes the schema publisher, with at most {@code maxInFlight}
+     * un-publications in flight and an overall timeout.
+     * <p>
+     * The result handler receives a {@link CloseResult} with the schema's that failed to un-publish, the schema's
+     * that were not un-published in time, and the duration of each phase of the shutdown.
+     *
+     * @param publisher     the schema publisher
+     * @param maxInFlight   the maximum number of un-publications in flight
+     * @param timeout       the time in milliseconds after which remaining un-publications are abandoned
+     * @param resultHandler the result handler
+     */
+    static void close(SchemaPublisher publisher, int maxInFlight, long timeout,
+                      Handler<AsyncResult<CloseResult>> resultHandler) {
+        Objects.requireNonNull(publisher, "Schema publisher cannot be null");
+        publisher.schemaRegistrar().close(publisher::unpublish, maxInFlight, timeout, resultHandler);
+    }
+
     /**
      * Gets the registrar that is used to manage publisher internal state.
      * <p>
@@ -17,14 +17,18 @@
 package io.engagingspaces.graphql.servicediscovery.publisher;
 
 import io.engagingspaces.graphql.discovery.impl.AbstractRegistrar;
+import io.engagingspaces.graphql.events.SchemaAnnounceBatchHandler;
 import io.engagingspaces.graphql.events.SchemaAnnounceHandler;
 import io.engagingspaces.graphql.events.SchemaPublishedHandler;
 import io.engagingspaces.graphql.events.SchemaUnpublishedHandler;
 import io.engagingspaces.graphql.events.impl.SchemaMessageConsumers;
+import io.engagingspaces.graphql.query.impl.QueryResultBinaryCodec;
+import io.engagingspaces.graphql.query.impl.QueryResultMessageCodec;
 import io.engagingspaces.graphql.schema.SchemaDefinition;
 import io.engagingspaces.graphql.servicediscovery.service.GraphQLService;
 import io.vertx.core.*;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
@@ -32,6 +36,7 @@ import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 import io.vertx.servicediscovery.Status;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 /**
@@ -41,13 +46,38 @@ import java.util.function.BiConsumer;
  */
 public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
 
+    /**
+     * Well-known event bus address at which the publishers of a vert.x instance reply to any message with the
+     * snapshots of the metrics of all their published schema's, in a {@code publishers} array (see
+     * {@link #metricsSnapshot()}).
+     * <p>
+     * The address is local to the vert.x instance. Each publisher also replies with its own snapshot at this address
+     * followed by a dot and its publisher id, which is reachable across the cluster.
+     */
+    public static final String METRICS_ADDRESS = "graphql.metrics";
+
+    /**
+     * The default maximum number of close actions that are in flight when closing the registrar.
+     */
+    public static final int DEFAULT_CLOSE_CONCURRENCY = 64;
+
+    /**
+     * The default time in milliseconds after which the close actions of a registrar that is being closed are
+     * abandoned.
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT = 30000;
+
     private final String publisherId;
     private final SchemaMessageConsumers consumerManager;
+    private MessageConsumer<JsonObject> metricsConsumer;
+    private volatile long announceCoalescing;
 
     protected SchemaRegistrar(Vertx vertx, String publisherId) {
         super(vertx);
         this.publisherId = publisherId == null ? UUID.randomUUID().toString() :  publisherId;
         this.consumerManager = new SchemaMessageConsumers(vertx);
+        QueryResultMessageCodec.register(vertx);
+        QueryResultBinaryCodec.register(vertx);
     }
 
     /**
@@ -82,6 +112,28 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
         return publisherId;
     }
 
+    /**
+     * @return the time window in milliseconds over which `announce` events are coalesced, or {@code 0} if disabled
+     */
+    public long getAnnounceCoalescing() {
+        return announceCoalescing;
+    }
+
+    /**
+     * Sets the time window over which `announce` events are coalesced before the schema published and un-published
+     * handlers are invoked, for service discoveries that are published to after this call. Coalescing is disabled by
+     * default.
+     * <p>
+     * When enabled, the handlers are only invoked with the latest status of each published schema in a window.
+     *
+     * @param windowMillis the time window in milliseconds, or {@code 0} to handle every event immediately
+     * @return this, for fluent calls
+     */
+    public SchemaRegistrar setAnnounceCoalescing(long windowMillis) {
+        this.announceCoalescing = Math.max(0, windowMillis);
+        return this;
+    }
+
     /**
      * @param options the service discovery options
      * @return the existing or created service discovery instance
@@ -109,13 +161,15 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
      * @param publishedHandler    the event handler to invoke on schema published events
      * @param unpublishedHandler  the event handler to invoke on schema unpublished events
      * @return the completed schema registration
+     * @throws IllegalStateException if a schema with the same name was already registered to the service discovery
      */
     protected SchemaRegistration register(
             SchemaRegistration partialRegistration, ServiceDiscoveryOptions options,
             SchemaPublishedHandler<SchemaRegistration> publishedHandler,
             SchemaUnpublishedHandler<SchemaRegistration> unpublishedHandler) {
 
-        // First start listening to schema events.
+        // First start listening to schema events and metrics requests.
+        registerMetricsConsumers();
         registerSchemaEventConsumers(options, publishedHandler, unpublishedHandler);
 
         // Then register service consumer created from schema definition, if it was not registered yet.
@@ -126,36 +180,56 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
         SchemaRegistration fullRegistration = SchemaRegistration.create(partialRegistration.getDiscovery(), options,
                 partialRegistration.getRecord(), partialRegistration.getSchemaDefinition(), serviceConsumer);
 
-        return super.register(options.getName(), fullRegistration);
+        try {
+            return super.register(options.getName(), fullRegistration.getSchemaName(), fullRegistration);
+        } catch (IllegalStateException ex) {
+            // Release the service consumer reference taken above, the schema was registered concurrently.
+            consumerManager.unregisterConsumer(fullRegistration.getRecord().getLocation().getString(Record.ENDPOINT));
+            throw ex;
+        }
     }
 
     /**
      * Unregisters the published schema indicated by the provided registration.
+     * <p>
+     * When the service consumer of the schema definition is no longer registered, the schema definition is closed.
      *
      * @param registration the schema registration
      */
     @Override
     protected void unregister(SchemaRegistration registration) {
         consumerManager.unregisterConsumer(registration.getRecord().getLocation().getString(Record.ENDPOINT));
+        if (registration.getServiceConsumer() == null || !registration.getServiceConsumer().isRegistered()) {
+            registration.getSchemaDefinition().close();
+        }
         super.unregister(registration);
     }
 
     /**
-     * Finds the schema registration that is managed by this registrar and is published to the specified discovery.
+     * Gets a snapshot of the execution metrics and cache statistics of all schema's that are published by the
+     * associated publisher.
      *
-     * @param discoveryName the service discovery name to search
-     * @param schemaName    the name of the published schema (graphql service name)
-     * @return optional that holds the schema registration, or empty if not found
+     * @return the JSON representation of the metrics
      */
-    protected Optional<SchemaRegistration> findRegistration(String discoveryName, String schemaName) {
-        return registrations().stream()
-                .filter(registration -> discoveryName.equals(registration.getDiscoveryOptions().getName()))
-                .filter(registration -> registration.getSchemaName().equals(schemaName))
-                .findFirst();
+    public JsonObject metricsSnapshot() {
+        JsonArray schemas = new JsonArray();
+        registrations().forEach(registration -> schemas.add(new JsonObject()
+                .put("discoveryName", registration.getDiscoveryOptions().getName())
+                .put("schemaName", registration.getSchemaName())
+                .put("address", registration.getRecord().getLocation().getString(Record.ENDPOINT))
+                .mergeIn(registration.getSchemaDefinition().statistics())));
+        return new JsonObject()
+                .put("publisherId", publisherId)
+                .put("timestamp", System.currentTimeMillis())
+                .put("schemas", schemas);
     }
 
     /**
      * Closes the registrar and releases all its resources.
+     * <p>
+     * Uses the default close concurrency and timeout (see {@link #close(BiConsumer, int, long, Handler)}). The close
+     * handler fails if any of the close actions failed or did not complete in time, but the resources of the
+     * registrar are released regardless.
      *
      * @param closeAction  the action to perform for closing registered schema's
      * @param closeHandler the close handler
@@ -163,16 +237,61 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
     protected void close(BiConsumer<SchemaRegistration, Handler<AsyncResult<Void>>> closeAction,
                Handler<AsyncResult<Void>> closeHandler) {
         Objects.requireNonNull(closeHandler, "Schema registrar close handler cannot be null");
-        if (!registrations().isEmpty()) {
-            // Execute the close action against each of the published schema's (e.g. un-publishing)
-            List<Future> futures = new ArrayList<>();
-            registrations().forEach(registration -> closeAction.accept(registration,
-                    rh -> futures.add(rh.succeeded() ? Future.succeededFuture() : Future.failedFuture(rh.cause()))));
+        close(closeAction, DEFAULT_CLOSE_CONCURRENCY, DEFAULT_CLOSE_TIMEOUT, rh -> {
+            CloseResult result = rh.result();
+            if (result.isSucceeded()) {
+                closeHandler.handle(Future.succeededFuture());
+            } else if (!result.getFailures().isEmpty()) {
+                closeHandler.handle(Future.failedFuture(result.getFailures().values().iterator().next()));
+            } else {
+                closeHandler.handle(Future.failedFuture("Schema registrations were not closed in time: " +
+                        result.getStragglers()));
+            }
+        });
+    }
 
-            handleCloseCompletion(closeHandler, futures);
-        } else {
-            doClose(closeHandler);
+    /**
+     * Closes the registrar and releases all its resources, within the specified deadline.
+     * <p>
+     * The shutdown has three phases. First the service proxies of all registered schema's are unregistered, so that
+     * they stop accepting queries. Then the close action (e.g. un-publishing) is executed on the registered schema's,
+     * with at most {@code maxInFlight} close actions in flight. Close actions that did not complete when the timeout
+     * expires are reported as stragglers. Finally the resources of the registrar are released.
+     * <p>
+     * The result handler always succeeds with a {@link CloseResult} holding the outcome and duration of each phase.
+     *
+     * @param closeAction   the action to perform for closing registered schema's
+     * @param maxInFlight   the maximum number of close actions in flight
+     * @param timeout       the time in milliseconds after which remaining close actions are abandoned
+     * @param resultHandler the result handler
+     */
+    protected void close(BiConsumer<SchemaRegistration, Handler<AsyncResult<Void>>> closeAction,
+                         int maxInFlight, long timeout, Handler<AsyncResult<CloseResult>> resultHandler) {
+        Objects.requireNonNull(resultHandler, "Schema registrar close handler cannot be null");
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of close actions in flight must be at least 1");
+        }
+        List<SchemaRegistration> closing = new ArrayList<>(registrations());
+        if (closing.isEmpty()) {
+            long releaseTime = release();
+            resultHandler.handle(Future.succeededFuture(new CloseResult(0, 0, Collections.emptyMap(),
+                    Collections.emptyList(), 0, 0, releaseTime)));
+            return;
         }
+        Objects.requireNonNull(closeAction, "Schema registrar close action cannot be null");
+
+        long start = System.nanoTime();
+        closing.forEach(SchemaRegistration::unregisterServiceProxy);
+        long proxyUnregistrationTime = elapsedMillis(start);
+
+        long closeStart = System.nanoTime();
+        new RegistrationShutdown(vertx, closing, closeAction, maxInFlight, timeout, shutdown -> {
+            long closeActionTime = elapsedMillis(closeStart);
+            long releaseTime = release();
+            resultHandler.handle(Future.succeededFuture(new CloseResult(closing.size(), shutdown.closed(),
+                    shutdown.failures(), shutdown.stragglers(), proxyUnregistrationTime, closeActionTime,
+                    releaseTime)));
+        }).start();
     }
 
     private void registerSchemaEventConsumers(
@@ -187,7 +306,28 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
                         unpublishedHandler.schemaUnpublished(reg);
                     }
                 });
-        consumerManager.registerConsumer(options.getAnnounceAddress(), announceHandler);
+        if (announceCoalescing > 0) {
+            consumerManager.registerConsumer(options.getAnnounceAddress(),
+                    SchemaAnnounceBatchHandler.of(announceHandler), announceCoalescing);
+        } else {
+            consumerManager.registerConsumer(options.getAnnounceAddress(), announceHandler);
+        }
+    }
+
+    private synchronized void registerMetricsConsumers() {
+        if (metricsConsumer == null) {
+            metricsConsumer = vertx.eventBus().consumer(METRICS_ADDRESS + "." + publisherId,
+                    msg -> msg.reply(metricsSnapshot()));
+            MetricsEndpoint.add(vertx, this);
+        }
+    }
+
+    private synchronized void unregisterMetricsConsumers() {
+        if (metricsConsumer != null) {
+            MetricsEndpoint.remove(vertx, this);
+            metricsConsumer.unregister();
+            metricsConsumer = null;
+        }
     }
 
     private MessageConsumer<JsonObject> registerSchemaServiceConsumer(Record record, SchemaDefinition definition) {
@@ -195,25 +335,16 @@ public class SchemaRegistrar extends AbstractRegistrar<SchemaRegistration> {
         return consumerManager.registerServiceConsumer(address, definition);
     }
 
-    private void handleCloseCompletion(Handler<AsyncResult<Void>> closeHandler, List<Future> futures) {
-        CompositeFuture.all(futures).setHandler(rh -> {
-            if (rh.succeeded()) {
-                CompositeFuture composite = rh.result();
-                for (int index = 0; index < composite.size(); index++) {
-                    if (composite.succeeded(index) && composite.resultAt(index) != null) {
-                        composite.<SchemaRegistration>resultAt(index).unregisterServiceProxy();
-                    }
-                }
-                doClose(closeHandler);
-            } else {
-                closeHandler.handle(Future.failedFuture(rh.cause()));
-            }
-        });
-    }
-
-    private void doClose(Handler<AsyncResult<Void>> closeHandler) {
+    private long release() {
+        long start = System.nanoTime();
+        unregisterMetricsConsumers();
+        registrations().forEach(registration -> registration.getSchemaDefinition().close());
         super.close();
         consumerManager.close();
-        closeHandler.handle(Future.succeededFuture());
+        return elapsedMillis(start);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 }
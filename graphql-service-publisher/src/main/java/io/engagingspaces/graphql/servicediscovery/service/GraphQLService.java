@@ -18,6 +18,7 @@ package io.engagingspaces.graphql.servicediscovery.service;
 
 import graphql.schema.GraphQLSchema;
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.impl.QueryableServiceHandler;
 import io.engagingspaces.graphql.schema.SchemaDefinition;
 import io.engagingspaces.graphql.schema.SchemaMetadata;
 import io.engagingspaces.graphql.servicediscovery.publisher.SchemaPublisher;
@@ -32,7 +33,6 @@ import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceDiscoveryOptions;
 import io.vertx.servicediscovery.spi.ServiceType;
-import io.vertx.serviceproxy.ProxyHelper;
 
 import java.util.Objects;
 
@@ -98,8 +98,8 @@ public interface GraphQLService extends ServiceType {
 
         final MessageConsumer<JsonObject> serviceConsumer;
         if (definition.metadata().get("publisherId") == null) {
-            serviceConsumer = ProxyHelper.registerService(
-                    Queryable.class, vertx, definition, definition.serviceAddress());
+            serviceConsumer = QueryableServiceHandler.registerService(
+                    vertx, definition, definition.serviceAddress());
         } else {
             // Publisher handles service instantiation, manages consumer.
             serviceConsumer = null;
@@ -17,6 +17,8 @@
 package io.engagingspaces.graphql.servicediscovery.service.impl;
 
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.query.impl.QueryResultBinaryCodec;
+import io.engagingspaces.graphql.query.impl.QueryResultMessageCodec;
 import io.engagingspaces.graphql.servicediscovery.service.GraphQLService;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -47,7 +49,8 @@ public class GraphQLServiceImpl implements GraphQLService {
      * <p>
      * A {@link io.vertx.core.eventbus.DeliveryOptions} used for creating the
      * {@link Queryable} service proxy can be passed as
-     * {@link JsonObject} value of key `deliveryOptions` in the configuration.
+     * {@link JsonObject} value of key `deliveryOptions` in the configuration. Its `codecName` selects the codec
+     * of query result replies, e.g. {@link QueryResultBinaryCodec#CODEC_NAME} for compact binary encoding.
      *
      * @param vertx         the vert.x instance
      * @param discovery     the service discovery instance
@@ -74,6 +77,8 @@ public class GraphQLServiceImpl implements GraphQLService {
         GraphQLServiceReference(Vertx vertx, ServiceDiscovery discovery, Record record, JsonObject configuration) {
             super(vertx, discovery, record);
             this.deliveryOptions = configuration.getJsonObject("deliveryOptions", new JsonObject());
+            QueryResultMessageCodec.register(vertx);
+            QueryResultBinaryCodec.register(vertx);
         }
 
         /**
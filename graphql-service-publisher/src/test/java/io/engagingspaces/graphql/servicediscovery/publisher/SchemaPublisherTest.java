@@ -18,7 +18,13 @@ package io.engagingspaces.graphql.servicediscovery.publisher;
 
 import graphql.schema.GraphQLSchema;
 import io.engagingspaces.graphql.query.Queryable;
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.engagingspaces.graphql.schema.SchemaMetadata;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -31,6 +37,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -99,6 +109,8 @@ public class SchemaPublisherTest {
                     assertFalse(rh2.succeeded());
                     schemaPublisher.getDiscovery("theDiscovery").get().unpublish(record.getRegistration(), rh3 -> {
                         assertTrue(rh3.succeeded());
+                        // Unpublished behind the publisher's back, so also unregister it before closing
+                        schemaPublisher.schemaRegistrar().unregister(registration);
                         async.complete();
                     });
                 });
@@ -107,6 +119,52 @@ public class SchemaPublisherTest {
         async.awaitSuccess();
     }
 
+    @Test
+    public void should_Reply_With_Metrics_Snapshot(TestContext context) {
+        Async async = context.async();
+        schemaPublisher.publish(options, DroidsSchema.droidsSchema, context.asyncAssertSuccess(registration -> {
+            String address = registration.getRecord().getLocation().getString(Record.ENDPOINT);
+            Queryable proxy = Queryable.createProxy(vertx, address, new JsonObject());
+            proxy.query("{ droidHero { name } }", context.asyncAssertSuccess(result -> {
+                context.assertTrue(schemaPublisher.metrics("theDiscovery", "DroidQueries").isPresent());
+                context.assertFalse(schemaPublisher.metrics("theDiscovery", "Unknown").isPresent());
+                vertx.eventBus().<JsonObject>send(SchemaRegistrar.METRICS_ADDRESS + ".thePublisherId", null,
+                        context.asyncAssertSuccess(reply -> {
+                            JsonObject snapshot = reply.body();
+                            context.assertEquals("thePublisherId", snapshot.getString("publisherId"));
+                            JsonObject schema = snapshot.getJsonArray("schemas").getJsonObject(0);
+                            context.assertEquals("DroidQueries", schema.getString("schemaName"));
+                            JsonObject metrics = schema.getJsonObject("metrics");
+                            context.assertEquals(1L, metrics.getLong("queries"));
+                            context.assertEquals(1L, metrics.getJsonObject("latencies")
+                                    .getJsonObject("request").getLong("count"));
+                            async.complete();
+                        }));
+            }));
+        }));
+    }
+
+    @Test
+    public void should_Reply_With_Metrics_Of_All_Publishers(TestContext context) {
+        Async async = context.async();
+        TestClass otherPublisher = new TestClass(vertx, "otherPublisherId");
+        schemaPublisher.publish(options, DroidsSchema.droidsSchema, context.asyncAssertSuccess(registration ->
+                otherPublisher.publishDefinition(options, SchemaDefinition.createInstance(DroidsSchema.droidsSchema,
+                        SchemaMetadata.create().setSchemaName("OtherDroids")), context.asyncAssertSuccess(other ->
+                        vertx.eventBus().<JsonObject>send(SchemaRegistrar.METRICS_ADDRESS, null,
+                                context.asyncAssertSuccess(reply -> {
+                                    JsonArray publishers = reply.body().getJsonArray("publishers");
+                                    context.assertEquals(2, publishers.size());
+                                    List<String> publisherIds = new ArrayList<>();
+                                    publishers.forEach(snapshot ->
+                                            publisherIds.add(((JsonObject) snapshot).getString("publisherId")));
+                                    context.assertTrue(publisherIds.contains("thePublisherId"));
+                                    context.assertTrue(publisherIds.contains("otherPublisherId"));
+                                    SchemaPublisher.close(otherPublisher, context.asyncAssertSuccess(closed ->
+                                            async.complete()));
+                                }))))));
+    }
+
     @Test
     public void should_Return_Failure_When_Schema_Definition_Not_Provided(TestContext context) {
         Async async = context.async(4);
@@ -130,12 +188,104 @@ public class SchemaPublisherTest {
         async.awaitSuccess();
     }
 
+    @Test
+    public void should_Publish_Schema_Definitions_In_Bulk_With_Per_Schema_Results(TestContext context) {
+        Async async = context.async();
+        List<SchemaDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            definitions.add(SchemaDefinition.createInstance(DroidsSchema.droidsSchema,
+                    SchemaMetadata.create().setSchemaName("Droids" + i)));
+        }
+        definitions.add(SchemaDefinition.createInstance(DroidsSchema.droidsSchema,
+                SchemaMetadata.create().setSchemaName("Droids7")));
+
+        schemaPublisher.publishAll(options, definitions, 8, rh -> {
+            context.assertTrue(rh.succeeded());
+            BulkPublishResult result = rh.result();
+            context.assertEquals(201, result.size());
+            context.assertFalse(result.isSucceeded());
+            context.assertEquals(200, result.getRegistrations().size());
+            context.assertEquals(1, result.getFailures().size());
+            context.assertTrue(result.getFailures().containsKey("Droids7"));
+            context.assertTrue(result.getResult(200).failed());
+            context.assertEquals("Droids42", result.getResult(42).result().getSchemaName());
+            context.assertEquals(200, schemaPublisher.registeredSchemas().size());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void should_Record_Failure_When_Bulk_Publication_Throws(TestContext context) {
+        Async async = context.async();
+        TestClass throwingPublisher = new TestClass(vertx, "throwingPublisherId") {
+            @Override
+            public void publishDefinition(ServiceDiscoveryOptions options, SchemaDefinition definition,
+                                          Handler<AsyncResult<SchemaRegistration>> resultHandler) {
+                if ("Droids1".equals(definition.schemaName())) {
+                    throw new IllegalStateException("Publication failed");
+                }
+                super.publishDefinition(options, definition, resultHandler);
+            }
+        };
+        List<SchemaDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            definitions.add(SchemaDefinition.createInstance(DroidsSchema.droidsSchema,
+                    SchemaMetadata.create().setSchemaName("Droids" + i)));
+        }
+        try {
+            throwingPublisher.publishAll(options, Arrays.asList(definitions.get(0), null), 2, rh -> context.fail());
+            fail("Expected null schema definitions to be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Schema definitions cannot contain null", ex.getMessage());
+        }
+        throwingPublisher.publishAll(options, definitions, 2, context.asyncAssertSuccess(result -> {
+            context.assertEquals(2, result.getRegistrations().size());
+            context.assertEquals("Publication failed", result.getFailures().get("Droids1").getMessage());
+            SchemaPublisher.close(throwingPublisher, context.asyncAssertSuccess(closed -> async.complete()));
+        }));
+    }
+
+    @Test
+    public void should_Unpublish_Record_When_Concurrent_Publication_Is_Rejected(TestContext context) {
+        Async async = context.async();
+        List<AsyncResult<SchemaRegistration>> results = new ArrayList<>();
+        Handler<AsyncResult<SchemaRegistration>> resultHandler = rh -> {
+            results.add(rh);
+            if (results.size() < 2) {
+                return;
+            }
+            context.assertEquals(1L, results.stream().filter(AsyncResult::succeeded).count());
+            AsyncResult<SchemaRegistration> failure = results.stream().filter(AsyncResult::failed).findFirst().get();
+            context.assertTrue(failure.cause() instanceof IllegalStateException);
+            SchemaRegistration registration = results.stream()
+                    .filter(AsyncResult::succeeded).findFirst().get().result();
+            context.assertTrue(registration.getServiceConsumer().isRegistered());
+            context.assertEquals(1, schemaPublisher.registeredSchemas().size());
+
+            schemaPublisher.getDiscovery("theDiscovery").get().getRecords(
+                    new JsonObject().put("name", "DroidQueries"), context.asyncAssertSuccess(records -> {
+                        context.assertEquals(1, records.size());
+                        context.assertEquals(registration.getRecord().getRegistration(),
+                                records.get(0).getRegistration());
+                        async.complete();
+                    }));
+        };
+        vertx.runOnContext(ctx -> {
+            schemaPublisher.publish(options, DroidsSchema.droidsSchema, resultHandler);
+            schemaPublisher.publish(options, DroidsSchema.droidsSchema, resultHandler);
+        });
+    }
+
     private class TestClass implements SchemaPublisher {
 
         private SchemaRegistrar registrar;
 
         public TestClass(Vertx vertx) {
-            this.registrar = SchemaRegistrar.create(vertx, "thePublisherId");
+            this(vertx, "thePublisherId");
+        }
+
+        public TestClass(Vertx vertx, String publisherId) {
+            this.registrar = SchemaRegistrar.create(vertx, publisherId);
         }
 
         @Override
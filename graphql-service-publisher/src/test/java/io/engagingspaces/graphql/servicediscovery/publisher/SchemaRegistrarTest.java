@@ -16,6 +16,8 @@
 
 package io.engagingspaces.graphql.servicediscovery.publisher;
 
+import io.engagingspaces.graphql.schema.SchemaDefinition;
+import io.engagingspaces.graphql.schema.SchemaMetadata;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
@@ -131,6 +133,75 @@ public class SchemaRegistrarTest {
         });
     }
 
+    @Test
+    public void should_Close_Within_Deadline_And_Report_Stragglers(TestContext context) {
+        Async async = context.async();
+        schemaPublisher.publish(options, droidsSchema, rh -> schemaPublisher.publish(options, starWarsSchema, rh2 -> {
+            SchemaRegistration straggler = rh.result();
+            schemaRegistrar.close((registration, handler) -> {
+                if (!registration.equals(straggler)) {
+                    schemaPublisher.unpublish(registration, handler);
+                }
+            }, 2, 200, rh3 -> {
+                context.assertTrue(rh3.succeeded());
+                CloseResult result = rh3.result();
+                context.assertFalse(result.isSucceeded());
+                context.assertEquals(2, result.getRegistrations());
+                context.assertEquals(1, result.getClosed());
+                context.assertTrue(result.getFailures().isEmpty());
+                context.assertEquals(1, result.getStragglers().size());
+                context.assertEquals("theDiscovery:" + straggler.getSchemaName(), result.getStragglers().get(0));
+                context.assertTrue(result.getCloseActionTime() >= 200);
+                context.assertEquals(result.getTotalTime(), result.toJson().getJsonObject("phases").getLong("total"));
+                context.assertFalse(straggler.getServiceConsumer().isRegistered());
+                context.assertEquals(0, schemaPublisher.registeredSchemas().size());
+                context.assertEquals(0, schemaPublisher.managedDiscoveries().size());
+                async.complete();
+            });
+        }));
+    }
+
+    @Test
+    public void should_Report_Close_Actions_That_Throw_As_Failures(TestContext context) {
+        Async async = context.async();
+        schemaPublisher.publish(options, droidsSchema, rh -> schemaPublisher.publish(options, starWarsSchema, rh2 -> {
+            SchemaRegistration failing = rh.result();
+            schemaRegistrar.close((registration, handler) -> {
+                if (registration.equals(failing)) {
+                    throw new IllegalStateException("Close failed");
+                }
+                schemaPublisher.unpublish(registration, handler);
+            }, 1, 10000, rh3 -> {
+                CloseResult result = rh3.result();
+                context.assertEquals(1, result.getClosed());
+                context.assertTrue(result.getStragglers().isEmpty());
+                context.assertEquals("Close failed", result.getFailures()
+                        .get("theDiscovery:" + failing.getSchemaName()).getMessage());
+                context.assertTrue(result.getCloseActionTime() < 10000);
+                async.complete();
+            });
+        }));
+    }
+
+    @Test
+    public void should_Release_Worker_Pool_When_Schema_Is_Unpublished(TestContext context) {
+        Async async = context.async();
+        SchemaDefinition definition = SchemaDefinition.createInstance(droidsSchema,
+                SchemaMetadata.create().setWorkerPoolName("registrar-pool").setWorkerPoolSize(1));
+        schemaPublisher.publishDefinition(options, definition, context.asyncAssertSuccess(registration ->
+                definition.queryNonBlocking("{ droidHero { name } }", null, context.asyncAssertSuccess(result -> {
+                    context.assertTrue(result.isSucceeded());
+                    context.assertTrue(workerThreadsAlive("registrar-pool-"));
+                    schemaPublisher.unpublish(registration, context.asyncAssertSuccess(v ->
+                            vertx.setPeriodic(10, timerId -> {
+                                if (!workerThreadsAlive("registrar-pool-")) {
+                                    vertx.cancelTimer(timerId);
+                                    async.complete();
+                                }
+                            })));
+                }))));
+    }
+
     @Test
     @Ignore("Need to rewrite test so it waits for the results of CompositeFuture in publishAll calls")
     public void should_Manage_Schema_Registration_And_Close_Properly2(TestContext context) {
@@ -190,6 +261,11 @@ public class SchemaRegistrarTest {
         });
     }
 
+    private static boolean workerThreadsAlive(String namePrefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.isAlive() && thread.getName().startsWith(namePrefix));
+    }
+
     private class TestClass implements SchemaPublisher {
 
         private SchemaRegistrar registrar;